@@ -0,0 +1,749 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind;
+
+/**
+ * A <code>CodeSpace</code> describes every possible secret number for one
+ * configuration of the game--guessLength positions, each holding one of
+ * numElements elements numbered 0 to numElements-1.  Anything that has to
+ * hold many codes at once (the ai's candidate lists, mostly) keeps them
+ * packed into a single <code>long</code>: each position gets a field of
+ * bitsPerPeg bits, position 0 in the lowest field.  Fields are 4 bits wide
+ * for up to 16 elements and 8 bits wide for up to 256, so the packed-code
+ * limit is 16 positions of 16 elements, or 8 positions of 256.<br>
+ * Codes can also be numbered 0 to size()-1 in mixed radix order (position
+ * 0 changes slowest), which is the order the ai enumerates them in.<br>
+ * A space can be restricted to codes with no element repeated--the
+ * permutation variant of the game.  Then only those codes are numbered,
+ * still in the same order, and scoring uses a faster kernel that relies
+ * on both codes having no repeats.<br>
+ * Scoring works on the packed codes directly, SWAR style (SIMD within a
+ * register): XOR-ing two codes leaves a zero field wherever they match, so
+ * the blacks are the zero fields, counted with a couple of shifts and one
+ * Long.bitCount().  The whites come from the sum over the elements of
+ * the smaller of the two codes' counts--with 4 bit fields the counts are
+ * packed a nibble per element, spread to a byte each, and the smaller
+ * ones taken a long at a time, without allocating.  That takes 15 to 20
+ * ns a score up to 8 positions and about 30 ns at 12 to 16, against 40 to
+ * 90 ns counting into arrays the way Engine did (SolverTester option 6).
+ * A Signature prepares a guess's counts once for scoring it against many
+ * codes.
+ */
+public final class CodeSpace {
+
+    /** The most bits a packed code can use. */
+    public static final int MAX_BITS = 64;
+
+    // how many positions in a code
+    private final int guessLength;
+
+    // how many elements each position can hold
+    private final int numElements;
+
+    // width of one position's field in a packed code, and its mask
+    private final int bitsPerPeg;
+    private final long pegMask;
+
+    // the lowest bit of each of the guessLength fields--multiplying an
+    // element by this repeats it in every field
+    private final long laneLow;
+
+    // the shared Feedback for each feedback key--null where impossible
+    private final Feedback[] feedbacks;
+
+    // true if no element may appear twice in a code
+    private final boolean noDuplicates;
+
+    // how many codes there are--numElements^guessLength, or
+    // numElements!/(numElements-guessLength)! with no duplicates
+    private final long size;
+
+    // for no duplicates: perms[i] is the number of ways to fill the
+    // positions after position i
+    private final long[] perms;
+
+    /**
+     * Creates the code space for a configuration.
+     * @param guessLength int - positions in a code
+     * @param numElements int - elements to choose from in each position
+     * @throws IllegalArgumentException if the codes can't be packed
+     * into a long
+     */
+    public CodeSpace(int guessLength, int numElements) {
+        this(guessLength, numElements, false);
+    }
+
+    /**
+     * Creates the code space for a configuration, optionally with no
+     * element repeated in a code.
+     * @param guessLength int - positions in a code
+     * @param numElements int - elements to choose from in each position
+     * @param noDuplicates boolean - true if no element may be repeated
+     * @throws IllegalArgumentException if the codes can't be packed
+     * into a long, or with no duplicates if there are fewer elements
+     * than positions or more than 64 elements
+     */
+    public CodeSpace(int guessLength, int numElements, boolean noDuplicates) {
+        if (guessLength < 1 || numElements < 1 || numElements > 256) {
+            throw new IllegalArgumentException("No code space for " +
+                    guessLength + " positions of " + numElements +
+                    " elements");
+        }
+        this.guessLength = guessLength;
+        this.numElements = numElements;
+        bitsPerPeg = numElements <= 16 ? 4 : 8;
+        if (guessLength * bitsPerPeg > MAX_BITS) {
+            throw new IllegalArgumentException(guessLength +
+                    " positions of " + numElements +
+                    " elements won't pack into " + MAX_BITS + " bits");
+        }
+        if (noDuplicates && (numElements < guessLength || numElements > 64)) {
+            throw new IllegalArgumentException("No code space without " +
+                    "duplicates for " + guessLength + " positions of " +
+                    numElements + " elements");
+        }
+        this.noDuplicates = noDuplicates;
+        pegMask = (1L << bitsPerPeg) - 1;
+        long low = 0;
+        for (int i = 0; i < guessLength; i++) {
+            low |= 1L << (i * bitsPerPeg);
+        }
+        laneLow = low;
+        feedbacks = new Feedback[(guessLength + 1) * (guessLength + 1)];
+        for (int id = 0; id < Feedback.numIds(guessLength); id++) {
+            Feedback f = Feedback.fromId(guessLength, id);
+            feedbacks[feedbackKey(f.getBlack(), f.getWhite())] = f;
+        }
+        long n = 1;
+        if (noDuplicates) {
+            perms = new long[guessLength];
+            for (int i = guessLength - 1; i >= 0; i--) {
+                perms[i] = n;
+                n = multiplyCapped(n, numElements - i);
+            }
+        } else {
+            perms = null;
+            for (int i = 0; i < guessLength; i++) {
+                n = multiplyCapped(n, numElements);
+            }
+        }
+        size = n;
+    }
+
+    // multiplies, sticking at Long.MAX_VALUE instead of overflowing
+    private static long multiplyCapped(long a, long b) {
+        if (a > Long.MAX_VALUE / b) {
+            return Long.MAX_VALUE;
+        }
+        return a * b;
+    }
+
+    /**
+     * Returns the number of positions in a code.
+     * @return int guess length
+     */
+    public int getGuessLength() {
+        return guessLength;
+    }
+
+    /**
+     * Returns the number of elements a position can hold.
+     * @return int number of elements
+     */
+    public int getNumElements() {
+        return numElements;
+    }
+
+    /**
+     * Returns the width in bits of one position in a packed code.
+     * @return int 4 or 8
+     */
+    public int getBitsPerPeg() {
+        return bitsPerPeg;
+    }
+
+    /**
+     * Indicates whether codes in this space have no repeated elements.
+     * @return boolean true if no element is repeated in a code
+     */
+    public boolean isNoDuplicates() {
+        return noDuplicates;
+    }
+
+    /**
+     * Checks that a code fits this space--right length, elements in
+     * range, and no repeats if the space has no duplicates.
+     * @param code int[] - the code
+     * @return boolean true if the code is in this space
+     */
+    public boolean contains(int[] code) {
+        if (code.length != guessLength) {
+            return false;
+        }
+        long seen = 0;
+        for (int i = 0; i < code.length; i++) {
+            if (code[i] < 0 || code[i] >= numElements) {
+                return false;
+            }
+            if (noDuplicates) {
+                if ((seen & (1L << code[i])) != 0) {
+                    return false;
+                }
+                seen |= 1L << code[i];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns how many codes there are in this space.
+     * @return long number of codes, Long.MAX_VALUE if it doesn't fit
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Packs a code given as an array into a long.
+     * @param code int[] - guessLength elements
+     * @return long the packed code
+     */
+    public long pack(int[] code) {
+        long packed = 0;
+        for (int i = guessLength - 1; i >= 0; i--) {
+            packed = (packed << bitsPerPeg) | code[i];
+        }
+        return packed;
+    }
+
+    /**
+     * Unpacks a code into an array.
+     * @param packed long - the packed code
+     * @param code int[] - array of at least guessLength to fill
+     * @return int[] the array passed in
+     */
+    public int[] unpack(long packed, int[] code) {
+        for (int i = 0; i < guessLength; i++) {
+            code[i] = (int) (packed & pegMask);
+            packed >>>= bitsPerPeg;
+        }
+        return code;
+    }
+
+    /**
+     * Unpacks a code into a new array.
+     * @param packed long - the packed code
+     * @return int[] the code as an array
+     */
+    public int[] unpack(long packed) {
+        return unpack(packed, new int[guessLength]);
+    }
+
+    /**
+     * Returns the element at one position of a packed code.
+     * @param packed long - the packed code
+     * @param position int - the position
+     * @return int the element
+     */
+    public int element(long packed, int position) {
+        return (int) ((packed >>> (position * bitsPerPeg)) & pegMask);
+    }
+
+    /**
+     * Returns the packed code numbered index in mixed radix order.
+     * @param index long - 0 to size()-1
+     * @return long the packed code
+     */
+    public long codeAt(long index) {
+        if (noDuplicates) {
+            return permutationAt(index);
+        }
+        long packed = 0;
+        for (int i = guessLength - 1; i >= 0; i--) {
+            packed |= (index % numElements) << (i * bitsPerPeg);
+            index /= numElements;
+        }
+        return packed;
+    }
+
+    /**
+     * Returns the number of a packed code in mixed radix order--the
+     * inverse of codeAt().
+     * @param packed long - the packed code
+     * @return long the code's index
+     */
+    public long indexOf(long packed) {
+        if (noDuplicates) {
+            return permutationIndexOf(packed);
+        }
+        long index = 0;
+        for (int i = 0; i < guessLength; i++) {
+            index = index * numElements + element(packed, i);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the packed code that follows another in mixed radix order.
+     * Call only if the code is not the last one.
+     * @param packed long - the packed code
+     * @return long the next packed code
+     */
+    public long next(long packed) {
+        if (noDuplicates) {
+            return nextPermutation(packed);
+        }
+        for (int i = guessLength - 1; i >= 0; i--) {
+            int shift = i * bitsPerPeg;
+            long e = (packed >>> shift) & pegMask;
+            if (e + 1 < numElements) {
+                return packed + (1L << shift);
+            }
+            packed &= ~(pegMask << shift);
+        }
+        return packed;
+    }
+
+    // codeAt() for no duplicates--index is read as digits in the
+    // factorial-like radix perms[], each digit picking among the elements
+    // not used yet
+    private long permutationAt(long index) {
+        long packed = 0;
+        long used = 0;
+        for (int i = 0; i < guessLength; i++) {
+            int d = (int) (index / perms[i]);
+            index %= perms[i];
+            int e = nthUnused(used, d);
+            used |= 1L << e;
+            packed |= (long) e << (i * bitsPerPeg);
+        }
+        return packed;
+    }
+
+    // indexOf() for no duplicates
+    private long permutationIndexOf(long packed) {
+        long index = 0;
+        long used = 0;
+        for (int i = 0; i < guessLength; i++) {
+            int e = element(packed, i);
+            long below = ~used & ((1L << e) - 1);
+            index += Long.bitCount(below) * perms[i];
+            used |= 1L << e;
+        }
+        return index;
+    }
+
+    // next() for no duplicates--from the right, finds the first position
+    // that can take a bigger unused element, then fills the rest with
+    // the smallest unused elements
+    private long nextPermutation(long packed) {
+        long used = colorMask(packed);
+        for (int i = guessLength - 1; i >= 0; i--) {
+            int e = element(packed, i);
+            used &= ~(1L << e);
+            long bigger = ~used & (-1L << (e + 1));
+            if (e + 1 < 64 && bigger != 0) {
+                int b = Long.numberOfTrailingZeros(bigger);
+                if (b < numElements) {
+                    packed = setElement(packed, i, b);
+                    used |= 1L << b;
+                    for (int j = i + 1; j < guessLength; j++) {
+                        int s = Long.numberOfTrailingZeros(~used);
+                        packed = setElement(packed, j, s);
+                        used |= 1L << s;
+                    }
+                    return packed;
+                }
+            }
+        }
+        return packed;
+    }
+
+    // returns the n-th (from 0) element not in used
+    private static int nthUnused(long used, int n) {
+        long free = ~used;
+        for (int k = 0; k < n; k++) {
+            free &= free - 1;
+        }
+        return Long.numberOfTrailingZeros(free);
+    }
+
+    // returns packed with the element at position replaced
+    private long setElement(long packed, int position, int e) {
+        int shift = position * bitsPerPeg;
+        return (packed & ~(pegMask << shift)) | ((long) e << shift);
+    }
+
+    /**
+     * Returns a bitmask of the elements in a code--bit e is set if
+     * element e appears.  Only meaningful for up to 64 elements.
+     * @param packed long - the packed code
+     * @return long the element mask
+     */
+    public long colorMask(long packed) {
+        long mask = 0;
+        for (int i = 0; i < guessLength; i++) {
+            mask |= 1L << element(packed, i);
+        }
+        return mask;
+    }
+
+    /**
+     * Scores one packed code against another the way Engine.compare()
+     * does, and returns the result as a feedback key--see feedbackKey().
+     * Which code is the guess doesn't matter.
+     * @param guess long - packed guess
+     * @param secret long - packed secret
+     * @return int the feedback key
+     */
+    public int score(long guess, long secret) {
+        if (noDuplicates) {
+            return scoreNoDuplicates(guess, secret);
+        }
+        int black = blacks(guess, secret);
+        int total;
+        if (bitsPerPeg == 4) {
+            // count both codes' elements a nibble per element--only a
+            // code of one element in all 16 positions could overflow one,
+            // and then every element in common is in place
+            if (guess == (guess & 15) * laneLow
+                    || secret == (secret & 15) * laneLow) {
+                return feedbackKey(black, 0);
+            }
+            long guessCounts = 0, secretCounts = 0;
+            for (int i = 0; i < guessLength; i++, guess >>>= 4, secret >>>= 4) {
+                guessCounts += 1L << ((guess & 15) << 2);
+                secretCounts += 1L << ((secret & 15) << 2);
+            }
+            // even elements, then odd ones, a byte each
+            total = sumBytes(minBytes(guessCounts & NIBBLE_LOW,
+                                      secretCounts & NIBBLE_LOW))
+                + sumBytes(minBytes((guessCounts >>> 4) & NIBBLE_LOW,
+                                    (secretCounts >>> 4) & NIBBLE_LOW));
+        } else {
+            total = 0;
+            for (int i = 0; i < guessLength; i++) {
+                long same = sameLanes(guess, element(guess, i));
+                if ((same & ((1L << (i * bitsPerPeg)) - 1)) != 0) {
+                    continue; // counted at its first position
+                }
+                total += Math.min(Long.bitCount(same),
+                                  count(secret, element(guess, i)));
+            }
+        }
+        return feedbackKey(black, total - black);
+    }
+
+    /**
+     * Scores one packed code against another a position at a time,
+     * without any bit tricks.  Gives the same result as score(), and is
+     * kept as the plain version to check and time the others against.
+     * @param guess long - packed guess
+     * @param secret long - packed secret
+     * @return int the feedback key
+     */
+    public int scoreScalar(long guess, long secret) {
+        int black = 0, white = 0;
+        int usedS = 0; // secret positions already matched
+        for (int i = 0; i < guessLength; i++) {
+            if (element(guess, i) == element(secret, i)) {
+                black++;
+                usedS |= 1 << i;
+            }
+        }
+        for (int i = 0; i < guessLength; i++) {
+            int g = element(guess, i);
+            if (g == element(secret, i)) {
+                continue;
+            }
+            for (int j = 0; j < guessLength; j++) {
+                if ((usedS & (1 << j)) == 0 && element(secret, j) == g) {
+                    usedS |= 1 << j;
+                    white++;
+                    break;
+                }
+            }
+        }
+        return feedbackKey(black, white);
+    }
+
+    // returns laneLow with the bit cleared for each field of x that is
+    // not zero
+    private long zeroLanes(long x) {
+        if (bitsPerPeg == 4) {
+            x |= x >>> 2;
+        } else {
+            x |= x >>> 4;
+            x |= x >>> 2;
+        }
+        x |= x >>> 1;
+        return ~x & laneLow;
+    }
+
+    // For codes with 4 bit fields: returns the count of each element
+    // from first to first+7 in code, one per byte, element first lowest--
+    // first is 0 or 8
+    private long countBytes(long code, int first) {
+        long counts = 0;
+        for (int i = 0; i < guessLength; i++, code >>>= 4) {
+            int e = (int) (code & 15);
+            // all ones if e is one of the 8 counted, else 0
+            long in = ((e ^ first) >>> 3) - 1L;
+            counts += (1L << ((e & 7) << 3)) & in;
+        }
+        return counts;
+    }
+
+    // For codes with 4 bit fields: returns the sum over the elements of
+    // the smaller of the guess's count, given by countBytes(), and the
+    // secret's--the blacks plus the whites
+    private int common(long guessLow, long guessHigh, long secret) {
+        if (numElements <= 8) {
+            return sumBytes(minBytes(guessLow, countBytes(secret, 0)));
+        }
+        long low = 0, high = 0;
+        for (int i = 0; i < guessLength; i++, secret >>>= 4) {
+            int e = (int) (secret & 15);
+            long one = 1L << ((e & 7) << 3);
+            long isHigh = -(long) (e >>> 3);
+            low += one & ~isHigh;
+            high += one & isHigh;
+        }
+        return sumBytes(minBytes(guessLow, low))
+            + sumBytes(minBytes(guessHigh, high));
+    }
+
+    private static final long BYTE_LOW = 0x0101010101010101L;
+    private static final long BYTE_HIGH = 0x8080808080808080L;
+    private static final long NIBBLE_LOW = 0x0F0F0F0F0F0F0F0FL;
+
+    // returns the smaller of each pair of bytes in a and b, which must
+    // be under 128
+    private static long minBytes(long a, long b) {
+        // high bit of each byte of the difference is set where a >= b
+        long aAtLeastB = (((a | BYTE_HIGH) - b) & BYTE_HIGH) >>> 7;
+        long mask = aAtLeastB * 0xFF;
+        return (b & mask) | (a & ~mask);
+    }
+
+    // returns the sum of the bytes in x, which must be under 256
+    private static int sumBytes(long x) {
+        return (int) ((x * BYTE_LOW) >>> 56);
+    }
+
+    // returns laneLow with a bit set for each field of code holding e
+    private long sameLanes(long code, int e) {
+        return zeroLanes(code ^ (e * laneLow));
+    }
+
+    /**
+     * Returns how many times an element appears in a code.
+     * @param packed long - the packed code
+     * @param e int - the element
+     * @return int its count
+     */
+    public int count(long packed, int e) {
+        return Long.bitCount(sameLanes(packed, e));
+    }
+
+    /**
+     * Returns a Signature of a guess, for scoring it against many codes.
+     * @param guess long - packed guess
+     * @return Signature the guess's signature
+     */
+    public Signature signature(long guess) {
+        return new Signature(guess);
+    }
+
+    /**
+     * A guess prepared for scoring against many codes: the count of
+     * each of its elements, packed a byte per element.  score() then
+     * only has to count the elements of each code the same way and take
+     * the smaller count of each, a byte at a time.  With 8 bit fields
+     * the guess's distinct elements are kept instead, each repeated
+     * across a whole packed long, and counted in the code with
+     * zeroLanes().
+     */
+    public final class Signature {
+        private final long guess;
+        // element mask, for spaces with no duplicates
+        private final long guessMask;
+        // element counts, for spaces with 4 bit fields--see countBytes()
+        private final long countsLow;
+        private final long countsHigh;
+        // distinct elements, repeated in every field, and their counts,
+        // for spaces with 8 bit fields
+        private final int distinct;
+        private final long[] broadcasts;
+        private final int[] counts;
+
+        private Signature(long guess) {
+            this.guess = guess;
+            guessMask = colorMask(guess);
+            countsLow = bitsPerPeg == 4 ? countBytes(guess, 0) : 0;
+            countsHigh = bitsPerPeg == 4 ? countBytes(guess, 8) : 0;
+            broadcasts = new long[guessLength];
+            counts = new int[guessLength];
+            int d = 0;
+            for (int i = 0; i < guessLength; i++) {
+                long same = sameLanes(guess, element(guess, i));
+                if ((same & ((1L << (i * bitsPerPeg)) - 1)) != 0) {
+                    continue;
+                }
+                broadcasts[d] = element(guess, i) * laneLow;
+                counts[d] = Long.bitCount(same);
+                d++;
+            }
+            distinct = d;
+        }
+
+        /**
+         * Returns the packed guess.
+         * @return long the guess
+         */
+        public long getGuess() {
+            return guess;
+        }
+
+        /**
+         * Scores the guess against a code.
+         * @param secret long - packed secret
+         * @return int the feedback key
+         */
+        public int score(long secret) {
+            int black = blacks(guess, secret);
+            if (noDuplicates) {
+                return scoreNoDuplicates(guessMask, colorMask(secret), black);
+            }
+            if (bitsPerPeg == 4) {
+                return feedbackKey(black,
+                        common(countsLow, countsHigh, secret) - black);
+            }
+            int total = 0;
+            for (int k = 0; k < distinct; k++) {
+                total += Math.min(counts[k],
+                        Long.bitCount(zeroLanes(secret ^ broadcasts[k])));
+            }
+            return feedbackKey(black, total - black);
+        }
+    }
+
+    /**
+     * Scores two codes that have no repeated elements.  Every element in
+     * both codes is a match of some kind, so whites are the size of the
+     * intersection of the codes' element masks less the blacks.
+     * @param guess long - packed guess
+     * @param secret long - packed secret
+     * @return int the feedback key
+     */
+    public int scoreNoDuplicates(long guess, long secret) {
+        return scoreNoDuplicates(colorMask(guess), colorMask(secret),
+                                 blacks(guess, secret));
+    }
+
+    /**
+     * Returns the number of positional matches between two codes.
+     * @param guess long - packed guess
+     * @param secret long - packed secret
+     * @return int black
+     */
+    public int blacks(long guess, long secret) {
+        return Long.bitCount(zeroLanes(guess ^ secret));
+    }
+
+    /**
+     * Scores two codes with no repeated elements, given their element
+     * masks and the positional matches, which callers holding many
+     * codes can work out once.
+     * @param guessMask long - colorMask(guess)
+     * @param secretMask long - colorMask(secret)
+     * @param black int - positional matches
+     * @return int the feedback key
+     */
+    public int scoreNoDuplicates(long guessMask, long secretMask, int black) {
+        return feedbackKey(black,
+                           Long.bitCount(guessMask & secretMask) - black);
+    }
+
+    /**
+     * Returns the key for a black/white result: black * (guessLength + 1)
+     * + white.  Keys run from 0 to numFeedbackKeys()-1, but not every key
+     * is a possible result.
+     * @param black int - positional matches
+     * @param white int - non-positional matches
+     * @return int the key
+     */
+    public int feedbackKey(int black, int white) {
+        return black * (guessLength + 1) + white;
+    }
+
+    /**
+     * Returns the number of feedback keys.
+     * @return int (guessLength + 1)^2
+     */
+    public int numFeedbackKeys() {
+        return (guessLength + 1) * (guessLength + 1);
+    }
+
+    /**
+     * Returns the positional matches of a feedback key.
+     * @param key int - the key
+     * @return int black
+     */
+    public int blackOf(int key) {
+        return key / (guessLength + 1);
+    }
+
+    /**
+     * Returns the non-positional matches of a feedback key.
+     * @param key int - the key
+     * @return int white
+     */
+    public int whiteOf(int key) {
+        return key % (guessLength + 1);
+    }
+
+    /**
+     * Returns the feedback key meaning the guess is the secret.
+     * @return int the winning key
+     */
+    public int winningKey() {
+        return feedbackKey(guessLength, 0);
+    }
+
+    /**
+     * Returns the shared Feedback for a feedback key.
+     * @param key int - a feedback key that is a possible result
+     * @return Feedback the result
+     */
+    public Feedback feedback(int key) {
+        return feedbacks[key];
+    }
+
+    /**
+     * Returns a code as a String of elements, eg "[0, 3, 3, 1]".
+     * @param packed long - the packed code
+     * @return String the code
+     */
+    public String toString(long packed) {
+        StringBuffer s = new StringBuffer("[");
+        for (int i = 0; i < guessLength; i++) {
+            s.append(element(packed, i) + ", ");
+        }
+        s.delete(s.length() - 2, s.length());
+        s.append("]");
+        return s.toString();
+    }
+
+    /**
+     * Returns String version.
+     * @return String eg "4x6"
+     */
+    public String toString() {
+        return guessLength + "x" + numElements + (noDuplicates ? "!" : "");
+    }
+}
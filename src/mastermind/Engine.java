@@ -25,8 +25,9 @@ import java.awt.geom.*;
  * arrays of integers, so the documentation here will mention numbers
  * and parenthetically note that they may be referring to colors (or
  * elements) in the basic implementation of the Mastermind game.
- * Note that using decimal integers we have up to 10 digits to work
- * with, but a larger base can be chosen if desired.<br>
+ * Nothing here assumes decimal digits--any number of elements and any
+ * guess length can be played, and everything is sized from those.  See
+ * <code>CodeSpace</code> for the limits on packing codes for the ai.<br>
  * <code>Engine</code> takes a user's guess in the form of
  * <code>int guess[SECRET_NUMBER_LENGTH]</code> and compares it to
  * <code>int secretNumber[SECRET_NUMBER_LENGTH]</code> to generate
@@ -62,6 +63,11 @@ public class Engine {
     // it could be any base
     private int[] secretNumber;
 
+    // The secret packed for scoring with space--space is null if codes
+    // of this size don't pack, and then compare() counts by hand
+    private CodeSpace space;
+    private long packedSecret;
+
     // The number of elements (colors, numbers, etc) selected by
     // the user for this game--this equals how many different digits
     // to choose from when generating the secret number
@@ -77,9 +83,16 @@ public class Engine {
     private int numGuessesAllowed;
 
     // The array of guesses--from 0 to currentGuessIndex-1 are
-    // guesses already made
+    // guesses already made.  A new array is made for each game, and
+    // compare() makes a new GuessInfo for each guess, sharing only the
+    // interned Feedback--see Feedback.of()
     private GuessInfo[] guessArray;
 
+    // The guesses packed, and their feedback keys, for hard mode's
+    // check--set by compare() when space isn't null
+    private long[] packedGuesses;
+    private int[] feedbackKeys;
+
     // The index of guessArray representing the last guess
     private int currentGuessIndex;
 
@@ -92,6 +105,42 @@ public class Engine {
     // Array of indexes to elements selected for play in this game
     int[] selectedIndexes;
 
+    // True if no element may be repeated in the secret number or in
+    // a guess--the permutation variant of the game
+    private boolean noDuplicates = false;
+
+    // True if the secret number is kept by an Adversary, which answers
+    // each guess with the feedback that leaves it the most secrets--the
+    // adversary works over the selected elements, and localIndexes maps
+    // an element to its place in selectedIndexes, or -1
+    private boolean adversarial = false;
+
+    // True if results give only the positional matches--whites are
+    // always reported as 0
+    private boolean blackOnly = false;
+
+    // The most results per game that may be wrong, the chance each one
+    // is while any are left, and the number left this game
+    private int maxLies = 0;
+    private double lieChance = 0.25;
+    private int liesLeft;
+
+    // True if a user's guess must be consistent with the results of the
+    // guesses before it--see contradictedRow()
+    private boolean hardMode = false;
+    private Adversary adversary;
+    private int[] localIndexes;
+
+    // The number of secrets each guess is scored against--the
+    // multi-board game.  Board 0's secret is secretNumber, and its rows
+    // are guessArray.  solvedAt holds the row of the guess that solved
+    // each board, or -1
+    private int numBoards = 1;
+    private int[][] secretNumbers;
+    private long[] packedSecrets;
+    private GuessInfo[][] boardArrays;
+    private int[] solvedAt;
+
     // ~~~~~~~ Boolean flags ~~~~~~~~~~
 
     // True if last guess is a match and user has won
@@ -188,9 +237,24 @@ public class Engine {
             int[] guessInt = new int[panels.length];
             for (int i = 0; i < panels.length; i++) {
                 guessInt[i] = panels[i].getIndex();
-            } // make the guess and tell the board to show the result
-            GuessInfo result = compare(guessInt);
-            board.showGuessResult(currentGuessIndex - 1, result);
+            }
+            if (!isValidGuess(guessInt)) {
+                // leave the row for the user to change
+                JOptionPane.showMessageDialog(game,
+                        "No element can be used twice in a guess " +
+                        "in this game.");
+                return;
+            } else if (hardMode && numBoards == 1) {
+                int contradicted = contradictedRow(guessInt);
+                if (contradicted >= 0) {
+                    // leave the row for the user to change
+                    JOptionPane.showMessageDialog(game,
+                            contradictionMessage(guessInt, contradicted));
+                    return;
+                }
+            } // make the guess and tell the board to show the results
+            GuessInfo[] results = compareAll(guessInt);
+            board.showGuessResults(currentGuessIndex - 1, results);
             if (hasWon || hasLost) {
                 // notify user control game is over
                 control.stop();
@@ -241,6 +305,12 @@ public class Engine {
             if (indexes == null || indexes.length < 3) {
                 return;
             }
+            if (noDuplicates && indexes.length < guessLength) {
+                JOptionPane.showMessageDialog(game,
+                        "Select at least " + guessLength + " elements " +
+                        "for a game with no repeats.");
+                return;
+            }
             init(indexes);
             if (!isPossibleSelection(currentlySelectedIndex)) {
                 currentlySelectedIndex = selectedIndexes[0];
@@ -293,15 +363,15 @@ public class Engine {
     public void init(int[] indexes) {
         selectedIndexes = indexes;
         numSelectedElements = indexes.length;
-        guessArray = new GuessInfo[numGuessesAllowed];
+        makeGuessArray();
         currentGuessIndex = 0;
-        for (int i = 0; i < secretNumber.length; i++) {
-            secretNumber[i] =
-                    indexes[rand.nextInt(numSelectedElements)];
-        }
+        makeSecretNumber(indexes);
         hasWon = hasLost = false;
         gameIsInitialized = true;
         board.init();
+        if (board.getHintPanel() != null && !blackOnly && numBoards == 1) {
+            board.getHintPanel().newGame(indexes, noDuplicates);
+        }
     }
 
     /**
@@ -315,15 +385,364 @@ public class Engine {
      * must be initialized--use the no gui constructor.
      */
     public void init() {
-        guessArray = new GuessInfo[numGuessesAllowed];
+        makeGuessArray();
         currentGuessIndex = 0;
-        for (int i = 0; i < secretNumber.length; i++) {
-            secretNumber[i] = rand.nextInt(totalElements);
+        int[] indexes = new int[totalElements];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
         }
+        selectedIndexes = indexes;
+        makeSecretNumber(indexes);
         hasWon = hasLost = false;
         gameIsInitialized = true;
     }
 
+    // Makes a new guessArray for each board, whose rows are filled in
+    // as guesses are made--the results of the last game are left to
+    // whoever kept them
+    private void makeGuessArray() {
+        boardArrays = new GuessInfo[numBoards][numGuessesAllowed];
+        packedGuesses = new long[numGuessesAllowed];
+        feedbackKeys = new int[numGuessesAllowed];
+        guessArray = boardArrays[0];
+    }
+
+    // Draws the secret number from the elements in indexes--with
+    // replacement, or without if there are to be no duplicates
+    private void makeSecretNumber(int[] indexes) {
+        liesLeft = numBoards == 1 ? maxLies : 0;
+        secretNumbers = new int[numBoards][];
+        packedSecrets = new long[numBoards];
+        solvedAt = new int[numBoards];
+        Arrays.fill(solvedAt, -1);
+        secretNumbers[0] = secretNumber;
+        for (int b = 0; b < numBoards; b++) {
+            if (b > 0) {
+                secretNumbers[b] = new int[guessLength];
+            }
+            drawSecret(indexes, secretNumbers[b]);
+        }
+        try {
+            space = new CodeSpace(guessLength, totalElements);
+            for (int b = 0; b < numBoards; b++) {
+                packedSecrets[b] = space.pack(secretNumbers[b]);
+            }
+            packedSecret = packedSecrets[0];
+        } catch (IllegalArgumentException e) {
+            space = null;
+        }
+        adversary = null;
+        if (adversarial && space != null && numBoards == 1) {
+            // the secret just drawn stays if the selection is too big
+            // to pack
+            try {
+                adversary = new Adversary(new CodeSpace(guessLength,
+                        indexes.length, noDuplicates), rand);
+            } catch (IllegalArgumentException e) {
+                return;
+            }
+            localIndexes = new int[totalElements];
+            Arrays.fill(localIndexes, -1);
+            for (int i = 0; i < indexes.length; i++) {
+                localIndexes[indexes[i]] = i;
+            }
+            commitSecretNumber();
+        }
+    }
+
+    // Draws a secret into secret from the elements in indexes
+    private void drawSecret(int[] indexes, int[] secret) {
+        if (noDuplicates) {
+            int[] deck = indexes.clone();
+            for (int i = 0; i < secret.length; i++) {
+                int j = i + rand.nextInt(deck.length - i);
+                int t = deck[i];
+                deck[i] = deck[j];
+                deck[j] = t;
+                secret[i] = deck[i];
+            }
+        } else {
+            for (int i = 0; i < secret.length; i++) {
+                secret[i] = indexes[rand.nextInt(indexes.length)];
+            }
+        }
+    }
+
+    // Sets the secret number to a secret the adversary still holds
+    private void commitSecretNumber() {
+        int[] local = adversary.getCodeSpace().unpack(adversary.secret());
+        for (int i = 0; i < secretNumber.length; i++) {
+            secretNumber[i] = selectedIndexes[local[i]];
+        }
+        packedSecret = space.pack(secretNumber);
+    }
+
+    /**
+     * Sets whether the secret number is kept by an <code>Adversary</code>
+     * rather than drawn at random--no secret is fixed, and each guess
+     * gets the feedback that keeps the most secrets consistent.  Games
+     * too big for the adversary are played with a drawn secret.
+     * Takes effect at the next init().
+     * @param adversarial boolean - true for an adversary
+     */
+    public void setAdversarial(boolean adversarial) {
+        this.adversarial = adversarial;
+    }
+
+    /**
+     * Indicates whether secrets are kept by an adversary.
+     * @return boolean <code>true</code> if the secret is not fixed
+     */
+    public boolean isAdversarial() {
+        return adversarial;
+    }
+
+    /**
+     * Sets whether the game forbids repeating an element in the secret
+     * number and in guesses.  Takes effect at the next init().
+     * @param noDuplicates boolean - true for no repeated elements
+     */
+    public void setNoDuplicates(boolean noDuplicates) {
+        this.noDuplicates = noDuplicates;
+    }
+
+    /**
+     * Indicates whether the game forbids repeated elements.
+     * @return boolean <code>true</code> if elements can't be repeated
+     */
+    public boolean isNoDuplicates() {
+        return noDuplicates;
+    }
+
+    /**
+     * Sets whether results give only the positional matches, with the
+     * whites always 0--the variant studied for its query complexity.
+     * Hint panels are left blank, as they count by whole results.
+     * Takes effect at the next init().
+     * @param blackOnly boolean - true for blacks only
+     */
+    public void setBlackOnly(boolean blackOnly) {
+        this.blackOnly = blackOnly;
+    }
+
+    /**
+     * Indicates whether results give only the positional matches.
+     * @return boolean <code>true</code> if whites aren't reported
+     */
+    public boolean isBlackOnly() {
+        return blackOnly;
+    }
+
+    /**
+     * Sets the number of boards--independent secrets that each guess is
+     * scored against at once.  A board is solved by the first guess that
+     * matches its secret, and the game is won when every board is.  With
+     * more than one board, play with compareAll(); secrets are drawn and
+     * results are whole and true, as adversaries, blacks only, lies and
+     * hard mode are for one board only.  Takes effect at the next init().
+     * @param numBoards int - 1 for the standard game
+     */
+    public void setBoards(int numBoards) {
+        this.numBoards = numBoards;
+    }
+
+    /**
+     * Returns the number of boards.
+     * @return int - the secrets each guess is scored against
+     */
+    public int getBoards() {
+        return numBoards;
+    }
+
+    /**
+     * Indicates whether a board's secret has been guessed.
+     * @param board int - the board, from 0
+     * @return boolean <code>true</code> if it has been
+     */
+    public boolean isSolved(int board) {
+        return solvedAt[board] >= 0;
+    }
+
+    /**
+     * Sets the most results per game that may be wrong--the game with
+     * lies.  While any are left, each result is a lie with chance
+     * lieChance: one of the other results, picked at random.  A win is
+     * never hidden or faked.  Takes effect at the next init().
+     * @param maxLies int - the most wrong results per game, 0 for none
+     */
+    public void setLies(int maxLies) {
+        this.maxLies = maxLies;
+    }
+
+    /**
+     * Returns the most results per game that may be wrong.
+     * @return int - the most lies, 0 if every result is true
+     */
+    public int getLies() {
+        return maxLies;
+    }
+
+    /**
+     * Sets the chance that each result is a lie while any are left.
+     * @param lieChance double - from 0 to 1, 0.25 by default
+     */
+    public void setLieChance(double lieChance) {
+        this.lieChance = lieChance;
+    }
+
+    /**
+     * Returns the number of lies told so far this game.
+     * @return int - the lies told
+     */
+    public int getLiesTold() {
+        return maxLies - liesLeft;
+    }
+
+    // A result other than truth, and other than the win, at random--null
+    // if there is none, as with blacks only and one position
+    private Feedback lie(Feedback truth) {
+        if (blackOnly) {
+            if (guessLength < 2) {
+                return null;
+            }
+            int black = rand.nextInt(guessLength - 1);
+            if (black >= truth.getBlack()) {
+                black++;
+            }
+            return Feedback.of(guessLength, black, 0);
+        }
+        // the win is the last id
+        if (Feedback.numIds(guessLength) < 3) {
+            return null;
+        }
+        int id = rand.nextInt(Feedback.numIds(guessLength) - 2);
+        if (id >= truth.getId()) {
+            id++;
+        }
+        return Feedback.fromId(guessLength, id);
+    }
+
+    /**
+     * Sets whether a user's guess must be consistent with the results of
+     * the guesses before it--could the guess be the secret, given what
+     * is known?  boardClicked() turns away guesses that aren't; the ai
+     * and compare() are not held to it.  Takes effect at once.
+     * @param hardMode boolean - true for hard mode
+     */
+    public void setHardMode(boolean hardMode) {
+        this.hardMode = hardMode;
+    }
+
+    /**
+     * Indicates whether guesses must fit the results so far.
+     * @return boolean <code>true</code> in hard mode
+     */
+    public boolean isHardMode() {
+        return hardMode;
+    }
+
+    /**
+     * Finds the first guess made so far whose result guess contradicts--
+     * that is, if guess were the secret, that guess would have scored
+     * differently.  In a game with lies a guess may contradict up to
+     * getLies() results, so this looks for more than that many.  Each
+     * earlier guess is scored packed, without allocating--see
+     * CodeSpace.score()--so this takes constant time per guess made.
+     * Games too big for a CodeSpace are scored with scoreHistogram()
+     * instead, which allocates its counts for each guess.  Hard mode is
+     * for one board only, so with several boards--see setBoards()--no
+     * guess is contradicted.
+     * @param guess int[] - the guess
+     * @return int - the row of the first guess contradicted, or -1 if
+     * guess contradicts no more results than may be lies
+     */
+    public int contradictedRow(int[] guess) {
+        if (numBoards > 1) {
+            // compareAll() keeps each board's results, not these rows
+            return -1;
+        }
+        int first = -1;
+        int contradicted = 0;
+        long packed = space != null ? space.pack(guess) : 0;
+        for (int row = 0; row < currentGuessIndex; row++) {
+            boolean fits;
+            if (space != null) {
+                int key = space.score(packedGuesses[row], packed);
+                fits = blackOnly ? space.blackOf(key)
+                                   == space.blackOf(feedbackKeys[row])
+                       : key == feedbackKeys[row];
+            } else {
+                GuessInfo gr = guessArray[row];
+                int[] matches = scoreHistogram(gr.getGuess(), guess,
+                                               totalElements);
+                fits = matches[0] == gr.getPositionMatches()
+                       && (blackOnly || matches[1]
+                           == gr.getNonPositionalMatches());
+            }
+            if (!fits) {
+                if (first < 0) {
+                    first = row;
+                }
+                if (++contradicted > maxLies) {
+                    return first;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Explains why guess contradicts the result in row--see
+     * contradictedRow().
+     * @param guess int[] - the guess
+     * @param row int - the row it contradicts
+     * @return String - the explanation
+     */
+    public String contradictionMessage(int[] guess, int row) {
+        GuessInfo gr = guessArray[row];
+        int[] matches;
+        if (space != null) {
+            int key = space.score(packedGuesses[row], space.pack(guess));
+            matches = new int[] {space.blackOf(key), space.whiteOf(key)};
+        } else {
+            matches = scoreHistogram(gr.getGuess(), guess, totalElements);
+        }
+        if (blackOnly) {
+            return "Hard mode: this guess can't be the secret.\n" +
+                   "Guess " + (row + 1) + " got " + gr.getPositionMatches() +
+                   " in place,\nbut would get " + matches[0] +
+                   " in place against this one.";
+        }
+        return "Hard mode: this guess can't be the secret.\n" +
+               "Guess " + (row + 1) + " got " + gr.getPositionMatches() +
+               " in place and " + gr.getNonPositionalMatches() +
+               " out of place,\nbut would get " + matches[0] +
+               " in place and " + matches[1] + " out of place " +
+               "against this one.";
+    }
+
+    /**
+     * Checks a guess before it is compared--it must be the right length,
+     * and if the game has no duplicates, must not repeat an element.
+     * @param guess int[] - the guess
+     * @return boolean <code>true</code> if the guess can be played
+     */
+    public boolean isValidGuess(int[] guess) {
+        if (guess.length != guessLength) {
+            return false;
+        }
+        if (noDuplicates) {
+            for (int i = 0; i < guess.length; i++) {
+                for (int j = i + 1; j < guess.length; j++) {
+                    if (guess[i] == guess[j]) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Checks if an index is that of the current, or active, guess
      * @param index int - index of row representing guess in 2d array
@@ -409,9 +828,20 @@ public class Engine {
      * @return int[] the secret number as an array
      */
     public int[] getSecretNumber() {
+        // with an adversary, this is one secret still consistent with
+        // the guesses so far--it is only fixed once it is the last one
         return secretNumber;
     }
 
+    /**
+     * For debugging purposes--get the secret number of a board.
+     * @param board int - the board, from 0
+     * @return int[] the board's secret number as an array
+     */
+    public int[] getSecretNumber(int board) {
+        return secretNumbers[board];
+    }
+
     /**
      * The workhorse function of the engine, compares the array
      * guess with the secret number and returns the results as a
@@ -425,41 +855,163 @@ public class Engine {
      * guessLength
      * @return GuessInfo the result of the comparison with the
      * secret number
+     * @throws IllegalArgumentException if the guess is not valid--see
+     * isValidGuess()
+     * @throws IllegalStateException if there is more than one board--see
+     * compareAll()
      */
     public GuessInfo compare(int guess[]) {
+        if (numBoards > 1) {
+            throw new IllegalStateException("A game of " + numBoards +
+                                            " boards is played with compareAll()");
+        }
+        checkGuess(guess);
+        currentGuessIndex++;
+        Feedback feedback;
+        if (adversary != null) {
+            int[] local = new int[guess.length];
+            for (int i = 0; i < guess.length; i++) {
+                local[i] = localIndexes[guess[i]];
+                if (local[i] < 0) {
+                    currentGuessIndex--;
+                    throw new IllegalArgumentException("Guess uses an " +
+                            "element not selected for this game");
+                }
+            }
+            CodeSpace advSpace = adversary.getCodeSpace();
+            feedback = advSpace.feedback(adversary.respond(
+                    advSpace.pack(local)));
+            commitSecretNumber();
+        } else if (space != null) {
+            feedback = space.feedback(space.score(space.pack(guess),
+                                                  packedSecret));
+        } else {
+            int[] matches = scoreHistogram(guess, secretNumber,
+                                           totalElements);
+            feedback = Feedback.of(guess.length, matches[0], matches[1]);
+        }
+        if (blackOnly) {
+            feedback = Feedback.of(guess.length, feedback.getBlack(), 0);
+        }
+        if (liesLeft > 0 && feedback.getBlack() != guess.length
+                && rand.nextDouble() < lieChance) {
+            Feedback lie = lie(feedback);
+            if (lie != null) {
+                feedback = lie;
+                liesLeft--;
+            }
+        }
+        // a copy, as callers may reuse their array for the next guess
+        GuessInfo gr = new GuessInfo(guess.clone(), feedback);
+        guessArray[currentGuessIndex - 1] = gr;
+        if (space != null) {
+            packedGuesses[currentGuessIndex - 1] = space.pack(guess);
+            feedbackKeys[currentGuessIndex - 1] = space.feedbackKey(
+                    gr.getPositionMatches(), gr.getNonPositionalMatches());
+        }
+        if (gr.getPositionMatches() == guess.length) {// check for win first--in
+            hasWon = true;	// case win on last guess allowed
+            solvedAt[0] = currentGuessIndex - 1;
+        } else if(currentGuessIndex == numGuessesAllowed) {
+            hasLost = true;
+        }
+        return gr;
+    }
+    
+    /**
+     * Compares a guess with the secret of every board--see setBoards().
+     * With one board this is compare().  Boards solved by earlier
+     * guesses are not scored.
+     * @param guess int[] the user's guess as an int array of size
+     * guessLength
+     * @return GuessInfo[] the result for each board, or null for a
+     * board already solved
+     * @throws IllegalArgumentException if the guess is not valid--see
+     * isValidGuess()
+     */
+    public GuessInfo[] compareAll(int guess[]) {
+        if (numBoards == 1) {
+            return new GuessInfo[] {compare(guess)};
+        }
+        checkGuess(guess);
+        int row = currentGuessIndex++;
+        long packed = space != null ? space.pack(guess) : 0;
+        // a copy, as callers may reuse their array for the next guess
+        guess = guess.clone();
+        GuessInfo[] results = new GuessInfo[numBoards];
+        boolean allSolved = true;
+        for (int b = 0; b < numBoards; b++) {
+            if (solvedAt[b] >= 0) {
+                boardArrays[b][row] = new GuessInfo(guess, (Feedback) null);
+                continue;
+            }
+            GuessInfo gr;
+            if (space != null) {
+                gr = new GuessInfo(guess, space.feedback(space.score(packed,
+                                                         packedSecrets[b])));
+            } else {
+                int[] matches = scoreHistogram(guess, secretNumbers[b],
+                                               totalElements);
+                gr = new GuessInfo(guess, matches[0], matches[1]);
+            }
+            boardArrays[b][row] = gr;
+            if (gr.getPositionMatches() == guess.length) {
+                solvedAt[b] = row;
+            } else {
+                allSolved = false;
+            }
+            results[b] = gr;
+        }
+        if (allSolved) {
+            hasWon = true;
+        } else if (currentGuessIndex == numGuessesAllowed) {
+            hasLost = true;
+        }
+        return results;
+    }
+
+    // Stops if the game can't be played, and throws if guess can't be
+    private void checkGuess(int[] guess) {
         if (hasWon || hasLost || !gameIsInitialized) {
             System.out.println("In compare(), but have won, lost, " +
                                "or game is not initialized.\nDon't forget " +
                                "to put throw statements here.");
             System.exit(1);
         }
-        int posMatch = 0, nonPosMatch = 0; // count matches
-        int[] matchedS = new int[totalElements];
-        int[] matchedG = new int[totalElements];
-        for (int i = 0; i < matchedS.length; i++) {
-            matchedS[i] = matchedG[i] = 0;
+        if (!isValidGuess(guess)) {
+            throw new IllegalArgumentException("Guess can't be played " +
+                                               "in this game");
         }
+    }
+
+    /**
+     * Compares a guess with a secret by counting how many of each
+     * element are in both.  compare() uses this only for codes too big
+     * for a CodeSpace--otherwise it scores the packed codes.
+     * @param guess int[] - the guess
+     * @param secret int[] - the secret, the same length as guess
+     * @param numElements int - elements are 0 to numElements-1
+     * @return int[] {positional matches, nonpositional matches}
+     */
+    public static int[] scoreHistogram(int[] guess, int[] secret,
+                                       int numElements) {
+        int posMatch = 0, nonPosMatch = 0;
+        int[] matchedS = new int[numElements];
+        int[] matchedG = new int[numElements];
         for (int i = 0; i < guess.length; i++) { // count occurrences
-            matchedS[secretNumber[i]]++; // of each matching digit
+            matchedS[secret[i]]++; // of each matching digit
             matchedG[guess[i]]++;
-            if (guess[i] == secretNumber[i]) { // positional matches
+            if (guess[i] == secret[i]) { // positional matches
                 posMatch++;
             }
         }
-        for (int i = 0; i < totalElements; i++) {
+        for (int i = 0; i < numElements; i++) {
             nonPosMatch += Math.min(matchedS[i], matchedG[i]);
         }
         nonPosMatch -= posMatch;
-        GuessInfo gr = new GuessInfo(guess, posMatch, nonPosMatch);
-        guessArray[currentGuessIndex++] = gr;
-        if (posMatch == guess.length) {// check for win first--in
-            hasWon = true;	// case win on last guess allowed
-        } else if(currentGuessIndex == numGuessesAllowed) {
-            hasLost = true;
-        }
-        return gr;
+        return new int[] {posMatch, nonPosMatch};
     }
-    
+
     /**
      * Returns ref to the User Control of this game.
      * 
@@ -0,0 +1,163 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The result of comparing a guess with the secret--the number of
+ * positional (black) and non-positional (white) matches.<br>
+ * For a guess length n only (n+1)(n+2)/2 - 1 results are possible: black
+ * + white is at most n, and n-1 black with 1 white can't happen.  Each
+ * gets a dense id from 0 to numIds(n)-1, in order of black then white, so
+ * results can index plain arrays.  There is one shared, immutable
+ * <code>Feedback</code> for each result--get it with of() or fromId()
+ * rather than making new ones.
+ */
+public final class Feedback {
+
+    private final int black;
+    private final int white;
+    private final int id;
+
+    // the table for each guess length, made when first asked for
+    private static final ConcurrentHashMap<Integer, Table> tables =
+        new ConcurrentHashMap<Integer, Table>();
+
+    private Feedback(int black, int white, int id) {
+        this.black = black;
+        this.white = white;
+        this.id = id;
+    }
+
+    /**
+     * Returns the shared <code>Feedback</code> for a result.
+     * @param guessLength int - length of the guess
+     * @param black int - positional matches
+     * @param white int - non-positional matches
+     * @return Feedback the result
+     * @throws IllegalArgumentException if the result isn't possible
+     */
+    public static Feedback of(int guessLength, int black, int white) {
+        return fromId(guessLength, id(guessLength, black, white));
+    }
+
+    /**
+     * Returns the dense id of a result.
+     * @param guessLength int - length of the guess
+     * @param black int - positional matches
+     * @param white int - non-positional matches
+     * @return int the id, from 0 to numIds(guessLength)-1
+     * @throws IllegalArgumentException if the result isn't possible
+     */
+    public static int id(int guessLength, int black, int white) {
+        int id = -1;
+        if (black >= 0 && white >= 0 && black + white <= guessLength) {
+            id = table(guessLength).ids[black * (guessLength + 1) + white];
+        }
+        if (id < 0) {
+            throw new IllegalArgumentException("No result " + black +
+                                               " black " + white +
+                                               " white for length " +
+                                               guessLength);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the shared <code>Feedback</code> with a dense id.
+     * @param guessLength int - length of the guess
+     * @param id int - from 0 to numIds(guessLength)-1
+     * @return Feedback the result
+     */
+    public static Feedback fromId(int guessLength, int id) {
+        return table(guessLength).byId[id];
+    }
+
+    /**
+     * Returns the number of possible results, which is the number of
+     * dense ids.
+     * @param guessLength int - length of the guess
+     * @return int (guessLength+1)(guessLength+2)/2 - 1
+     */
+    public static int numIds(int guessLength) {
+        return table(guessLength).byId.length;
+    }
+
+    /**
+     * Returns the number of positional matches.
+     * @return int black
+     */
+    public int getBlack() {
+        return black;
+    }
+
+    /**
+     * Returns the number of non-positional matches.
+     * @return int white
+     */
+    public int getWhite() {
+        return white;
+    }
+
+    /**
+     * Returns the dense id.
+     * @return int the id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns String version.
+     * @return String eg "p=1  d=2"
+     */
+    public String toString() {
+        return "p=" + black + "  d=" + white;
+    }
+
+    private static Table table(int guessLength) {
+        Table t = tables.get(guessLength);
+        if (t == null) {
+            if (guessLength < 1) {
+                throw new IllegalArgumentException("Bad guess length: " +
+                                                   guessLength);
+            }
+            t = new Table(guessLength);
+            Table old = tables.putIfAbsent(guessLength, t);
+            if (old != null) {
+                t = old;
+            }
+        }
+        return t;
+    }
+
+    // the results for one guess length, both ways--ids is indexed by
+    // black * (guessLength+1) + white and holds -1 for impossible results
+    private static final class Table {
+        final int[] ids;
+        final Feedback[] byId;
+
+        Table(int n) {
+            ids = new int[(n + 1) * (n + 1)];
+            byId = new Feedback[(n + 1) * (n + 2) / 2 - 1];
+            Arrays.fill(ids, -1);
+            int id = 0;
+            for (int black = 0; black <= n; black++) {
+                for (int white = 0; black + white <= n; white++) {
+                    if (black == n - 1 && white == 1) {
+                        continue;
+                    }
+                    ids[black * (n + 1) + white] = id;
+                    byId[id] = new Feedback(black, white, id);
+                    id++;
+                }
+            }
+        }
+    }
+}
@@ -9,18 +9,16 @@ package mastermind;
 
 /**
  * A <code>GuessInfo</code> object holds the data for the results
- * of a single guess.
+ * of a single guess.  The result itself is a shared
+ * <code>Feedback</code>, so making one doesn't make a new result.
  */
 public class GuessInfo {
 	private Engine engine;
     // The user's guess
     private int[] guess;
 
-    // The number of positional matches
-    private int positionMatches;
-
-    // The number of non-positional digit matches
-    private int nonPositionalMatches;
+    // The positional and non-positional matches--null until set
+    private Feedback feedback;
 
     /**
      * Creates a <code>GuessInfo</code> object with all
@@ -30,8 +28,6 @@ public class GuessInfo {
         guess = new int[guessLength];
         for(int i=0; i<guess.length; i++)
             guess[i] = -1;
-        positionMatches = -1;
-        nonPositionalMatches = -1;
     }
 
     /**
@@ -41,9 +37,17 @@ public class GuessInfo {
      * @param digit int number of non-positional digit matches
      */
     public GuessInfo(int[] guess, int position, int digit) {
+        this(guess, Feedback.of(guess.length, position, digit));
+    }
+
+    /**
+     * Creates an initialized <code>GuessInfo</code> object.
+     * @param guess int[] user's guess as an array of integers
+     * @param feedback Feedback the result of the guess
+     */
+    public GuessInfo(int[] guess, Feedback feedback) {
         this.guess = guess;
-        positionMatches = position;
-        nonPositionalMatches = digit;
+        this.feedback = feedback;
     }
 
     /**
@@ -54,8 +58,7 @@ public class GuessInfo {
      */
     public void set(int[] guess, int position, int notPosition) {
         this.guess = guess;
-        positionMatches = position;
-        nonPositionalMatches = notPosition;
+        this.feedback = Feedback.of(guess.length, position, notPosition);
     }
 
     /**
@@ -63,8 +66,7 @@ public class GuessInfo {
      * @return GuessInfo object returned
      */
     public GuessInfo get() {
-        GuessInfo gr = new GuessInfo(guess, positionMatches,
-                                         nonPositionalMatches);
+        GuessInfo gr = new GuessInfo(guess, feedback);
         return gr;
     }
 
@@ -81,7 +83,7 @@ public class GuessInfo {
      * @return int how many positions were matched
      */
     public int getPositionMatches() {
-        return positionMatches;
+        return feedback == null ? -1 : feedback.getBlack();
     }
 
     /**
@@ -89,7 +91,15 @@ public class GuessInfo {
      * @return int how many digits matched, but not positions
      */
     public int getNonPositionalMatches() {
-        return nonPositionalMatches;
+        return feedback == null ? -1 : feedback.getWhite();
+    }
+
+    /**
+     * Returns the result of the guess.
+     * @return Feedback the result, or null if not set
+     */
+    public Feedback getFeedback() {
+        return feedback;
     }
 
     /**
@@ -105,8 +115,8 @@ public class GuessInfo {
         if(s.length() >= 2) {
         	s.delete(s.length() - 2, s.length());
         }
-        s.append("]  p=" + positionMatches + "  d=" +
-                nonPositionalMatches);
+        s.append("]  p=" + getPositionMatches() + "  d=" +
+                getNonPositionalMatches());
         return s.toString();
     }
 }
@@ -15,9 +15,12 @@ import javax.swing.*;
 // javahelp
 import javax.help.*;
 
+import mastermind.ai.SolverChoice;
+import mastermind.ai.StrategyFile;
 import mastermind.event.ClickHandler;
 import mastermind.gui.Board;
 import mastermind.gui.GameDialog;
+import mastermind.gui.HintPanel;
 import mastermind.gui.UserControl;
 import mastermind.gui.WinOrLose;
 
@@ -57,6 +60,33 @@ public class MasterMind extends JFrame implements ActionListener, ItemListener {
     // True if game is being played by ai
     private boolean autopilot = false;
 
+    // True if elements can't be repeated in the secret or in guesses
+    private boolean noDuplicates = false;
+
+    // True if a guess must fit the results of earlier guesses
+    private boolean hardMode = false;
+
+    // The number of secrets each guess is scored against
+    private int numBoards = 1;
+
+    // The solver the ai plays with on autopilot
+    private SolverChoice solverChoice = SolverChoice.AUTOMATIC;
+
+    // True if the secret is kept by an adversary--set from the menu,
+    // and kept from game to game
+    private boolean adversarial = false;
+
+    // True if results give blacks only--set from the menu, and kept from
+    // game to game
+    private boolean blackOnly = false;
+
+    // True if the hint panel is shown--set from the menu, and kept from
+    // game to game
+    private boolean hints = false;
+
+    // Counts the possible secrets, and suggests guesses
+    private HintPanel hintPanel;
+
     /**
      * The preferred height of an individual board element panel.
      * Only need height for square panels.
@@ -129,7 +159,35 @@ public class MasterMind extends JFrame implements ActionListener, ItemListener {
                 return highlightColors[i];
             }
         }
-        return null;
+        // generated color--lighten it about as much as the hard-coded
+        // highlights are lightened
+        return new Color((base.getRed() + 255) / 2,
+                         (base.getGreen() + 255) / 2,
+                         (base.getBlue() + 255) / 2);
+    }
+
+    /**
+     * Returns numColors colors for a colors game.  The first ones are the
+     * baseColors, and any more than that are generated by stepping
+     * around the color wheel, alternating between brighter and darker
+     * shades so neighbours are easy to tell apart.
+     * @param numColors int - how many colors are needed
+     * @return Color[] the palette
+     */
+    public static Color[] makePalette(int numColors) {
+        Color[] palette = new Color[numColors];
+        for (int i = 0; i < palette.length; i++) {
+            if (i < baseColors.length) {
+                palette[i] = baseColors[i];
+            } else {
+                int k = i - baseColors.length;
+                // golden ratio steps spread the hues out evenly
+                float hue = (0.13f + k * 0.618034f) % 1.0f;
+                float brightness = (k % 2 == 0) ? 0.95f : 0.6f;
+                palette[i] = Color.getHSBColor(hue, 0.85f, brightness);
+            }
+        }
+        return palette;
     }
 
 
@@ -158,6 +216,8 @@ public class MasterMind extends JFrame implements ActionListener, ItemListener {
     }
  
     private static void createAndRunGui() {
+        // the strategies the ai can follow--see OpeningBooks
+        StrategyFile.loadDirectory(StrategyFile.directory());
     	MasterMind mm = new MasterMind();
         try {
             mm.init("Colors", 10, 10, 4, false);
@@ -208,6 +268,24 @@ public class MasterMind extends JFrame implements ActionListener, ItemListener {
 			} else {
 				autopilot = true;
 			}
+		} else if(source == chkAdversary) {
+			adversarial = e.getStateChange() == ItemEvent.SELECTED;
+			// from the next game on
+			if(engine != null) {
+				engine.setAdversarial(adversarial);
+			}
+		} else if(source == chkBlackOnly) {
+			blackOnly = e.getStateChange() == ItemEvent.SELECTED;
+			// from the next game on
+			if(engine != null) {
+				engine.setBlackOnly(blackOnly);
+			}
+		} else if(source == chkHints) {
+			hints = e.getStateChange() == ItemEvent.SELECTED;
+			if(hintPanel != null) {
+				hintPanel.setVisible(hints);
+				pack();
+			}
 		}
 	}
 
@@ -221,6 +299,7 @@ public class MasterMind extends JFrame implements ActionListener, ItemListener {
         board = null;
         engine = null;
         showWonOrLost = null;
+        hintPanel = null;
         autopilot = false;
     }
 
@@ -236,7 +315,95 @@ public class MasterMind extends JFrame implements ActionListener, ItemListener {
      */
     public void init(String typeOfGame, int totalElements,
                      int numGuesses, int guessLength, boolean autopilot) throws Exception {
+        init(typeOfGame, totalElements, numGuesses, guessLength, autopilot,
+             false);
+    }
+
+    /**
+     * Initializes a new game.
+     * @param typeOfGame String - the type of game selected
+     * @param totalElements int - the total number of elements
+     * available for this game
+     * @param numGuesses int - number of guesses allowed for this game
+     * @param guessLength int - length of the guess
+     * @param autopilot boolean - true if ai is playing, false if user
+     * @param noDuplicates boolean - true if elements can't be repeated
+     * @throws Exception - for subclassing
+     */
+    public void init(String typeOfGame, int totalElements,
+                     int numGuesses, int guessLength, boolean autopilot,
+                     boolean noDuplicates) throws Exception {
+        init(typeOfGame, totalElements, numGuesses, guessLength, autopilot,
+             noDuplicates, SolverChoice.AUTOMATIC);
+    }
+
+    /**
+     * Initializes a new game.
+     * @param typeOfGame String - the type of game selected
+     * @param totalElements int - the total number of elements
+     * available for this game
+     * @param numGuesses int - number of guesses allowed for this game
+     * @param guessLength int - length of the guess
+     * @param autopilot boolean - true if ai is playing, false if user
+     * @param noDuplicates boolean - true if elements can't be repeated
+     * @param solverChoice SolverChoice - the solver the ai plays with
+     * @throws Exception - for subclassing
+     */
+    public void init(String typeOfGame, int totalElements,
+                     int numGuesses, int guessLength, boolean autopilot,
+                     boolean noDuplicates, SolverChoice solverChoice)
+            throws Exception {
+        init(typeOfGame, totalElements, numGuesses, guessLength, autopilot,
+             noDuplicates, solverChoice, false);
+    }
+
+    /**
+     * Initializes a new game.
+     * @param typeOfGame String - the type of game selected
+     * @param totalElements int - the total number of elements
+     * available for this game
+     * @param numGuesses int - number of guesses allowed for this game
+     * @param guessLength int - length of the guess
+     * @param autopilot boolean - true if ai is playing, false if user
+     * @param noDuplicates boolean - true if elements can't be repeated
+     * @param solverChoice SolverChoice - the solver the ai plays with
+     * @param hardMode boolean - true if guesses must fit earlier results
+     * @throws Exception - for subclassing
+     */
+    public void init(String typeOfGame, int totalElements,
+                     int numGuesses, int guessLength, boolean autopilot,
+                     boolean noDuplicates, SolverChoice solverChoice,
+                     boolean hardMode)
+            throws Exception {
+        init(typeOfGame, totalElements, numGuesses, guessLength, autopilot,
+             noDuplicates, solverChoice, hardMode, 1);
+    }
+
+    /**
+     * Initializes a new game.
+     * @param typeOfGame String - the type of game selected
+     * @param totalElements int - the total number of elements
+     * available for this game
+     * @param numGuesses int - number of guesses allowed for this game
+     * @param guessLength int - length of the guess
+     * @param autopilot boolean - true if ai is playing, false if user
+     * @param noDuplicates boolean - true if elements can't be repeated
+     * @param solverChoice SolverChoice - the solver the ai plays with
+     * @param hardMode boolean - true if guesses must fit earlier results
+     * @param numBoards int - number of secrets each guess is scored
+     * against--see Engine.setBoards()
+     * @throws Exception - for subclassing
+     */
+    public void init(String typeOfGame, int totalElements,
+                     int numGuesses, int guessLength, boolean autopilot,
+                     boolean noDuplicates, SolverChoice solverChoice,
+                     boolean hardMode, int numBoards)
+            throws Exception {
     	this.autopilot = autopilot;
+    	this.solverChoice = solverChoice;
+    	this.noDuplicates = noDuplicates;
+    	this.hardMode = hardMode;
+    	this.numBoards = numBoards;
         makeMenu();
         if (typeOfGame.equalsIgnoreCase("Numbers")) {
             numbers = new Integer[totalElements];
@@ -246,23 +413,32 @@ public class MasterMind extends JFrame implements ActionListener, ItemListener {
             userControl = new UserControl(clickHandler, this,
                                           numbers);
             board = new Board(guessLength, numGuesses,
-                              clickHandler, numbers, backgroundColor);
+                              clickHandler, numbers, backgroundColor,
+                              numBoards);
             engine = new Engine(board, userControl, this, guessLength,
                                 numGuesses, numbers.length);
+            hintPanel = new HintPanel(boardUnitHt, boardUnitHt, guessLength,
+                                      numbers, backgroundColor);
         } else if (typeOfGame.equalsIgnoreCase("Colors")) {
-            Color[] workingColors = new Color[totalElements];
-            for (int i = 0; i < workingColors.length; i++) {
-                workingColors[i] = baseColors[i];
-            }
+            Color[] workingColors = makePalette(totalElements);
             userControl = new UserControl(clickHandler, this,
                                           workingColors);
             board = new Board(guessLength, numGuesses, clickHandler,
-                              workingColors, backgroundColor);
+                              workingColors, backgroundColor, numBoards);
             engine = new Engine(board, userControl, this, guessLength,
                                 numGuesses, workingColors.length);
+            hintPanel = new HintPanel(boardUnitHt, boardUnitHt, guessLength,
+                                      workingColors, backgroundColor);
 
         }
 
+        engine.setNoDuplicates(noDuplicates);
+        engine.setHardMode(hardMode);
+        engine.setAdversarial(adversarial);
+        engine.setBlackOnly(blackOnly);
+        engine.setBoards(numBoards);
+        board.setHintPanel(hintPanel);
+        hintPanel.setVisible(hints);
         clickHandler.addEngine(engine);
         Container cp = getContentPane();
         cp.setBackground(new Color(165, 206, 182)); // (165, 206, 182)
@@ -275,6 +451,7 @@ public class MasterMind extends JFrame implements ActionListener, ItemListener {
         vBox.add(showWonOrLost);
         vBox.add(Box.createVerticalStrut(showWonOrLost.getHeight() / 2));
         vBox.add(userControl);
+        vBox.add(hintPanel);
         cp.add(vBox);
         Dimension dim = Toolkit.getDefaultToolkit().getScreenSize();
         pack();
@@ -319,7 +496,12 @@ public class MasterMind extends JFrame implements ActionListener, ItemListener {
      * in the WinOrLose panel
      */
     public void showWinningCombination() {
-	int[] secret = engine.getSecretNumber();
+        // the first board not solved, when there are several
+        int b = 0;
+        while (b < numBoards - 1 && engine.isSolved(b)) {
+            b++;
+        }
+	int[] secret = engine.getSecretNumber(b);
         Object[] elems = new Object[secret.length];
         for(int i = 0; i < elems.length; i++) {
             elems[i] = board.getElement(secret[i]);
@@ -329,6 +511,15 @@ public class MasterMind extends JFrame implements ActionListener, ItemListener {
 
     // added for ai
     JCheckBoxMenuItem chkAuto = null;
+
+    // no fixed secret--see Engine.setAdversarial()
+    JCheckBoxMenuItem chkAdversary = null;
+
+    // blacks only--see Engine.setBlackOnly()
+    JCheckBoxMenuItem chkBlackOnly = null;
+
+    // shows the hint panel
+    JCheckBoxMenuItem chkHints = null;
     
     // Make this app's menu
     private void makeMenu() {
@@ -355,6 +546,19 @@ public class MasterMind extends JFrame implements ActionListener, ItemListener {
         chkAuto = new JCheckBoxMenuItem("Autopilot (AI)");
         chkAuto.addItemListener(this);
         game.add(chkAuto);
+
+        chkAdversary = new JCheckBoxMenuItem("Adversary (no fixed secret)",
+                adversarial);
+        chkAdversary.addItemListener(this);
+        game.add(chkAdversary);
+
+        chkBlackOnly = new JCheckBoxMenuItem("Black pegs only", blackOnly);
+        chkBlackOnly.addItemListener(this);
+        game.add(chkBlackOnly);
+
+        chkHints = new JCheckBoxMenuItem("Show hints", hints);
+        chkHints.addItemListener(this);
+        game.add(chkHints);
         
         //**debug
         //chkAuto.setSelected(true);
@@ -398,6 +602,16 @@ public class MasterMind extends JFrame implements ActionListener, ItemListener {
 	}
 
 
+	/**
+	 * Returns the solver the ai plays with on autopilot.
+	 * 
+	 * @return
+	 */
+	public SolverChoice getSolverChoice() {
+		return solverChoice;
+	}
+
+
 	/**
 	 * Returns true if game is being run by computer (see ai package).
 	 * 
@@ -62,30 +62,163 @@ public class MasterMindTester {
 
     //int guessAsInt;
     public void setGuessArray(int intGuess) {
-        for (int i = guessLength - 1; i >= 0; i--) {
-            int powOf10 = (int) Math.round(Math.pow(10, i));
-            guess[guessLength - 1 - i] = intGuess / powOf10;
-            intGuess %= powOf10;
+        StringBuffer s = new StringBuffer(Integer.toString(intGuess));
+        while (s.length() < guessLength) {
+            s.insert(0, '0');
         }
+        setGuessArray(s.toString());
     }
 
+    /**
+     * Sets the guess from a String.  Either one character per element--
+     * digits then letters, so "3a0f" in a game of 16 elements--or, for
+     * games of more than 36 elements, numbers separated by spaces.
+     * @param strGuess String - the guess as typed
+     * @throws IllegalArgumentException if the guess is the wrong length
+     * or uses an element outside the game
+     */
+    public void setGuessArray(String strGuess) {
+        strGuess = strGuess.trim();
+        String[] tokens;
+        if (strGuess.indexOf(' ') >= 0) {
+            tokens = strGuess.split("\\s+");
+        } else {
+            tokens = new String[strGuess.length()];
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = strGuess.substring(i, i + 1);
+            }
+        }
+        if (tokens.length != guessLength) {
+            throw new IllegalArgumentException("Guess must have " +
+                    guessLength + " elements: " + strGuess);
+        }
+        for (int i = 0; i < guessLength; i++) {
+            int e = Integer.parseInt(tokens[i], Character.MAX_RADIX);
+            if (e < 0 || e >= domainSize) {
+                throw new IllegalArgumentException("Element " + tokens[i] +
+                        " is not in 0 to " + (domainSize - 1));
+            }
+            guess[i] = e;
+        }
+    }
+
+    /**
+     * Plays a game on the command line.  Optional arguments are the
+     * guess length, number of elements and number of guesses allowed,
+     * eg "8 16 20"--the default is "4 10 16"--followed optionally by
+     * "nodup" for a game with no repeated elements, "adversary" for a
+     * game against an adversary that keeps no fixed secret, "hard" for a
+     * game where each guess must fit the results so far, "lies=k" for a
+     * game where up to k results may be wrong, "black" for results
+     * with blacks only, and "boards=n" for each guess to be scored
+     * against n secrets at once.
+     * @param args String[]
+     * @throws IOException
+     */
     public static void main(String[] args) throws IOException {
-        MasterMindTester mt = new MasterMindTester();
+        MasterMindTester mt;
+        if (args.length >= 3) {
+            mt = new MasterMindTester(Integer.parseInt(args[0]),
+                                      Integer.parseInt(args[1]),
+                                      Integer.parseInt(args[2]));
+        } else {
+            mt = new MasterMindTester();
+        }
+        boolean reInit = false;
+        for (int i = args.length >= 3 ? 3 : 0; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase("nodup")) {
+                mt.engine.setNoDuplicates(true);
+                reInit = true;
+            } else if (args[i].toLowerCase().startsWith("lies=")) {
+                mt.engine.setLies(Integer.parseInt(
+                        args[i].substring("lies=".length())));
+                reInit = true;
+            } else if (args[i].equalsIgnoreCase("black")) {
+                mt.engine.setBlackOnly(true);
+                reInit = true;
+            } else if (args[i].equalsIgnoreCase("hard")) {
+                mt.engine.setHardMode(true);
+            } else if (args[i].toLowerCase().startsWith("boards=")) {
+                mt.engine.setBoards(Integer.parseInt(
+                        args[i].substring("boards=".length())));
+                reInit = true;
+            } else if (args[i].equalsIgnoreCase("adversary")) {
+                mt.engine.setAdversarial(true);
+                reInit = true;
+            }
+        }
+        if (reInit) {
+            mt.engine.init();
+        }
         BufferedReader in = new BufferedReader(new InputStreamReader
                                                (System.in));
 
         //mt.engine.init(mt.domainSize, mt.numberOfGuesses);
         String sn = mt.arrayToString(mt.engine.getSecretNumber());
-        System.out.println("Secret number is " + sn);
+        int numBoards = mt.engine.getBoards();
+        if (numBoards > 1) {
+            for (int b = 0; b < numBoards; b++) {
+                System.out.println("Secret number " + (b + 1) + " is " +
+                        mt.arrayToString(mt.engine.getSecretNumber(b)));
+            }
+        } else if (mt.engine.isAdversarial()) {
+            System.out.println("No secret number--it will be whatever " +
+                               "holds out longest");
+        } else {
+            System.out.println("Secret number is " + sn);
+        }
         for (; ; ) {
-            System.out.println("Enter a four digit guess:");
-            String strInt = in.readLine();
-            int intGuess = Integer.parseInt(strInt);
-            mt.setGuessArray(intGuess);
+            System.out.println("Enter a guess of " + mt.guessLength +
+                               " elements from 0 to " +
+                               Integer.toString(mt.domainSize - 1,
+                                                Character.MAX_RADIX) + ":");
+            String strGuess = in.readLine();
+            try {
+                mt.setGuessArray(strGuess);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                continue;
+            }
             System.out.println("guess = " + mt.arrayToString(mt.guess));
+            if (!mt.engine.isValidGuess(mt.guess)) {
+                System.out.println("No element can be repeated in this game");
+                continue;
+            }
+            if (mt.engine.isHardMode() && numBoards == 1) {
+                int row = mt.engine.contradictedRow(mt.guess);
+                if (row >= 0) {
+                    System.out.println(mt.engine.contradictionMessage(
+                            mt.guess, row));
+                    continue;
+                }
+            }
+            if (numBoards > 1) {
+                GuessInfo[] results = mt.engine.compareAll(mt.guess);
+                for (int b = 0; b < numBoards; b++) {
+                    System.out.println("board " + (b + 1) + ": " +
+                            (results[b] == null ? "solved"
+                             : results[b].toString()));
+                }
+                if (mt.engine.hasWon()) {
+                    System.out.println("You the man!");
+                    break;
+                } else if (mt.engine.hasLost()) {
+                    System.out.println("Ouch, sorry dude ...");
+                    break;
+                }
+                continue;
+            }
             GuessInfo gr = mt.engine.compare(mt.guess);
             System.out.println(gr.toString());
+            if (mt.engine.isAdversarial() && !mt.engine.hasWon()) {
+                System.out.println("Secret number could still be " +
+                        mt.arrayToString(mt.engine.getSecretNumber()));
+            }
             if (mt.engine.hasWon()) {
+                if (mt.engine.getLies() > 0) {
+                    System.out.println(mt.engine.getLiesTold() + " of the " +
+                            "results were lies");
+                }
                 System.out.println("You the man!");
                 break;
             } else if (mt.engine.hasLost()) {
@@ -0,0 +1,164 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.util.*;
+
+/**
+ * A secret keeper that cheats: it never picks a secret, but answers each
+ * guess with the feedback that leaves the most secrets consistent with
+ * every answer so far.  It is only held to one secret once there is one
+ * left.  Any guesser has to take at least as many guesses against it as
+ * against the worst secret for its strategy, so it is a worst case test.
+ *
+ * The secrets still consistent are held in a CandidateSet, which each
+ * guess partitions (see CandidateSet.partition()) and then filters down
+ * to the part answered.  Ties go to the lower feedback key, except that
+ * the win is only given when it is all that is left.  Spaces too big to
+ * hold start from a random sample of maxSecrets different codes instead--
+ * the adversary is then only as hard as its sample.
+ *
+ * @author drogers
+ */
+public class Adversary {
+
+	/** Default most secrets held. */
+	public static final int DEFAULT_MAX_SECRETS = 4000000;
+
+	private CodeSpace space;
+	private CandidateSet secrets;
+	private int[] histogram;
+
+	/**
+	 * Creates an adversary holding every code of space, or
+	 * DEFAULT_MAX_SECRETS drawn with rand if there are more.
+	 *
+	 * @param space
+	 * @param rand
+	 */
+	public Adversary(CodeSpace space, Random rand) {
+		this(space, DEFAULT_MAX_SECRETS, rand);
+	}
+
+	/**
+	 * Creates an adversary holding every code of space, or maxSecrets
+	 * drawn with rand if there are more.
+	 *
+	 * @param space
+	 * @param maxSecrets
+	 * @param rand
+	 */
+	public Adversary(CodeSpace space, int maxSecrets, Random rand) {
+		this.space = space;
+		if(space.size() <= maxSecrets) {
+			secrets = CandidateSet.all(space);
+		} else {
+			long[] sample = distinct(space.size(), maxSecrets, rand);
+			for(int i=0; i<sample.length; i++) {
+				sample[i] = space.codeAt(sample[i]);
+			}
+			secrets = CandidateSet.of(space, sample);
+		}
+		secrets.setKernel(ScoringKernel.GROUPED);
+		histogram = new int[space.numFeedbackKeys()];
+	}
+
+	// returns m different numbers from 0 to n-1, in order, drawn with
+	// rand--a repeat would count twice in every partition, and the
+	// adversary could never commit to the last secret.  Numbers are drawn
+	// with repeats, which are dropped and made up until there are none.
+	// Past half of n that takes many rounds, so the numbers left out are
+	// drawn instead.
+	private static long[] distinct(long n, int m, Random rand) {
+		if(m > n / 2) {
+			long[] out = distinct(n, (int)(n - m), rand);
+			long[] in = new long[m];
+			int i = 0, j = 0;
+			for(long x=0; x<n; x++) {
+				if(j < out.length && out[j] == x) {
+					j++;
+				} else {
+					in[i++] = x;
+				}
+			}
+			return in;
+		}
+		long[] drawn = new long[m];
+		int have = 0;
+		while(have < m) {
+			for(int i=have; i<m; i++) {
+				drawn[i] = rand.nextLong(n);
+			}
+			Arrays.sort(drawn);
+			have = 0;
+			for(int i=0; i<m; i++) {
+				if(have == 0 || drawn[i] != drawn[have - 1]) {
+					drawn[have++] = drawn[i];
+				}
+			}
+		}
+		return drawn;
+	}
+
+	public CodeSpace getCodeSpace() {
+		return space;
+	}
+
+	/**
+	 * Answers a guess with the feedback given by the most of the secrets
+	 * still held, and keeps just those.
+	 *
+	 * @param guess packed guess
+	 * @return the feedback key
+	 */
+	public int respond(long guess) {
+		secrets.partition(guess, histogram);
+		int win = space.winningKey();
+		int best = -1;
+		for(int key=0; key<space.numFeedbackKeys(); key++) {
+			if(histogram[key] == 0) {
+				continue;
+			}
+			if(best < 0 || histogram[key] > histogram[best] ||
+					(best == win && histogram[key] == histogram[best])) {
+				best = key;
+			}
+		}
+		secrets.filter(guess, best);
+		return best;
+	}
+
+	/**
+	 * Returns the number of secrets still consistent with every answer.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return secrets.size();
+	}
+
+	/**
+	 * Returns true once only one secret is left.
+	 *
+	 * @return
+	 */
+	public boolean isCommitted() {
+		return secrets.size() == 1;
+	}
+
+	/**
+	 * Returns a secret consistent with every answer so far--the one secret
+	 * once the adversary is committed.
+	 *
+	 * @return packed code
+	 */
+	public long secret() {
+		return secrets.get(0);
+	}
+}
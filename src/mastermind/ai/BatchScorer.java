@@ -0,0 +1,161 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+/**
+ * Scores one guess against a block of up to BLOCK candidates at once.  The
+ * block is first laid out as a struct of arrays--one int[] per position
+ * holding that position's element for every candidate--and then each count
+ * is a simple loop down the arrays with no branches:
+ * 
+ * black[i] += (pegs[p][i] == guess[p])                   for each position p
+ * total[i] += min(count of e in candidate i, count of e in guess)
+ *                                           for each element e in the guess
+ * 
+ * and the feedback key is black * (guessLength + 1) + (total - black).  The
+ * JIT compiles loops like these to SIMD instructions, so a whole vector of
+ * candidates is counted per instruction.  (The incubating Vector API would
+ * make that explicit, but needs module flags this project doesn't use.)
+ * 
+ * A BatchScorer holds scratch arrays, so use one per thread.
+ * 
+ * @author drogers
+ */
+public class BatchScorer {
+	
+	/** The most candidates scored in one call. */
+	public static final int BLOCK = 1024;
+	
+	private CodeSpace space;
+	private int guessLength;
+	private int bitsPerPeg;
+	private long pegMask;
+	
+	// the block of candidates: packed, and pegs[p][i] is the element at
+	// position p of candidate i
+	private long[] codes = new long[BLOCK];
+	private int[][] pegs;
+	
+	// counts for the block
+	private int[] black = new int[BLOCK];
+	private int[] total = new int[BLOCK];
+	private int[] count = new int[BLOCK];
+	
+	// scratch for the guess
+	private int[] guessPegs;
+	private int[] guessCounts;
+	
+	public BatchScorer(CodeSpace space) {
+		this.space = space;
+		guessLength = space.getGuessLength();
+		bitsPerPeg = space.getBitsPerPeg();
+		pegMask = (1L << bitsPerPeg) - 1;
+		pegs = new int[guessLength][BLOCK];
+		guessPegs = new int[guessLength];
+		guessCounts = new int[space.getNumElements()];
+	}
+	
+	/**
+	 * Returns the packed code of candidate i of the last block scored.
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public long code(int i) {
+		return codes[i];
+	}
+	
+	/**
+	 * Scores guess against candidates from to from+len-1 of set, and puts
+	 * the feedback keys in keys[0] to keys[len-1].
+	 * 
+	 * @param guess packed guess
+	 * @param set
+	 * @param from
+	 * @param len at most BLOCK
+	 * @param keys
+	 */
+	public void score(long guess, CandidateSet set, int from, int len, int[] keys) {
+		for(int i=0; i<len; i++) {
+			codes[i] = set.get(from + i);
+		}
+		scoreBlock(guess, len, keys);
+	}
+	
+	/**
+	 * Scores guess against codes[from] to codes[from+len-1], and puts
+	 * the feedback keys in keys[0] to keys[len-1].
+	 * 
+	 * @param guess packed guess
+	 * @param codes packed codes
+	 * @param from
+	 * @param len at most BLOCK
+	 * @param keys
+	 */
+	public void score(long guess, long[] codes, int from, int len, int[] keys) {
+		System.arraycopy(codes, from, this.codes, 0, len);
+		scoreBlock(guess, len, keys);
+	}
+	
+	// scores guess against this.codes[0] to [len-1]
+	private void scoreBlock(long guess, int len, int[] keys) {
+		transpose(len);
+		space.unpack(guess, guessPegs);
+		for(int i=0; i<len; i++) {
+			black[i] = 0;
+			total[i] = 0;
+		}
+		for(int p=0; p<guessLength; p++) {
+			int[] col = pegs[p];
+			int g = guessPegs[p];
+			for(int i=0; i<len; i++) {
+				// 1 if equal--(x ^ g) - 1 is negative only for x == g
+				black[i] += ((col[i] ^ g) - 1) >>> 31;
+			}
+		}
+		for(int p=0; p<guessLength; p++) {
+			guessCounts[guessPegs[p]]++;
+		}
+		for(int q=0; q<guessLength; q++) {
+			int e = guessPegs[q];
+			int gc = guessCounts[e];
+			if(gc == 0) {
+				continue; // element already counted
+			}
+			guessCounts[e] = 0;
+			for(int i=0; i<len; i++) {
+				count[i] = 0;
+			}
+			for(int p=0; p<guessLength; p++) {
+				int[] col = pegs[p];
+				for(int i=0; i<len; i++) {
+					count[i] += ((col[i] ^ e) - 1) >>> 31;
+				}
+			}
+			for(int i=0; i<len; i++) {
+				total[i] += Math.min(count[i], gc);
+			}
+		}
+		int n = guessLength;
+		for(int i=0; i<len; i++) {
+			keys[i] = black[i] * n + total[i];
+		}
+	}
+	
+	// lays the block out one array per position
+	private void transpose(int len) {
+		for(int p=0; p<guessLength; p++) {
+			int[] col = pegs[p];
+			int shift = p * bitsPerPeg;
+			for(int i=0; i<len; i++) {
+				col[i] = (int)((codes[i] >>> shift) & pegMask);
+			}
+		}
+	}
+}
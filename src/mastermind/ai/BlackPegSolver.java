@@ -0,0 +1,646 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.util.*;
+
+/**
+ * Supplies guesses for games where only the blacks are given--see
+ * Engine.setBlackOnly().
+ *
+ * With no whites, a result only says how many positions the guess got
+ * right: the sum over positions of whether the secret's element there is
+ * the guess's.  So each position is on its own but for these sums, and
+ * what is kept is each position's domain--the elements it can still hold,
+ * as a bitmask--and the results.  propagate() narrows the domains until
+ * nothing more follows, treating a position with one element left as
+ * assigned.  For each result:
+ * - if the positions assigned the guess's element there already make up
+ *   its blacks, no other position can hold the guess's element there;
+ * - if the positions that still can only just make them up, they must.
+ * With no duplicates, an assigned element is struck from the other
+ * positions too.
+ *
+ * Finding a code consistent with such sums is hard in general, so with
+ * duplicates and codes longer than MAX_SEARCHED the guesses aren't
+ * consistent ones.  Instead:
+ * - a guess of all one element counts that element, for each element but
+ *   the last, whose count is what is left;
+ * - an element the secret lacks is a background, known to score nothing
+ *   anywhere.  If every element is there, the positions of the rarest
+ *   are found one at a time, each tried against a background of another
+ *   element, whose count is known--the blacks then go up by one, down by
+ *   one, or stay, for the rarest, the other, or neither there.  Once all
+ *   of the rarest are found it is the background, scoring its count;
+ * - each other element's positions are found by halving: the positions
+ *   that can still hold it, and how many do, are split in two and the
+ *   element tried in one half against the background everywhere else,
+ *   which gives how many are in each half.  A half with none or all of
+ *   them is settled, and the others are split again.
+ * Each position is settled once it is found, so the elements are placed
+ * in about k + n log(k) guesses, with no search--codes of 20 pegs and more
+ * play as easily as 10 peg ones.  Nothing is packed into a CodeSpace, so
+ * the guess length has no limit.
+ *
+ * That takes more guesses than playing consistent codes, which short codes
+ * can afford to search for.  With no duplicates a guess can't have a
+ * background, so consistent codes are searched for whatever the length.
+ * The search is as in PropagationSolver: the open position with the
+ * smallest domain, and of those the one that can still match the most
+ * guesses, is tried with each of its elements in a random order, with a
+ * limit on the nodes of each try that doubles at each restart.  The
+ * domains that follow from the results alone are kept between guesses,
+ * so each search starts from them.
+ *
+ * Domains are longs, so there can be no more than 64 elements.
+ *
+ * @author drogers
+ */
+public class BlackPegSolver implements Solver {
+
+	// nodes for the first try at a guess--each try after has twice as many
+	private static final long FIRST_LIMIT = 256;
+
+	/**
+	 * The longest codes with duplicates that are played by search--longer
+	 * ones are placed.
+	 */
+	public static final int MAX_SEARCHED = 10;
+
+	private int n;
+	private int k;
+	private boolean noDuplicates;
+	private long seed;
+
+	// true if the elements are placed rather than searched for
+	private boolean placing;
+
+	// the guesses and their blacks
+	private int[][] guesses = new int[8][];
+	private int[] blacks = new int[8];
+	private int size = 0;
+
+	// the domains that follow from the results alone
+	private long[] root;
+
+	// domains at each depth of the search
+	private long[][] levels;
+
+	// elements in the order they are tried, and the position the search
+	// for the smallest domain starts from, this try
+	private int[] order;
+	private int first;
+
+	// search nodes visited for the last guess, the most for this try, and
+	// whether this try ran out of them
+	private long nodes = 0;
+	private long limit;
+	private boolean cutOff;
+
+	// ~~~~~~~ With duplicates ~~~~~~~~~~
+
+	// what the last guess was for
+	private static final int COUNT = 0;
+	private static final int BOOTSTRAP = 1;
+	private static final int SPLIT = 2;
+	private static final int SOLVE = 3;
+	private int pending;
+
+	// how many of each element the secret has, -1 until known
+	private int[] counts;
+
+	// the background element and the blacks it scores, -1 until there is one
+	private int background = -1;
+	private int backgroundBlacks;
+
+	// while there is no background: the rarest element, whose positions are
+	// being found, the element it is tried against, and the position tried
+	private int rarest = -1;
+	private int other;
+	private int tried;
+
+	// positions that can hold an element, and how many do, still to split--
+	// the one on top is being split
+	private ArrayDeque<Split> splits = new ArrayDeque<Split>();
+
+	private static class Split {
+		final int element;
+		final int[] positions;
+		final int hits;
+
+		Split(int element, int[] positions, int hits) {
+			this.element = element;
+			this.positions = positions;
+			this.hits = hits;
+		}
+	}
+
+	/**
+	 * Creates a solver with a random seed.
+	 *
+	 * @param guessLength
+	 * @param numElements
+	 * @param noDuplicates true if no element can be repeated
+	 */
+	public BlackPegSolver(int guessLength, int numElements, boolean noDuplicates) {
+		this(guessLength, numElements, noDuplicates, new Random().nextLong());
+	}
+
+	/**
+	 * Creates a solver whose searches try elements in an order drawn from
+	 * seed and the results so far, so it plays the same game every time.
+	 *
+	 * @param guessLength
+	 * @param numElements
+	 * @param noDuplicates true if no element can be repeated
+	 * @param seed
+	 * @throws IllegalArgumentException if there are more than 64 elements,
+	 * or too few for no duplicates
+	 */
+	public BlackPegSolver(int guessLength, int numElements, boolean noDuplicates, long seed) {
+		if(numElements > 64) {
+			throw new IllegalArgumentException("Too many elements to propagate: " + numElements);
+		}
+		if(noDuplicates && numElements < guessLength) {
+			throw new IllegalArgumentException("Too few elements for no duplicates: " + numElements);
+		}
+		this.n = guessLength;
+		this.k = numElements;
+		this.noDuplicates = noDuplicates;
+		this.seed = seed;
+		placing = !noDuplicates && n > MAX_SEARCHED;
+		root = new long[n];
+		Arrays.fill(root, (k == 64 ? 0 : 1L << k) - 1);
+		levels = new long[n + 1][n];
+		order = new int[k];
+		counts = new int[k];
+		Arrays.fill(counts, -1);
+	}
+
+	private BlackPegSolver(BlackPegSolver other) {
+		this(other.n, other.k, other.noDuplicates, other.seed);
+		this.size = other.size;
+		this.guesses = Arrays.copyOf(other.guesses, other.guesses.length);
+		this.blacks = Arrays.copyOf(other.blacks, other.blacks.length);
+		this.root = other.root.clone();
+		this.pending = other.pending;
+		this.counts = other.counts.clone();
+		this.background = other.background;
+		this.backgroundBlacks = other.backgroundBlacks;
+		this.rarest = other.rarest;
+		this.other = other.other;
+		this.tried = other.tried;
+		// splits are only replaced, never changed, so they can be shared
+		this.splits = new ArrayDeque<Split>(other.splits);
+	}
+
+	/**
+	 * Returns the number of search nodes visited for the last guess.
+	 *
+	 * @return
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Returns the number of elements position p can still hold, given the
+	 * results alone.
+	 *
+	 * @param p
+	 * @return
+	 */
+	public int getDomainSize(int p) {
+		return Long.bitCount(root[p]);
+	}
+
+	@Override
+	public int[] nextGuess() {
+		nodes = 0;
+		if(placing) {
+			return placeGuess();
+		}
+		if(size == 0) {
+			int[] guess = new int[n];
+			for(int p=0; p<n; p++) {
+				guess[p] = noDuplicates ? p : 0;
+			}
+			return guess;
+		}
+		// the orders depend only on the seed and the results so far, so a
+		// copy guesses as the original would
+		Random rand = new Random(seed * 0x9E3779B97F4A7C15L + size);
+		long[] dom = levels[0];
+		for(long limit=FIRST_LIMIT; ; limit*=2) {
+			shuffle(rand);
+			System.arraycopy(root, 0, dom, 0, n);
+			cutOff = false;
+			this.limit = nodes + limit;
+			if(search(0)) {
+				break;
+			}
+			if(!cutOff) {
+				throw new IllegalStateException("No code is consistent with the results");
+			}
+		}
+		int[] guess = new int[n];
+		for(int p=0; p<n; p++) {
+			guess[p] = Long.numberOfTrailingZeros(dom[p]);
+		}
+		return guess;
+	}
+
+	// the next guess with duplicates: counting, then finding the rarest
+	// element for a background if need be, then splitting
+	private int[] placeGuess() {
+		settle();
+		// counting
+		int known = 0;
+		int unknown = -1;
+		int numUnknown = 0;
+		for(int e=0; e<k; e++) {
+			if(counts[e] < 0) {
+				if(unknown < 0) {
+					unknown = e;
+				}
+				numUnknown++;
+			} else {
+				known += counts[e];
+			}
+		}
+		if(numUnknown > 0 && (numUnknown == 1 || known == n)) {
+			// the last count is what is left, and once they are all found
+			// the rest are none
+			for(int e=0; e<k; e++) {
+				if(counts[e] < 0) {
+					setCount(e, n - known);
+				}
+			}
+			settle();
+		} else if(numUnknown > 0) {
+			pending = COUNT;
+			return fill(unknown);
+		}
+		// a background
+		if(background < 0) {
+			for(int e=0; e<k; e++) {
+				if(counts[e] == 0) {
+					background = e;
+					backgroundBlacks = 0;
+					break;
+				}
+			}
+		}
+		if(background < 0) {
+			if(rarest < 0) {
+				rarest = 0;
+				for(int e=1; e<k; e++) {
+					if(counts[e] < counts[rarest]) {
+						rarest = e;
+					}
+				}
+				other = rarest == 0 ? 1 : 0;
+				for(int e=0; e<k; e++) {
+					if(e != rarest && counts[e] > counts[other]) {
+						other = e;
+					}
+				}
+			}
+			int[] open = open(rarest);
+			int left = counts[rarest] - found(rarest);
+			if(left > 0 && left < open.length) {
+				tried = open[0];
+				pending = BOOTSTRAP;
+				int[] guess = fill(other);
+				guess[tried] = rarest;
+				return guess;
+			}
+			// the rest of the open positions are all or none of the rarest
+			place(rarest, open, left);
+			background = rarest;
+			backgroundBlacks = counts[rarest];
+			settle();
+		}
+		// splitting
+		while(true) {
+			if(splits.isEmpty()) {
+				Split next = nextSplit();
+				if(next == null) {
+					break;
+				}
+				splits.push(next);
+			}
+			Split top = splits.pop();
+			// drop the positions settled since the split was made
+			int[] open = open(top.element);
+			int hits = top.hits;
+			int[] positions = new int[top.positions.length];
+			int numOpen = 0;
+			for(int p : top.positions) {
+				if(root[p] == 1L << top.element) {
+					hits--;
+				} else if(Arrays.binarySearch(open, p) >= 0) {
+					positions[numOpen++] = p;
+				}
+			}
+			positions = Arrays.copyOf(positions, numOpen);
+			if(hits <= 0 || hits >= numOpen) {
+				place(top.element, positions, hits);
+				settle();
+				continue;
+			}
+			splits.push(new Split(top.element, positions, hits));
+			pending = SPLIT;
+			int[] guess = fill(background);
+			for(int i=0; i<numOpen/2; i++) {
+				guess[positions[i]] = top.element;
+			}
+			return guess;
+		}
+		// everything is settled
+		pending = SOLVE;
+		int[] guess = new int[n];
+		for(int p=0; p<n; p++) {
+			guess[p] = Long.numberOfTrailingZeros(root[p]);
+		}
+		return guess;
+	}
+
+	// the split for the next element with positions still to find, or null
+	// if there is none
+	private Split nextSplit() {
+		for(int e=0; e<k; e++) {
+			int left = counts[e] - found(e);
+			if(left > 0) {
+				return new Split(e, open(e), left);
+			}
+		}
+		return null;
+	}
+
+	// a guess of all e
+	private int[] fill(int e) {
+		int[] guess = new int[n];
+		Arrays.fill(guess, e);
+		return guess;
+	}
+
+	// the unsettled positions that can still hold e, in order
+	private int[] open(int e) {
+		int[] open = new int[n];
+		int numOpen = 0;
+		for(int p=0; p<n; p++) {
+			if((root[p] & (1L << e)) != 0 && Long.bitCount(root[p]) > 1) {
+				open[numOpen++] = p;
+			}
+		}
+		return Arrays.copyOf(open, numOpen);
+	}
+
+	// the positions settled as e
+	private int found(int e) {
+		int found = 0;
+		for(int p=0; p<n; p++) {
+			if(root[p] == 1L << e) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	// settles positions as e if all of them hold it, or strikes e from them
+	// if none do
+	private void place(int e, int[] positions, int hits) {
+		for(int p : positions) {
+			if(hits > 0) {
+				root[p] = 1L << e;
+			} else {
+				root[p] &= ~(1L << e);
+			}
+		}
+	}
+
+	// records that the secret has count of e, striking e everywhere if none
+	private void setCount(int e, int count) {
+		counts[e] = count;
+		if(count == 0) {
+			for(int p=0; p<n; p++) {
+				root[p] &= ~(1L << e);
+			}
+		}
+	}
+
+	// strikes each element whose positions are all found from the rest,
+	// then propagates the results
+	private void settle() {
+		for(int e=0; e<k; e++) {
+			if(counts[e] >= 0 && found(e) == counts[e]) {
+				for(int p : open(e)) {
+					root[p] &= ~(1L << e);
+				}
+			}
+		}
+		if(!propagate(root)) {
+			throw new IllegalStateException("No code is consistent with the results");
+		}
+	}
+
+	// draws a new order to try elements in, and a new position to start
+	// looking for the smallest domain from
+	private void shuffle(Random rand) {
+		for(int e=0; e<k; e++) {
+			order[e] = e;
+		}
+		for(int i=k-1; i>0; i--) {
+			int j = rand.nextInt(i + 1);
+			int t = order[i];
+			order[i] = order[j];
+			order[j] = t;
+		}
+		first = rand.nextInt(n);
+	}
+
+	// finds a consistent code under the domains at depth, leaving it in
+	// levels[depth]--returns false if there is none, or if the search has
+	// gone past limit nodes, when cutOff is set
+	private boolean search(int depth) {
+		if(++nodes > limit) {
+			cutOff = true;
+			return false;
+		}
+		long[] dom = levels[depth];
+		if(!propagate(dom)) {
+			return false;
+		}
+		// the open position with the smallest domain, and of those the
+		// one that can still match the most guesses
+		int best = -1;
+		int bestSize = 0;
+		int bestMatches = 0;
+		for(int i=0; i<n; i++) {
+			int p = (first + i) % n;
+			int c = Long.bitCount(dom[p]);
+			if(c < 2 || (best >= 0 && c > bestSize)) {
+				continue;
+			}
+			int matches = 0;
+			for(int j=0; j<size; j++) {
+				if((dom[p] & (1L << guesses[j][p])) != 0) {
+					matches++;
+				}
+			}
+			if(best < 0 || c < bestSize || matches > bestMatches) {
+				best = p;
+				bestSize = c;
+				bestMatches = matches;
+			}
+		}
+		if(best < 0) {
+			return true;
+		}
+		long[] child = levels[depth + 1];
+		for(int e : order) {
+			if((dom[best] & (1L << e)) == 0) {
+				continue;
+			}
+			System.arraycopy(dom, 0, child, 0, n);
+			child[best] = 1L << e;
+			if(search(depth + 1)) {
+				System.arraycopy(child, 0, dom, 0, n);
+				return true;
+			}
+			if(cutOff) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	// narrows dom until nothing more follows from the results--returns
+	// false if some domain empties or some result can't be met
+	private boolean propagate(long[] dom) {
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			long assigned = 0;
+			for(int p=0; p<n; p++) {
+				if(dom[p] == 0) {
+					return false;
+				}
+				if(noDuplicates && Long.bitCount(dom[p]) == 1) {
+					if((assigned & dom[p]) != 0) {
+						return false;
+					}
+					assigned |= dom[p];
+				}
+			}
+			if(assigned != 0) {
+				for(int p=0; p<n; p++) {
+					if(Long.bitCount(dom[p]) > 1 && (dom[p] & assigned) != 0) {
+						dom[p] &= ~assigned;
+						changed = true;
+						if(dom[p] == 0) {
+							return false;
+						}
+					}
+				}
+			}
+			for(int j=0; j<size; j++) {
+				int[] g = guesses[j];
+				// the positions that must match, and that still can
+				int fixed = 0;
+				int possible = 0;
+				for(int p=0; p<n; p++) {
+					long bit = 1L << g[p];
+					if((dom[p] & bit) != 0) {
+						possible++;
+						if(dom[p] == bit) {
+							fixed++;
+						}
+					}
+				}
+				if(fixed > blacks[j] || possible < blacks[j]) {
+					return false;
+				}
+				if(possible == fixed) {
+					continue;
+				}
+				if(fixed == blacks[j]) {
+					for(int p=0; p<n; p++) {
+						long bit = 1L << g[p];
+						if((dom[p] & bit) != 0 && dom[p] != bit) {
+							dom[p] &= ~bit;
+							changed = true;
+						}
+					}
+				} else if(possible == blacks[j]) {
+					for(int p=0; p<n; p++) {
+						long bit = 1L << g[p];
+						if((dom[p] & bit) != 0 && dom[p] != bit) {
+							dom[p] = bit;
+							changed = true;
+						}
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void update(GuessInfo result) {
+		if(size == guesses.length) {
+			guesses = Arrays.copyOf(guesses, 2 * size);
+			blacks = Arrays.copyOf(blacks, 2 * size);
+		}
+		guesses[size] = result.getGuess().clone();
+		blacks[size] = result.getPositionMatches();
+		size++;
+		if(placing) {
+			take(result.getGuess(), result.getPositionMatches());
+		}
+		if(!propagate(root)) {
+			throw new IllegalStateException("No code is consistent with the results");
+		}
+	}
+
+	// takes in the blacks for a guess made by placeGuess()
+	private void take(int[] guess, int blacks) {
+		switch(pending) {
+		case COUNT:
+			setCount(guess[0], blacks);
+			break;
+		case BOOTSTRAP:
+			// up one for the rarest at the position tried, down one for the
+			// other, the same for neither
+			int change = blacks - counts[other];
+			if(change > 0) {
+				root[tried] = 1L << rarest;
+			} else if(change < 0) {
+				root[tried] = 1L << other;
+			} else {
+				root[tried] &= ~((1L << rarest) | (1L << other));
+			}
+			break;
+		case SPLIT:
+			Split top = splits.pop();
+			int half = top.positions.length / 2;
+			int hits = blacks - backgroundBlacks;
+			splits.push(new Split(top.element,
+					Arrays.copyOfRange(top.positions, half, top.positions.length), top.hits - hits));
+			splits.push(new Split(top.element, Arrays.copyOf(top.positions, half), hits));
+			break;
+		}
+	}
+
+	@Override
+	public Solver copy() {
+		return new BlackPegSolver(this);
+	}
+}
@@ -43,7 +43,7 @@ import java.util.*;
  *  
  * @author drogers
  */
-public class Brain {
+public class Brain implements Solver {
 
 	private MasterMind mm;
 	private Engine engine;
@@ -74,12 +74,54 @@ public class Brain {
 	
 	public Brain() {}
 	
+	/**
+	 * Creates a Brain that plays with elements 0 to numElements-1.
+	 * 
+	 * @param guessLength
+	 * @param numElements
+	 */
+	public Brain(int guessLength, int numElements) {
+		this.guessLength = guessLength;
+		elementIndices = new int[numElements];
+		for(int i=0; i<elementIndices.length; i++) {
+			elementIndices[i] = i;
+		}
+		beingConsidered = elementIndices[0];
+		beingFixed = null;
+	}
+	
 	public Brain(MasterMind mm) {
 		this.mm = mm;
 		this.engine = mm.getEngine();
 		init();
 	}
 	
+	/**
+	 * Creates a copy of another Brain with its own inferences list, so
+	 * the copy can be updated without disturbing the original.  Used by
+	 * Player to think ahead about possible results.
+	 * 
+	 * @param other
+	 */
+	Brain(Brain other) {
+		this.mm = other.mm;
+		this.engine = other.engine;
+		this.guessLength = other.guessLength;
+		this.elementIndices = other.elementIndices;
+		this.beingConsidered = other.beingConsidered;
+		for(Inference inf : other.inferences) {
+			Inference copy = new Inference(inf);
+			inferences.add(copy);
+			if(inf == other.beingFixed) {
+				this.beingFixed = copy;
+			}
+		}
+	}
+	
+	public Solver copy() {
+		return new Brain(this);
+	}
+	
 	private void init() {
 		guessLength = this.engine.guessLength;
 		elementIndices = engine.getUserControl().getSelectedElementIndexes();
@@ -354,6 +396,16 @@ public class Brain {
 	 * @param result
 	 */
 	public void update(GuessInfo result) {
+		if(!apply(result)) {
+			System.err.println("******* Brain.update():  fell through switch");
+		}
+	}
+	
+	// does the work of update()
+	// returns false if the result fell through the switch, ie it is not a
+	// result this brain expects for its guess--speculative updates use this
+	// to quietly throw away impossible results
+	boolean apply(GuessInfo result) {
 		
 		int black = result.getPositionMatches();
 		int white = result.getNonPositionalMatches();		
@@ -380,9 +432,10 @@ public class Brain {
 				firstTime = false;
 			} else {
 				incrBeingConsidered();
-				return;
+				return true;
 			}
 		}
+		boolean expected = true;
 		
 		switch(white) {
 		case 0: 	// beingFixed is in the correct position
@@ -406,7 +459,7 @@ public class Brain {
 			}
 			break;
 		default:
-			System.err.println("******* Brain.update():  fell through switch");
+			expected = false;
 			
 		}
 		try {
@@ -415,6 +468,7 @@ public class Brain {
 			e.printStackTrace();
 		}
 		incrBeingConsidered();
+		return expected;
 	}
 	
 	/**
@@ -565,6 +619,38 @@ public class Brain {
 		System.out.println("Maximum number of guesses: " + maxGuesses);
         
 	}
+	/**
+	 * Evaluates Brain against every secret of the same game as
+	 * testBrainNonInteractive() at once with a StrategyEvaluator, and
+	 * prints the distribution of guesses and the top of the strategy.
+	 */
+	public static void testBrainStrategy() {
+		int guessLength = 5;
+		int numOfElements = 10;
+		CodeSpace space = new CodeSpace(guessLength, numOfElements);
+		
+		System.out.println("TestBrainStrategy:");
+		System.out.println("Guess length: " + guessLength);
+		System.out.println("Number of elements (digits in this case): " + numOfElements);
+		System.out.println("Secrets: " + space.size());
+		System.out.println();
+		
+		long start = System.currentTimeMillis();
+		StrategyEvaluator.Node root = new StrategyEvaluator(space).evaluate(
+				new Brain(guessLength, numOfElements));
+		long ms = System.currentTimeMillis() - start;
+		
+		int[] dist = root.getDistribution();
+		for(int i=0; i<dist.length; i++) {
+			System.out.println((i+1) + " guesses: " + dist[i]);
+		}
+		System.out.println("Average guesses: " + root.getAverage());
+		System.out.println("Maximum number of guesses: " + root.getMaxGuesses());
+		System.out.println("Game states: " + root.getNumNodes() + " in " + ms + " ms");
+		System.out.println();
+		root.print(System.out, space, 2);
+	}
+
 	/**
 	 * Main now allows choice of command line tests.
 	 * 
@@ -577,12 +663,16 @@ public class Brain {
 		System.out.println("1  Run non-interactive test");
 		System.out.println("2  Play interactively with the ai guessing your code " +
 				"(shows the ai's inferences)");
-		System.out.println("Enter 1 or 2:");
+		System.out.println("3  Evaluate the whole strategy against every secret at once");
+		System.out.println("Enter 1, 2 or 3:");
 		int choice = sc.nextInt();
 		
 		if(choice == 1) {
 			testBrainNonInteractive();
 			System.exit(0);
+		} else if(choice == 3) {
+			testBrainStrategy();
+			System.exit(0);
 		} else {		
 			testBrain();
 			System.exit(0);
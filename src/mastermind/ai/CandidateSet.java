@@ -0,0 +1,672 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * The codes of a CodeSpace that are still possible secrets, packed one per
+ * long.  Starts out holding the whole space and shrinks as results of 
+ * guesses are filtered in.  The storage is sized from the configuration, so
+ * this only works for spaces of up to MAX_SIZE codes.
+ * 
+ * Sets bigger than an off-heap threshold (in bytes) keep their codes off 
+ * the heap in direct buffers--see CodeStore.  Either way the set works the
+ * same, but off the heap nothing is held per code on the heap: the
+ * GROUPED and POSITIONAL indexes are not made, and those kernels score
+ * like SWAR.  Filtering in place gives back the chunks no longer needed,
+ * and release() gives back the rest.  The default threshold is the
+ * mastermind.offHeapThreshold system property, or never if that is not
+ * set.
+ * 
+ * Filtering scores the guess against every candidate with the set's 
+ * ScoringKernel--one at a time, plainly or with the guess's
+ * CodeSpace.Signature, or in blocks with a BatchScorer, or a multiset
+ * group at a time with a MultisetIndex, or 64 at a time by their blacks 
+ * with a PositionIndex.  Partitioning
+ * scores a guess the same way but only counts the candidates giving each
+ * feedback--see Partition.
+ * 
+ * @author drogers
+ */
+public class CandidateSet {
+	
+	/** The most codes a CandidateSet can hold. */
+	public static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+	
+	/** Bytes over which sets are kept off the heap by default. */
+	public static final long DEFAULT_OFF_HEAP_THRESHOLD =
+		Long.getLong("mastermind.offHeapThreshold", Long.MAX_VALUE);
+	
+	/**
+	 * Bytes of off-heap storage a solver's sets may take by default--the
+	 * mastermind.offHeapBudget system property, or half the most heap,
+	 * as direct memory is limited to the most heap unless set otherwise.
+	 */
+	public static final long DEFAULT_OFF_HEAP_BUDGET =
+		Long.getLong("mastermind.offHeapBudget", Runtime.getRuntime().maxMemory() / 2);
+	
+	// the most ranges consistent() walks the space in
+	private static final int MAX_RANGES = 4096;
+	
+	// the fewest codes in a range consistent() walks
+	private static final long MIN_RANGE = 1 << 16;
+	
+	/** The kernel new sets score with. */
+	public static final ScoringKernel DEFAULT_KERNEL = ScoringKernel.SWAR;
+
+	private CodeSpace space;
+	
+	// the candidates are codes.get(0) to codes.get(size-1), in mixed radix order
+	private CodeStore codes;
+	private int size;
+	
+	private ScoringKernel kernel = DEFAULT_KERNEL;
+	
+	// the candidates grouped by multiset, for the GROUPED kernel--made
+	// when first needed
+	private MultisetIndex index;
+	
+	// the candidates' position bitsets, for the POSITIONAL kernel--made
+	// when first needed, and narrowed to the codes kept by each filter
+	private PositionIndex positions;
+	
+	private CandidateSet(CodeSpace space, CodeStore codes, int size) {
+		this.space = space;
+		this.codes = codes;
+		this.size = size;
+	}
+	
+	// true if n codes should be kept off the heap
+	private static boolean offHeap(long n, long offHeapThreshold) {
+		return 8 * n > offHeapThreshold;
+	}
+	
+	/**
+	 * Returns a CandidateSet holding every code in space.
+	 * 
+	 * @param space
+	 * @return
+	 * @throws IllegalArgumentException if space is bigger than MAX_SIZE
+	 */
+	public static CandidateSet all(CodeSpace space) {
+		return all(space, DEFAULT_OFF_HEAP_THRESHOLD);
+	}
+	
+	/**
+	 * Returns a CandidateSet holding every code in space, off the heap if
+	 * it takes more than offHeapThreshold bytes.
+	 * 
+	 * @param space
+	 * @param offHeapThreshold
+	 * @return
+	 * @throws IllegalArgumentException if space is bigger than MAX_SIZE
+	 */
+	public static CandidateSet all(CodeSpace space, long offHeapThreshold) {
+		if(space.size() > MAX_SIZE) {
+			throw new IllegalArgumentException("Code space " + space + 
+					" has too many codes for a CandidateSet: " + space.size());
+		}
+		int n = (int)space.size();
+		CodeStore codes = CodeStore.allocate(n, offHeap(n, offHeapThreshold));
+		long code = space.codeAt(0);
+		for(int i=0; i<n; i++) {
+			codes.set(i, code);
+			if(i < n-1) {
+				code = space.next(code);
+			}
+		}
+		return new CandidateSet(space, codes, n);
+	}
+	
+	/**
+	 * Returns a CandidateSet holding the given codes, in that order, on 
+	 * the heap.  The array is used as it is, not copied.
+	 * 
+	 * @param space
+	 * @param codes packed codes of space
+	 * @return
+	 */
+	public static CandidateSet of(CodeSpace space, long[] codes) {
+		return new CandidateSet(space, new CodeStore.Heap(codes), codes.length);
+	}
+	
+	/**
+	 * Returns a CandidateSet holding the codes in space consistent with
+	 * history, or null if there are more than maxSize of them.  The space
+	 * is streamed in parallel rather than materialized first.
+	 * 
+	 * @param space
+	 * @param history
+	 * @param maxSize
+	 * @return
+	 */
+	public static CandidateSet consistent(CodeSpace space, GuessHistory history, int maxSize) {
+		return consistent(space, history, maxSize, DEFAULT_OFF_HEAP_THRESHOLD);
+	}
+	
+	/**
+	 * Returns a CandidateSet holding the codes in space consistent with
+	 * history, or null if there are more than maxSize of them, off the heap
+	 * if it takes more than offHeapThreshold bytes.
+	 * 
+	 * The space is walked twice, in ranges in parallel: once to count the
+	 * consistent codes in each range, stopping as soon as there are too
+	 * many, and once to write them straight into storage of their size,
+	 * each range from where the ones before it end.  So nothing the size
+	 * of the set is made on the heap for a set kept off it.
+	 * 
+	 * @param space
+	 * @param history
+	 * @param maxSize
+	 * @param offHeapThreshold
+	 * @return
+	 */
+	public static CandidateSet consistent(final CodeSpace space, final GuessHistory history, 
+			final int maxSize, long offHeapThreshold) {
+		final long spaceSize = space.size();
+		final int numRanges = (int)Math.max(1, Math.min(MAX_RANGES, spaceSize / MIN_RANGE));
+		// the count in each range, then where each range's codes start
+		final long[] starts = new long[numRanges + 1];
+		final AtomicLong total = new AtomicLong();
+		IntStream.range(0, numRanges).parallel().forEach(new IntConsumer() {
+			public void accept(int r) {
+				CodeSpliterator range = new CodeSpliterator(space, history,
+						spaceSize * r / numRanges, spaceSize * (r + 1) / numRanges);
+				LongConsumer skip = new LongConsumer() {
+					public void accept(long code) {}
+				};
+				long count = 0;
+				while(total.get() <= maxSize && range.tryAdvance(skip)) {
+					count++;
+					if((count & 1023) == 0) {
+						total.addAndGet(1024);
+					}
+				}
+				total.addAndGet(count & 1023);
+				starts[r + 1] = count;
+			}
+		});
+		if(total.get() > maxSize) {
+			return null;
+		}
+		for(int r=0; r<numRanges; r++) {
+			starts[r + 1] += starts[r];
+		}
+		int size = (int)starts[numRanges];
+		final CodeStore codes = CodeStore.allocate(size, offHeap(size, offHeapThreshold));
+		IntStream.range(0, numRanges).parallel().forEach(new IntConsumer() {
+			public void accept(final int r) {
+				new CodeSpliterator(space, history, spaceSize * r / numRanges,
+						spaceSize * (r + 1) / numRanges).forEachRemaining(new LongConsumer() {
+					int next = (int)starts[r];
+					
+					public void accept(long code) {
+						codes.set(next++, code);
+					}
+				});
+			}
+		});
+		return new CandidateSet(space, codes, size);
+	}
+	
+	/**
+	 * Returns a copy with its own storage, of the same kind.
+	 * 
+	 * @return
+	 */
+	public CandidateSet copy() {
+		CandidateSet c = new CandidateSet(space, codes.copyOf(size), size);
+		c.kernel = kernel;
+		if(index != null) {
+			c.index = index.copy(size);
+		}
+		c.positions = positions;
+		return c;
+	}
+	
+	/**
+	 * Returns this set if it is on the heap, otherwise a copy on the heap.
+	 * 
+	 * @return
+	 */
+	public CandidateSet onHeap() {
+		if(!codes.isOffHeap()) {
+			return this;
+		}
+		long[] c = new long[size];
+		for(int i=0; i<size; i++) {
+			c[i] = codes.get(i);
+		}
+		CandidateSet set = new CandidateSet(space, new CodeStore.Heap(c), size);
+		set.kernel = kernel;
+		if(index != null) {
+			set.index = index.copy(size);
+		}
+		set.positions = positions;
+		return set;
+	}
+	
+	public CodeSpace getCodeSpace() {
+		return space;
+	}
+	
+	public ScoringKernel getKernel() {
+		return kernel;
+	}
+	
+	/**
+	 * Sets the kernel used to score guesses against the candidates.  For
+	 * GROUPED and POSITIONAL this indexes the candidates now, and copies 
+	 * keep the index.
+	 * 
+	 * @param kernel
+	 */
+	public void setKernel(ScoringKernel kernel) {
+		this.kernel = kernel;
+		if(kernel == ScoringKernel.GROUPED) {
+			index();
+		} else {
+			index = null;
+		}
+		if(kernel == ScoringKernel.POSITIONAL) {
+			positions();
+		} else {
+			positions = null;
+		}
+	}
+	
+	/**
+	 * Builds the index the kernel scores with, if it hasn't been built.
+	 * filtered() only reads the set, and doesn't build an index it
+	 * lacks, so call this before a set is shared between threads.
+	 */
+	public void buildIndex() {
+		if(kernel == ScoringKernel.GROUPED) {
+			index();
+		} else if(kernel == ScoringKernel.POSITIONAL) {
+			positions();
+		}
+	}
+	
+	// the index for the GROUPED kernel, or null if the space can't be
+	// indexed or the codes are off the heap, and the SWAR kernel is used 
+	// instead
+	private MultisetIndex index() {
+		if(index == null && MultisetIndex.canIndex(space) && !codes.isOffHeap()) {
+			index = MultisetIndex.build(space, codes, size);
+		}
+		return index;
+	}
+	
+	// the index for the POSITIONAL kernel, or null if the space can't be
+	// indexed or the codes are off the heap, and the SWAR kernel is used
+	// instead--copies share it, as filtering replaces it rather than
+	// changing it
+	private PositionIndex positions() {
+		if(positions == null && PositionIndex.canIndex(space) && !codes.isOffHeap()) {
+			positions = PositionIndex.build(space, codes, size);
+		}
+		return positions;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns true if the codes are kept off the heap.
+	 * 
+	 * @return
+	 */
+	public boolean isOffHeap() {
+		return codes.isOffHeap();
+	}
+	
+	/**
+	 * Returns the packed code at index i.
+	 * 
+	 * @param i
+	 * @return
+	 */
+	public long get(int i) {
+		return codes.get(i);
+	}
+	
+	/**
+	 * Returns a stream of the packed codes, in order.
+	 * 
+	 * @return
+	 */
+	public LongStream stream() {
+		return IntStream.range(0, size).mapToLong(new IntToLongFunction() {
+			public long applyAsLong(int i) {
+				return codes.get(i);
+			}
+		});
+	}
+	
+	/**
+	 * Keeps only the candidates that would have given feedback for guess,
+	 * and returns how many are left.
+	 * 
+	 * @param guess packed guess
+	 * @param feedback feedback key--see CodeSpace.feedbackKey()
+	 * @return
+	 */
+	public int filter(long guess, int feedback) {
+		filterInPlace(guess, feedback);
+		codes.trim(size);
+		return size;
+	}
+	
+	/**
+	 * Gives the set's off-heap storage back for reuse by later sets--the
+	 * set must not be used after.  Does nothing for a set on the heap.
+	 */
+	public void release() {
+		codes.release();
+		size = 0;
+	}
+	
+	private int filterInPlace(long guess, int feedback) {
+		if(kernel == ScoringKernel.BATCH) {
+			return filterBatch(guess, feedback);
+		}
+		if(kernel == ScoringKernel.GROUPED && index() != null) {
+			return filterGrouped(guess, feedback);
+		}
+		if(kernel == ScoringKernel.POSITIONAL && positions() != null) {
+			return filterPositional(guess, feedback);
+		}
+		if(kernel != ScoringKernel.SCALAR) {
+			return filterSwar(guess, feedback);
+		}
+		long guessMask = space.colorMask(guess);
+		int kept = 0;
+		for(int i=0; i<size; i++) {
+			long c = codes.get(i);
+			if(score(guess, guessMask, c) == feedback) {
+				codes.set(kept++, c);
+			}
+		}
+		size = kept;
+		return size;
+	}
+	
+	// filter() with the guess's signature
+	private int filterSwar(long guess, int feedback) {
+		CodeSpace.Signature sig = space.signature(guess);
+		int kept = 0;
+		for(int i=0; i<size; i++) {
+			long c = codes.get(i);
+			if(sig.score(c) == feedback) {
+				codes.set(kept++, c);
+			}
+		}
+		size = kept;
+		return size;
+	}
+	
+	// filter() with the candidates' position bitsets--codes are only
+	// looked at to keep them, and are indexed again as they are moved
+	private int filterPositional(long guess, int feedback) {
+		int black = space.blackOf(feedback);
+		long[] match = positions.matching(guess, black, black + space.whiteOf(feedback));
+		PositionIndex.Builder kept = new PositionIndex.Builder(space, count(match));
+		int n = 0;
+		for(int w=0; w<match.length; w++) {
+			for(long m = match[w]; m != 0; m &= m - 1) {
+				long c = codes.get((w << 6) + Long.numberOfTrailingZeros(m));
+				codes.set(n++, c);
+				kept.add(c);
+			}
+		}
+		size = n;
+		positions = kept.build();
+		return size;
+	}
+	
+	// the number of bits set
+	private static int count(long[] bits) {
+		int n = 0;
+		for(long m : bits) {
+			n += Long.bitCount(m);
+		}
+		return n;
+	}
+	
+	// filter() a multiset group at a time--codes are only looked at one
+	// by one in the groups whose blacks plus whites match
+	private int filterGrouped(long guess, int feedback) {
+		CodeSpace.Signature sig = space.signature(guess);
+		int black = space.blackOf(feedback);
+		int total = black + space.whiteOf(feedback);
+		byte[] totals = groupTotals();
+		int kept = 0;
+		for(int i=0; i<size; i++) {
+			int g = index.group(i);
+			int t = totals[g];
+			if(t < 0) {
+				t = totals[g] = total(sig, codes.get(i));
+			}
+			if(t == total) {
+				long c = codes.get(i);
+				if(space.blacks(guess, c) == black) {
+					codes.set(kept, c);
+					index.set(kept, g);
+					kept++;
+				}
+			}
+		}
+		size = kept;
+		return size;
+	}
+	
+	// the blacks plus whites of each group, -1 until worked out from the
+	// group's first code
+	private byte[] groupTotals() {
+		byte[] totals = new byte[index.numGroups()];
+		Arrays.fill(totals, (byte)-1);
+		return totals;
+	}
+	
+	private byte total(CodeSpace.Signature sig, long c) {
+		int key = sig.score(c);
+		return (byte)(space.blackOf(key) + space.whiteOf(key));
+	}
+	
+	// filter() a block at a time
+	private int filterBatch(long guess, int feedback) {
+		BatchScorer scorer = new BatchScorer(space);
+		int[] keys = new int[BatchScorer.BLOCK];
+		int kept = 0;
+		for(int from=0; from<size; from+=BatchScorer.BLOCK) {
+			int len = Math.min(BatchScorer.BLOCK, size - from);
+			scorer.score(guess, this, from, len, keys);
+			for(int j=0; j<len; j++) {
+				if(keys[j] == feedback) {
+					codes.set(kept++, scorer.code(j));
+				}
+			}
+		}
+		size = kept;
+		return size;
+	}
+	
+	/**
+	 * Scores guess against every candidate once, counting how many give
+	 * each feedback key into histogram, and returns the Partition those
+	 * counts make.  histogram is cleared first and must have room for 
+	 * CodeSpace.numFeedbackKeys() counts--callers ranking many guesses
+	 * can reuse one.
+	 * 
+	 * @param guess packed guess
+	 * @param histogram filled with the count for each feedback key
+	 * @return
+	 */
+	public Partition partition(long guess, int[] histogram) {
+		int numKeys = space.numFeedbackKeys();
+		Arrays.fill(histogram, 0, numKeys, 0);
+		if(kernel == ScoringKernel.BATCH) {
+			BatchScorer scorer = new BatchScorer(space);
+			int[] keys = new int[BatchScorer.BLOCK];
+			for(int from=0; from<size; from+=BatchScorer.BLOCK) {
+				int len = Math.min(BatchScorer.BLOCK, size - from);
+				scorer.score(guess, this, from, len, keys);
+				for(int j=0; j<len; j++) {
+					histogram[keys[j]]++;
+				}
+			}
+		} else if(kernel == ScoringKernel.GROUPED && index != null) {
+			CodeSpace.Signature sig = space.signature(guess);
+			byte[] totals = groupTotals();
+			for(int i=0; i<size; i++) {
+				int g = index.group(i);
+				long c = codes.get(i);
+				int t = totals[g];
+				if(t < 0) {
+					t = totals[g] = total(sig, c);
+				}
+				int black = space.blacks(guess, c);
+				histogram[space.feedbackKey(black, t - black)]++;
+			}
+		} else if(kernel != ScoringKernel.SCALAR) {
+			CodeSpace.Signature sig = space.signature(guess);
+			for(int i=0; i<size; i++) {
+				histogram[sig.score(codes.get(i))]++;
+			}
+		} else {
+			long guessMask = space.colorMask(guess);
+			for(int i=0; i<size; i++) {
+				histogram[score(guess, guessMask, codes.get(i))]++;
+			}
+		}
+		return new Partition(histogram, numKeys);
+	}
+	
+	/**
+	 * Returns a new set holding the candidates that would have given
+	 * feedback for guess, leaving this one alone.  The new set is kept
+	 * the same way as this one.  The candidates are scored once, marking
+	 * those kept in a bitset, and only they are copied, into storage of
+	 * just their size.  This only reads this set, so copies sharing it
+	 * can filter it from several threads at once.
+	 * 
+	 * @param guess packed guess
+	 * @param feedback feedback key--see CodeSpace.feedbackKey()
+	 * @return
+	 */
+	public CandidateSet filtered(long guess, int feedback) {
+		long[] kept = matching(guess, feedback);
+		int n = count(kept);
+		CodeStore store = CodeStore.allocate(n, codes.isOffHeap());
+		MultisetIndex groups = index == null ? null : index.empty(n);
+		PositionIndex.Builder positional = positions == null ? null
+			: new PositionIndex.Builder(space, n);
+		int j = 0;
+		for(int w=0; w<kept.length; w++) {
+			for(long m = kept[w]; m != 0; m &= m - 1) {
+				int i = (w << 6) + Long.numberOfTrailingZeros(m);
+				long code = codes.get(i);
+				store.set(j, code);
+				if(groups != null) {
+					groups.set(j, index.group(i));
+				}
+				if(positional != null) {
+					positional.add(code);
+				}
+				j++;
+			}
+		}
+		CandidateSet c = new CandidateSet(space, store, n);
+		c.kernel = kernel;
+		c.index = groups;
+		c.positions = positional == null ? null : positional.build();
+		return c;
+	}
+	
+	// a bitset of the candidates that would have given feedback for
+	// guess, scored with the set's kernel--only reads the set, so uses 
+	// an index only if it has been built, see buildIndex()
+	private long[] matching(long guess, int feedback) {
+		if(kernel == ScoringKernel.POSITIONAL && positions != null) {
+			int black = space.blackOf(feedback);
+			return positions.matching(guess, black, black + space.whiteOf(feedback));
+		}
+		long[] kept = new long[(size + 63) >>> 6];
+		if(kernel == ScoringKernel.BATCH) {
+			BatchScorer scorer = new BatchScorer(space);
+			int[] keys = new int[BatchScorer.BLOCK];
+			for(int from=0; from<size; from+=BatchScorer.BLOCK) {
+				int len = Math.min(BatchScorer.BLOCK, size - from);
+				scorer.score(guess, this, from, len, keys);
+				for(int j=0; j<len; j++) {
+					if(keys[j] == feedback) {
+						kept[(from + j) >>> 6] |= 1L << (from + j);
+					}
+				}
+			}
+		} else if(kernel == ScoringKernel.GROUPED && index() != null) {
+			CodeSpace.Signature sig = space.signature(guess);
+			int black = space.blackOf(feedback);
+			int total = black + space.whiteOf(feedback);
+			byte[] totals = groupTotals();
+			for(int i=0; i<size; i++) {
+				int g = index.group(i);
+				int t = totals[g];
+				if(t < 0) {
+					t = totals[g] = total(sig, codes.get(i));
+				}
+				if(t == total && space.blacks(guess, codes.get(i)) == black) {
+					kept[i >>> 6] |= 1L << i;
+				}
+			}
+		} else if(kernel != ScoringKernel.SCALAR) {
+			CodeSpace.Signature sig = space.signature(guess);
+			for(int i=0; i<size; i++) {
+				if(sig.score(codes.get(i)) == feedback) {
+					kept[i >>> 6] |= 1L << i;
+				}
+			}
+		} else {
+			long guessMask = space.colorMask(guess);
+			for(int i=0; i<size; i++) {
+				if(score(guess, guessMask, codes.get(i)) == feedback) {
+					kept[i >>> 6] |= 1L << i;
+				}
+			}
+		}
+		return kept;
+	}
+	
+	// scores guess against candidate c--with no duplicates, the guess's
+	// element mask is worked out once by the caller
+	private int score(long guess, long guessMask, long c) {
+		if(space.isNoDuplicates()) {
+			return space.scoreNoDuplicates(guessMask, space.colorMask(c),
+					space.blacks(guess, c));
+		}
+		return space.scoreScalar(guess, c);
+	}
+	
+	/**
+	 * Returns the approximate number of bytes this set's storage takes,
+	 * on or off the heap.
+	 * 
+	 * @return
+	 */
+	public long memoryUsed() {
+		return codes.memoryUsed() + (index == null ? 0 : index.memoryUsed())
+			+ (positions == null ? 0 : positions.memoryUsed());
+	}
+}
@@ -0,0 +1,139 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * Walks a range of a CodeSpace in mixed radix order, generating each packed
+ * code as it goes instead of holding them, and optionally skipping codes
+ * that are not consistent with a GuessHistory.  Splits in half by index, so
+ * parallel streams over huge spaces work without ever materializing them.
+ * 
+ * @author drogers
+ */
+public class CodeSpliterator implements Spliterator.OfLong {
+	
+	// ranges smaller than this are not split
+	private static final long minSplit = 4096;
+	
+	private CodeSpace space;
+	
+	// null to walk every code
+	private GuessHistory history;
+	
+	// index and packed code of the next code to look at, and the end
+	// of the range
+	private long index;
+	private long code;
+	private long end;
+	
+	/**
+	 * Walks the whole space.
+	 * 
+	 * @param space
+	 * @param history codes not consistent with this are skipped--null for
+	 * none
+	 */
+	public CodeSpliterator(CodeSpace space, GuessHistory history) {
+		this(space, history, 0, space.size());
+	}
+	
+	/**
+	 * Walks codes from index to end-1.
+	 * 
+	 * @param space
+	 * @param history codes not consistent with this are skipped--null for
+	 * none
+	 * @param from
+	 * @param end
+	 */
+	public CodeSpliterator(CodeSpace space, GuessHistory history, long from, long end) {
+		this.space = space;
+		this.history = history;
+		this.index = from;
+		this.end = end;
+		if(from < end) {
+			this.code = space.codeAt(from);
+		}
+	}
+	
+	/**
+	 * Returns a stream of the codes in space consistent with history.
+	 * 
+	 * @param space
+	 * @param history null for every code
+	 * @param parallel
+	 * @return
+	 */
+	public static LongStream stream(CodeSpace space, GuessHistory history, boolean parallel) {
+		return StreamSupport.longStream(new CodeSpliterator(space, history), parallel);
+	}
+
+	@Override
+	public boolean tryAdvance(LongConsumer action) {
+		while(index < end) {
+			long c = code;
+			step();
+			if(history == null || history.isConsistent(c)) {
+				action.accept(c);
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public void forEachRemaining(LongConsumer action) {
+		while(index < end) {
+			long c = code;
+			step();
+			if(history == null || history.isConsistent(c)) {
+				action.accept(c);
+			}
+		}
+	}
+	
+	// moves on to the next code
+	private void step() {
+		index++;
+		if(index < end) {
+			code = space.next(code);
+		}
+	}
+
+	@Override
+	public Spliterator.OfLong trySplit() {
+		long remaining = end - index;
+		if(remaining < minSplit) {
+			return null;
+		}
+		long mid = index + remaining / 2;
+		CodeSpliterator prefix = new CodeSpliterator(space, history, index, mid);
+		index = mid;
+		code = space.codeAt(mid);
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return end - index;
+	}
+
+	@Override
+	public int characteristics() {
+		int c = ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+		if(history == null) {
+			c |= SIZED | SUBSIZED;
+		}
+		return c;
+	}
+}
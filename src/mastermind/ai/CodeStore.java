@@ -0,0 +1,201 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import java.nio.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Fixed size storage for packed codes, for CandidateSet.  Either a plain
+ * long[] on the heap, or direct buffers off the heap.  Off-heap storage 
+ * is never scanned or moved by the garbage collector, so very large 
+ * candidate sets that are filtered over and over for hours don't add to
+ * collection pauses.  Direct memory is limited by -XX:MaxDirectMemorySize
+ * rather than -Xmx.  It is only given back when the store is collected,
+ * so off-heap stores are made of fixed chunks that are handed back by
+ * trim() and release() and reused by the next store allocated, rather
+ * than left for the collector.
+ * 
+ * @author drogers
+ */
+abstract class CodeStore {
+	
+	/**
+	 * Returns a store with room for capacity codes.
+	 * 
+	 * @param capacity
+	 * @param offHeap true for direct buffers
+	 * @return
+	 */
+	static CodeStore allocate(int capacity, boolean offHeap) {
+		if(offHeap) {
+			return new Direct(capacity);
+		}
+		return new Heap(new long[capacity]);
+	}
+	
+	abstract long get(int i);
+	
+	abstract void set(int i, long code);
+	
+	abstract int capacity();
+	
+	abstract boolean isOffHeap();
+	
+	/**
+	 * Gives back the storage past the first n codes, for reuse.
+	 * 
+	 * @param n
+	 */
+	void trim(int n) {}
+	
+	/**
+	 * Gives back all the storage, for reuse--the store must not be used
+	 * after.
+	 */
+	void release() {}
+	
+	// approximate bytes taken
+	long memoryUsed() {
+		return 8L * capacity();
+	}
+	
+	/**
+	 * Returns a store of the same kind holding the first n codes of this one.
+	 * 
+	 * @param n
+	 * @return
+	 */
+	CodeStore copyOf(int n) {
+		CodeStore s = allocate(n, isOffHeap());
+		for(int i=0; i<n; i++) {
+			s.set(i, get(i));
+		}
+		return s;
+	}
+	
+	/**
+	 * Codes in a long[].
+	 */
+	static class Heap extends CodeStore {
+		long[] codes;
+		
+		Heap(long[] codes) {
+			this.codes = codes;
+		}
+		
+		long get(int i) {
+			return codes[i];
+		}
+		
+		void set(int i, long code) {
+			codes[i] = code;
+		}
+		
+		int capacity() {
+			return codes.length;
+		}
+		
+		boolean isOffHeap() {
+			return false;
+		}
+		
+		CodeStore copyOf(int n) {
+			return new Heap(java.util.Arrays.copyOf(codes, n));
+		}
+	}
+	
+	/**
+	 * Codes in direct buffers, in chunks of the same size so any chunk
+	 * given back can be reused by any store.
+	 */
+	static class Direct extends CodeStore {
+		// codes per chunk--2^20 longs is 8 MB
+		private static final int chunkBits = 20;
+		private static final int chunkMask = (1 << chunkBits) - 1;
+		
+		// the most chunks kept for reuse--more are left for the collector
+		private static final int MAX_POOLED = 64;
+		
+		// chunks given back, for the next stores
+		private static final ConcurrentLinkedQueue<LongBuffer> pool =
+			new ConcurrentLinkedQueue<LongBuffer>();
+		private static final AtomicInteger pooled = new AtomicInteger();
+		
+		private LongBuffer[] chunks;
+		private int capacity;
+		
+		Direct(int capacity) {
+			this.capacity = capacity;
+			int n = (int)(((long)capacity + chunkMask) >>> chunkBits);
+			chunks = new LongBuffer[n];
+			for(int i=0; i<n; i++) {
+				chunks[i] = pool.poll();
+				if(chunks[i] != null) {
+					pooled.decrementAndGet();
+				} else {
+					chunks[i] = ByteBuffer.allocateDirect(8 << chunkBits)
+						.order(ByteOrder.nativeOrder()).asLongBuffer();
+				}
+			}
+		}
+		
+		/**
+		 * Returns the number of chunks waiting to be reused.
+		 * 
+		 * @return
+		 */
+		static int pooled() {
+			return pooled.get();
+		}
+		
+		private static void giveBack(LongBuffer chunk) {
+			if(pooled.incrementAndGet() <= MAX_POOLED) {
+				pool.add(chunk);
+			} else {
+				pooled.decrementAndGet();
+			}
+		}
+		
+		void trim(int n) {
+			int keep = (int)(((long)n + chunkMask) >>> chunkBits);
+			if(keep >= chunks.length) {
+				return;
+			}
+			for(int i=keep; i<chunks.length; i++) {
+				giveBack(chunks[i]);
+			}
+			chunks = java.util.Arrays.copyOf(chunks, keep);
+			capacity = Math.min(capacity, keep << chunkBits);
+		}
+		
+		void release() {
+			trim(0);
+		}
+		
+		long get(int i) {
+			return chunks[i >>> chunkBits].get(i & chunkMask);
+		}
+		
+		void set(int i, long code) {
+			chunks[i >>> chunkBits].put(i & chunkMask, code);
+		}
+		
+		int capacity() {
+			return capacity;
+		}
+		
+		boolean isOffHeap() {
+			return true;
+		}
+		
+		long memoryUsed() {
+			return (8L * chunks.length) << chunkBits;
+		}
+	}
+}
@@ -0,0 +1,384 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.util.*;
+
+/**
+ * Counts the codes of a CodeSpace consistent with a GuessHistory without
+ * enumerating them, and draws consistent codes uniformly at random--for
+ * spaces like 12 pegs by 12 elements that are far too big to walk.
+ *
+ * The count is worked out by dynamic programming over positions.  A code
+ * is built a position at a time, and all that matters about the positions
+ * so far is:
+ * - the blacks against each guess, and
+ * - how many of each element the code holds, for the elements in some
+ *   guess--the blacks plus whites against a guess are the sum over its
+ *   elements of the smaller of the two counts, so a count need only go as
+ *   high as the most of that element in any guess.
+ * Elements in no guess can't score against any guess, so they are all
+ * alike and are counted together: a position can take any of them (any
+ * not used yet, with no duplicates).  A state that can no longer reach
+ * some guess's feedback in the positions left is dropped.
+ *
+ * The number of ways to finish the code from each state reached is kept,
+ * so sample() can then build a code a position at a time, choosing each
+ * element with chance in proportion to the ways to finish after it.
+ *
+ * The state is packed into a long, so the history can't be too long--see
+ * the constructor.  Counts are exact up to Long.MAX_VALUE.
+ *
+ * @author drogers
+ */
+public class ConsistentCounter {
+
+	private CodeSpace space;
+	private int n;
+	private boolean noDuplicates;
+
+	// the guesses, unpacked, and their blacks and blacks plus whites
+	private int[][] guesses;
+	private int[] blacks;
+	private int[] totals;
+
+	// the elements in some guess, which are counted one by one--the
+	// others are counted together
+	private int[] counted;
+	private int numOthers;
+	private int[] others;
+
+	// the most of counted[c] in any guess, and the number in guess j
+	private int[] caps;
+	private int[][] guessCounts;
+
+	// where each part of the state is packed: the count of each counted
+	// element, the blacks against each guess, and with no duplicates the
+	// number of other elements used
+	private int[] countShift;
+	private int[] countBits;
+	private int[] blackShift;
+	private int[] blackBits;
+	private int othersShift;
+	private int othersBits;
+
+	// ways to finish from each state reached, by position
+	private StateTable[] ways;
+
+	// scratch blacks and blacks plus whites for each position
+	private int[][] blkAt;
+	private int[][] totAt;
+
+	/**
+	 * Creates a counter for the codes of space consistent with history.
+	 * Later additions to history are not seen.
+	 *
+	 * @param history
+	 * @throws IllegalArgumentException if the state doesn't fit in a long
+	 */
+	public ConsistentCounter(GuessHistory history) {
+		this.space = history.getCodeSpace();
+		this.n = space.getGuessLength();
+		this.noDuplicates = space.isNoDuplicates();
+		int m = history.size();
+		guesses = new int[m][];
+		blacks = new int[m];
+		totals = new int[m];
+		int[] classOf = new int[space.getNumElements()];
+		Arrays.fill(classOf, -1);
+		int numCounted = 0;
+		for(int j=0; j<m; j++) {
+			guesses[j] = space.unpack(history.getGuess(j));
+			int key = history.getFeedback(j);
+			blacks[j] = space.blackOf(key);
+			totals[j] = blacks[j] + space.whiteOf(key);
+			for(int e : guesses[j]) {
+				if(classOf[e] < 0) {
+					classOf[e] = numCounted++;
+				}
+			}
+		}
+		counted = new int[numCounted];
+		others = new int[space.getNumElements() - numCounted];
+		numOthers = 0;
+		for(int e=0; e<classOf.length; e++) {
+			if(classOf[e] >= 0) {
+				counted[classOf[e]] = e;
+			} else {
+				others[numOthers++] = e;
+			}
+		}
+		caps = new int[numCounted];
+		guessCounts = new int[m][numCounted];
+		for(int j=0; j<m; j++) {
+			for(int e : guesses[j]) {
+				int c = classOf[e];
+				guessCounts[j][c]++;
+				caps[c] = Math.max(caps[c], guessCounts[j][c]);
+			}
+		}
+		int shift = 0;
+		countShift = new int[numCounted];
+		countBits = new int[numCounted];
+		for(int c=0; c<numCounted; c++) {
+			countShift[c] = shift;
+			countBits[c] = bitsFor(caps[c]);
+			shift += countBits[c];
+		}
+		blackShift = new int[m];
+		blackBits = new int[m];
+		for(int j=0; j<m; j++) {
+			blackShift[j] = shift;
+			blackBits[j] = bitsFor(blacks[j]);
+			shift += blackBits[j];
+		}
+		othersShift = shift;
+		othersBits = noDuplicates ? bitsFor(n) : 0;
+		shift += othersBits;
+		if(shift > 63) {
+			throw new IllegalArgumentException("History of " + m +
+					" guesses is too long to count in " + space);
+		}
+		ways = new StateTable[n + 1];
+		for(int p=0; p<=n; p++) {
+			ways[p] = new StateTable();
+		}
+		blkAt = new int[n][m];
+		totAt = new int[n][m];
+	}
+
+	// bits to hold 0 to max
+	private static int bitsFor(int max) {
+		return 32 - Integer.numberOfLeadingZeros(max);
+	}
+
+	private static int field(long state, int shift, int bits) {
+		return (int)(state >>> shift) & ((1 << bits) - 1);
+	}
+
+	private static long withField(long state, int shift, int bits, int value) {
+		long mask = ((1L << bits) - 1) << shift;
+		return (state & ~mask) | ((long)value << shift);
+	}
+
+	/**
+	 * Returns the number of codes consistent with the history.
+	 *
+	 * @return
+	 * @throws ArithmeticException if the count is more than Long.MAX_VALUE
+	 */
+	public long count() {
+		return ways(0, 0L);
+	}
+
+	// ways to finish a code from state with positions p to n-1 left
+	private long ways(int p, long state) {
+		long known = ways[p].get(state);
+		if(known >= 0) {
+			return known;
+		}
+		long sum = 0;
+		if(p == n) {
+			sum = 1; // states that can't end consistent are never reached
+		} else {
+			int[] blk = blkAt[p];
+			int[] tot = totAt[p];
+			decode(state, blk, tot);
+			for(int c=0; c<=counted.length; c++) {
+				long next = step(p, state, c, blk, tot);
+				if(next >= 0) {
+					sum = Math.addExact(sum,
+							Math.multiplyExact(weight(state, c), ways(p + 1, next)));
+				}
+			}
+		}
+		ways[p].put(state, sum);
+		return sum;
+	}
+
+	// works out the blacks and blacks plus whites against each guess
+	private void decode(long state, int[] blk, int[] tot) {
+		for(int j=0; j<guesses.length; j++) {
+			blk[j] = field(state, blackShift[j], blackBits[j]);
+			int t = 0;
+			for(int c=0; c<counted.length; c++) {
+				t += Math.min(field(state, countShift[c], countBits[c]),
+						guessCounts[j][c]);
+			}
+			tot[j] = t;
+		}
+	}
+
+	// the number of elements choice c stands for at state--1 for a counted
+	// element, or the other elements that can be used
+	private long weight(long state, int c) {
+		if(c < counted.length) {
+			return 1;
+		}
+		return noDuplicates ? numOthers - field(state, othersShift, othersBits)
+				: numOthers;
+	}
+
+	// returns the state after putting choice c--counted[c], or any other
+	// element if c is counted.length--in position p, or -1 if that can't
+	// be, or can no longer lead to a consistent code
+	private long step(int p, long state, int c, int[] blk, int[] tot) {
+		int left = n - p - 1;
+		if(c == counted.length) {
+			int used = field(state, othersShift, othersBits);
+			if(weight(state, c) <= 0) {
+				return -1;
+			}
+			for(int j=0; j<guesses.length; j++) {
+				if(blk[j] + left < blacks[j] || tot[j] + left < totals[j]) {
+					return -1;
+				}
+			}
+			return noDuplicates ? withField(state, othersShift, othersBits, used + 1)
+					: state;
+		}
+		int count = field(state, countShift[c], countBits[c]);
+		if(noDuplicates && count > 0) {
+			return -1;
+		}
+		int e = counted[c];
+		long next = withField(state, countShift[c], countBits[c],
+				Math.min(count + 1, caps[c]));
+		for(int j=0; j<guesses.length; j++) {
+			int b = blk[j] + (guesses[j][p] == e ? 1 : 0);
+			int t = tot[j] + (count < guessCounts[j][c] ? 1 : 0);
+			if(b > blacks[j] || b + left < blacks[j] ||
+					t > totals[j] || t + left < totals[j]) {
+				return -1;
+			}
+			next = withField(next, blackShift[j], blackBits[j], b);
+		}
+		return next;
+	}
+
+	/**
+	 * Returns a code drawn uniformly at random from those consistent with
+	 * the history.  Once count() has returned, this only reads what it
+	 * worked out, so it can be called from several threads at once, each
+	 * with its own Random.
+	 *
+	 * @param rand
+	 * @return packed code
+	 * @throws IllegalStateException if no code is consistent
+	 */
+	public long sample(Random rand) {
+		if(count() == 0) {
+			throw new IllegalStateException("No code is consistent with the history");
+		}
+		int[] code = new int[n];
+		// the other elements not used yet, at the front
+		int[] unused = others.clone();
+		int numUnused = numOthers;
+		int[] blk = new int[guesses.length];
+		int[] tot = new int[guesses.length];
+		long state = 0;
+		for(int p=0; p<n; p++) {
+			decode(state, blk, tot);
+			long r = rand.nextLong(ways(p, state));
+			for(int c=0; c<=counted.length; c++) {
+				long next = step(p, state, c, blk, tot);
+				if(next < 0) {
+					continue;
+				}
+				long w = weight(state, c) * ways(p + 1, next);
+				if(r >= w) {
+					r -= w;
+					continue;
+				}
+				if(c < counted.length) {
+					code[p] = counted[c];
+				} else {
+					int i = noDuplicates ? rand.nextInt(numUnused) : rand.nextInt(numOthers);
+					code[p] = unused[i];
+					if(noDuplicates) {
+						unused[i] = unused[--numUnused];
+						unused[numUnused] = code[p];
+					}
+				}
+				state = next;
+				break;
+			}
+		}
+		return space.pack(code);
+	}
+
+	/**
+	 * Returns the number of states the count has been worked out for--a
+	 * measure of the work and memory it took.
+	 *
+	 * @return
+	 */
+	public int numStates() {
+		int states = 0;
+		for(StateTable w : ways) {
+			states += w.size;
+		}
+		return states;
+	}
+
+	// open addressing from state to ways, as HashMap<Long, Long> boxes
+	// too much for the millions of states a long history can reach
+	private static class StateTable {
+		private long[] states = new long[1024];
+		private long[] values = new long[1024];
+		private boolean[] used = new boolean[1024];
+		private int size = 0;
+
+		private int slot(long state) {
+			int mask = states.length - 1;
+			int i = (int)((state * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+			while(used[i] && states[i] != state) {
+				i = (i + 1) & mask;
+			}
+			return i;
+		}
+
+		// returns the value for state, or -1 if there is none
+		long get(long state) {
+			int i = slot(state);
+			return used[i] ? values[i] : -1;
+		}
+
+		void put(long state, long value) {
+			int i = slot(state);
+			if(!used[i]) {
+				if(2 * (size + 1) > states.length) {
+					grow();
+					i = slot(state);
+				}
+				used[i] = true;
+				states[i] = state;
+				size++;
+			}
+			values[i] = value;
+		}
+
+		private void grow() {
+			long[] oldStates = states;
+			long[] oldValues = values;
+			boolean[] oldUsed = used;
+			states = new long[2 * oldStates.length];
+			values = new long[states.length];
+			used = new boolean[states.length];
+			for(int i=0; i<oldStates.length; i++) {
+				if(oldUsed[i]) {
+					int j = slot(oldStates[i]);
+					used[j] = true;
+					states[j] = oldStates[i];
+					values[j] = oldValues[i];
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,267 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+/**
+ * Supplies guesses by keeping the set of every code that is consistent with
+ * the results so far, and always guessing the first of them.  The first 
+ * guess pairs up elements (0 0 1 1 2 ...), which is a good general opener.
+ * In a space with no duplicates only the permutations are ever held.
+ * Unlike Brain this works for any CodeSpace, but the work per move grows
+ * with the size of the space.
+ * 
+ * The candidates are grouped by multiset (ScoringKernel.GROUPED), so a
+ * filter only looks at the codes whose blacks plus whites can match.
+ * 
+ * Holding the candidates on the heap takes 12 bytes a code with the
+ * groups, 8 without.  Candidates taking more than offHeapThreshold bytes
+ * are kept off the heap instead (see CandidateSet), at 8 bytes a code
+ * and with no groups, and count against a separate off-heap budget.
+ * They are filtered in place, giving back storage as they shrink, and
+ * brought back onto the heap once below the threshold.
+ * 
+ * If the candidates fit neither budget the solver streams instead: it
+ * keeps only the history of results, and each guess is the first
+ * consistent code found by a parallel walk of the space (the same guess
+ * holding the candidates would give).  After each result it tries to
+ * collect the consistent codes within the budgets, and holds them from
+ * then on if they fit.
+ * 
+ * @author drogers
+ */
+public class ConsistentSolver implements Solver {
+	
+	private CodeSpace space;
+	
+	// null while streaming
+	private CandidateSet candidates;
+	
+	// the results so far
+	private GuessHistory history;
+	
+	// bytes the candidates may take
+	private long memoryBudget;
+	
+	// bytes over which the candidates are kept off the heap
+	private long offHeapThreshold;
+	
+	// bytes the candidates may take off the heap
+	private long offHeapBudget;
+	
+	// how the candidates score guesses--grouping them by multiset makes
+	// each filter several times faster for a third more memory
+	private ScoringKernel kernel = ScoringKernel.GROUPED;
+	
+	// true if candidates is shared with the solver this was copied from,
+	// so has to be copied before it is filtered
+	private boolean shared = false;
+	
+	// packed last guess
+	private long lastGuess;
+	
+	/**
+	 * Creates a solver with a memory budget of a quarter of the heap.
+	 * 
+	 * @param space
+	 */
+	public ConsistentSolver(CodeSpace space) {
+		this(space, Runtime.getRuntime().maxMemory() / 4);
+	}
+	
+	/**
+	 * Creates a solver that holds its candidates only if they fit in 
+	 * memoryBudget bytes, and streams the space otherwise.
+	 * 
+	 * @param space
+	 * @param memoryBudget
+	 */
+	public ConsistentSolver(CodeSpace space, long memoryBudget) {
+		this(space, memoryBudget, CandidateSet.DEFAULT_OFF_HEAP_THRESHOLD);
+	}
+	
+	/**
+	 * Creates a solver with a memory budget, that keeps its candidates
+	 * off the heap while they take more than offHeapThreshold bytes.
+	 * 
+	 * @param space
+	 * @param memoryBudget
+	 * @param offHeapThreshold
+	 */
+	public ConsistentSolver(CodeSpace space, long memoryBudget, long offHeapThreshold) {
+		this(space, memoryBudget, offHeapThreshold, CandidateSet.DEFAULT_OFF_HEAP_BUDGET);
+	}
+	
+	/**
+	 * Creates a solver that holds its candidates on the heap within
+	 * memoryBudget bytes while they take no more than offHeapThreshold
+	 * bytes, off the heap within offHeapBudget bytes past that, and streams
+	 * the space otherwise.
+	 * 
+	 * @param space
+	 * @param memoryBudget
+	 * @param offHeapThreshold
+	 * @param offHeapBudget
+	 */
+	public ConsistentSolver(CodeSpace space, long memoryBudget, long offHeapThreshold,
+			long offHeapBudget) {
+		this.space = space;
+		this.memoryBudget = memoryBudget;
+		this.offHeapThreshold = offHeapThreshold;
+		this.offHeapBudget = offHeapBudget;
+		this.history = new GuessHistory(space);
+		if(space.size() <= maxCandidates()) {
+			this.candidates = CandidateSet.all(space, threshold());
+			this.candidates.setKernel(kernel);
+		}
+	}
+	
+	private ConsistentSolver(ConsistentSolver other) {
+		this.space = other.space;
+		this.memoryBudget = other.memoryBudget;
+		this.offHeapThreshold = other.offHeapThreshold;
+		this.offHeapBudget = other.offHeapBudget;
+		this.kernel = other.kernel;
+		this.history = other.history.copy();
+		this.candidates = other.candidates;
+		this.lastGuess = other.lastGuess;
+		// index the shared candidates here, on the thread that has other,
+		// as copies filter them from threads of their own
+		if(candidates != null) {
+			candidates.buildIndex();
+		}
+		shared = other.shared = true;
+	}
+	
+	/**
+	 * Returns the candidates, or null if streaming.
+	 * 
+	 * @return
+	 */
+	public CandidateSet getCandidates() {
+		return candidates;
+	}
+	
+	public GuessHistory getHistory() {
+		return history;
+	}
+	
+	/**
+	 * Returns true if the candidates are too big to hold, so the space is
+	 * streamed for each guess.
+	 * 
+	 * @return
+	 */
+	public boolean isStreaming() {
+		return candidates == null;
+	}
+	
+	/**
+	 * Sets the kernel the candidates score guesses with.
+	 * 
+	 * @param kernel
+	 */
+	public void setKernel(ScoringKernel kernel) {
+		this.kernel = kernel;
+		if(candidates != null) {
+			candidates.setKernel(kernel);
+		}
+	}
+	
+	// bytes of codes over which the candidates are kept off the heap--the
+	// threshold, or less if that many wouldn't fit the memory budget, as
+	// a code on the heap takes 8 bytes, and 4 more for its group with the
+	// GROUPED kernel.  Long.MAX_VALUE still means never.
+	private long threshold() {
+		if(offHeapThreshold == Long.MAX_VALUE) {
+			return offHeapThreshold;
+		}
+		int bytesPerCode = kernel == ScoringKernel.GROUPED ? 12 : 8;
+		return Math.min(offHeapThreshold, 8 * (memoryBudget / bytesPerCode));
+	}
+	
+	// the most candidates that fit the budgets--past the threshold a code
+	// takes 8 bytes off the heap
+	private int maxCandidates() {
+		int bytesPerCode = kernel == ScoringKernel.GROUPED ? 12 : 8;
+		long threshold = threshold();
+		long onHeap = Math.min(memoryBudget / bytesPerCode, threshold / 8);
+		long offHeap = offHeapBudget > threshold ? offHeapBudget / 8 : 0;
+		return (int)Math.min(CandidateSet.MAX_SIZE, Math.max(onHeap, offHeap));
+	}
+	
+	/**
+	 * Returns the pairs opener: 0 0 1 1 2 2 ... for the space, or 0 1 2 3 ...
+	 * if the space has no duplicates.
+	 * 
+	 * @param space
+	 * @return
+	 */
+	public static int[] openingGuess(CodeSpace space) {
+		int[] g = new int[space.getGuessLength()];
+		for(int i=0; i<g.length; i++) {
+			if(space.isNoDuplicates()) {
+				g[i] = i;
+			} else {
+				g[i] = (i / 2) % space.getNumElements();
+			}
+		}
+		return g;
+	}
+
+	// the opener is played only with no results yet, so a solver brought
+	// up to date with update() alone guesses from the results it was given
+	@Override
+	public int[] nextGuess() {
+		if(history.size() == 0) {
+			int[] g = openingGuess(space);
+			lastGuess = space.pack(g);
+			return g;
+		}
+		if(candidates != null) {
+			lastGuess = candidates.get(0);
+		} else {
+			lastGuess = CodeSpliterator.stream(space, history, true)
+				.findFirst().getAsLong();
+		}
+		return space.unpack(lastGuess);
+	}
+
+	@Override
+	public void update(GuessInfo result) {
+		long guess = space.pack(result.getGuess());
+		int feedback = space.feedbackKey(result.getPositionMatches(),
+				result.getNonPositionalMatches());
+		history.add(guess, feedback);
+		if(candidates == null) {
+			candidates = CandidateSet.consistent(space, history, maxCandidates(),
+					threshold());
+			if(candidates != null) {
+				candidates.setKernel(kernel);
+			}
+			shared = false;
+		} else if(shared) {
+			candidates = candidates.filtered(guess, feedback);
+			shared = false;
+		} else {
+			candidates.filter(guess, feedback);
+		}
+		if(candidates != null && candidates.isOffHeap() &&
+				8L * candidates.size() <= threshold()) {
+			// not shared, as just filtered or collected
+			CandidateSet offHeap = candidates;
+			candidates = candidates.onHeap();
+			offHeap.release();
+		}
+	}
+
+	@Override
+	public Solver copy() {
+		return new ConsistentSolver(this);
+	}
+}
@@ -0,0 +1,397 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * Supplies guesses by evolving a population of codes toward consistency
+ * with the results so far--for spaces too big to hold or walk.
+ *
+ * A code's fitness is how far it is from consistent: the sum over the
+ * results of the difference in blacks plus the difference in whites the
+ * code would have given, so 0 is consistent.  Each guess starts from a
+ * random population, and each generation:
+ * - every code is scored, in parallel;
+ * - the consistent codes not seen yet are kept as eligible guesses;
+ * - the next population is bred, in parallel--each child crosses two
+ *   parents picked by tournament at one or two points, and may then have
+ *   an element changed, two positions swapped, or a run of positions
+ *   reversed.  The fittest code is carried over as it is.
+ * Evolution stops when maxEligible codes have been found, or after
+ * maxGenerations if any have been.  The eligible code whose results would
+ * split the others with the most entropy is played.  If none turns up in
+ * ten times maxGenerations, a PropagationSolver finds a consistent code.
+ *
+ * The population is split into a chunk for each parallel task, and each
+ * chunk has its own Random, seeded from the solver's seed and the turn, so
+ * a solver with a given seed plays the same game every time.  The
+ * population, the one being bred and the scratch space for breeding are
+ * made once and reused, so generations don't allocate.
+ *
+ * @author drogers
+ */
+public class GeneticSolver implements Solver {
+
+	/** Default number of codes in the population. */
+	public static final int DEFAULT_POPULATION = 150;
+
+	// chance of each change to a child
+	private static final double MUTATION = 0.03;
+	private static final double SWAP = 0.03;
+	private static final double INVERSION = 0.02;
+
+	// codes compared to pick each parent
+	private static final int TOURNAMENT = 3;
+
+	private CodeSpace space;
+	private int n;
+	private int k;
+	private long seed;
+	private int maxGenerations = 100;
+	private int maxEligible = 60;
+
+	private GuessHistory history;
+
+	// signatures of the guesses, and the blacks and whites they got
+	private CodeSpace.Signature[] signatures = new CodeSpace.Signature[8];
+	private int[] blacks = new int[8];
+	private int[] whites = new int[8];
+
+	// the population, its fitness, and the next population
+	private long[] population;
+	private int[] fitness;
+	private long[] bred;
+	// the fittest code of the population
+	private int fittest;
+
+	// a Random and scratch codes for each chunk of the population
+	private int chunkSize;
+	private Random[] rands;
+	private int[][] mothers;
+	private int[][] fathers;
+	private int[][] children;
+
+	// consistent codes found for this guess
+	private long[] eligible;
+	private int numEligible;
+
+	// guesses made so far, and generations bred for the last one
+	private int turn = 0;
+	private int generations = 0;
+
+	// the parallel tasks--scoring and breeding a chunk each
+	private IntConsumer scorer = new IntConsumer() {
+		public void accept(int chunk) {
+			int end = Math.min(population.length, (chunk + 1) * chunkSize);
+			for(int i=chunk*chunkSize; i<end; i++) {
+				fitness[i] = fitness(population[i]);
+			}
+		}
+	};
+	private IntConsumer breeder = new IntConsumer() {
+		public void accept(int chunk) {
+			int end = Math.min(population.length, (chunk + 1) * chunkSize);
+			for(int i=chunk*chunkSize; i<end; i++) {
+				bred[i] = i == 0 ? population[fittest] : breed(chunk);
+			}
+		}
+	};
+	private IntConsumer seeder = new IntConsumer() {
+		public void accept(int chunk) {
+			int end = Math.min(population.length, (chunk + 1) * chunkSize);
+			for(int i=chunk*chunkSize; i<end; i++) {
+				population[i] = randomCode(chunk);
+			}
+		}
+	};
+
+	/**
+	 * Creates a solver with a random seed and the default population.
+	 *
+	 * @param space
+	 */
+	public GeneticSolver(CodeSpace space) {
+		this(space, new Random().nextLong(), DEFAULT_POPULATION);
+	}
+
+	/**
+	 * Creates a solver that breeds with seed, with populationSize codes in
+	 * each generation.
+	 *
+	 * @param space
+	 * @param seed
+	 * @param populationSize
+	 */
+	public GeneticSolver(CodeSpace space, long seed, int populationSize) {
+		this.space = space;
+		this.n = space.getGuessLength();
+		this.k = space.getNumElements();
+		this.seed = seed;
+		this.history = new GuessHistory(space);
+		population = new long[populationSize];
+		fitness = new int[populationSize];
+		bred = new long[populationSize];
+		int chunks = Math.min(populationSize,
+				2 * Runtime.getRuntime().availableProcessors());
+		chunkSize = (populationSize + chunks - 1) / chunks;
+		chunks = (populationSize + chunkSize - 1) / chunkSize;
+		rands = new Random[chunks];
+		mothers = new int[chunks][n];
+		fathers = new int[chunks][n];
+		children = new int[chunks][n];
+		for(int c=0; c<chunks; c++) {
+			rands[c] = new Random();
+		}
+		eligible = new long[maxEligible];
+	}
+
+	private GeneticSolver(GeneticSolver other) {
+		this(other.space, other.seed, other.population.length);
+		this.maxGenerations = other.maxGenerations;
+		setMaxEligible(other.maxEligible);
+		this.turn = other.turn;
+		for(int i=0; i<other.history.size(); i++) {
+			add(other.history.getGuess(i), other.history.getFeedback(i));
+		}
+	}
+
+	/**
+	 * Sets the generations bred for a guess once some consistent code has
+	 * been found.
+	 *
+	 * @param maxGenerations
+	 */
+	public void setMaxGenerations(int maxGenerations) {
+		this.maxGenerations = maxGenerations;
+	}
+
+	/**
+	 * Sets the most consistent codes found before a guess is chosen.
+	 *
+	 * @param maxEligible
+	 */
+	public void setMaxEligible(int maxEligible) {
+		this.maxEligible = maxEligible;
+		eligible = new long[maxEligible];
+	}
+
+	/**
+	 * Returns the generations bred for the last guess.
+	 *
+	 * @return
+	 */
+	public int getGenerations() {
+		return generations;
+	}
+
+	public GuessHistory getHistory() {
+		return history;
+	}
+
+	@Override
+	public int[] nextGuess() {
+		turn++;
+		generations = 0;
+		if(history.size() == 0) {
+			return ConsistentSolver.openingGuess(space);
+		}
+		for(int c=0; c<rands.length; c++) {
+			long h = seed * 0x9E3779B97F4A7C15L + turn;
+			h = h * 0x9E3779B97F4A7C15L + c;
+			rands[c].setSeed(h ^ (h >>> 31));
+		}
+		numEligible = 0;
+		IntStream.range(0, rands.length).parallel().forEach(seeder);
+		while(true) {
+			IntStream.range(0, rands.length).parallel().forEach(scorer);
+			collect();
+			generations++;
+			if(numEligible == maxEligible || (numEligible > 0 && generations >= maxGenerations)
+					|| generations >= 10 * maxGenerations) {
+				break;
+			}
+			IntStream.range(0, rands.length).parallel().forEach(breeder);
+			long[] t = population;
+			population = bred;
+			bred = t;
+		}
+		if(numEligible == 0) {
+			return new PropagationSolver(history, seed + turn).nextGuess();
+		}
+		if(numEligible == 1) {
+			return space.unpack(eligible[0]);
+		}
+		CandidateSet others = CandidateSet.of(space, Arrays.copyOf(eligible, numEligible));
+		int[] histogram = new int[space.numFeedbackKeys()];
+		int best = 0;
+		double bestEntropy = -1;
+		for(int i=0; i<numEligible; i++) {
+			double entropy = others.partition(eligible[i], histogram).getEntropy();
+			if(entropy > bestEntropy) {
+				best = i;
+				bestEntropy = entropy;
+			}
+		}
+		return space.unpack(eligible[best]);
+	}
+
+	// keeps the consistent codes of the population not seen yet, and finds
+	// the fittest code
+	private void collect() {
+		fittest = 0;
+		for(int i=0; i<population.length; i++) {
+			if(fitness[i] < fitness[fittest]) {
+				fittest = i;
+			}
+			if(fitness[i] != 0 || numEligible == maxEligible) {
+				continue;
+			}
+			boolean seen = false;
+			for(int j=0; j<numEligible && !seen; j++) {
+				seen = eligible[j] == population[i];
+			}
+			if(!seen) {
+				eligible[numEligible++] = population[i];
+			}
+		}
+	}
+
+	// how far code is from consistent with the results
+	private int fitness(long code) {
+		int f = 0;
+		for(int j=0; j<history.size(); j++) {
+			int key = signatures[j].score(code);
+			f += Math.abs(space.blackOf(key) - blacks[j])
+				+ Math.abs(space.whiteOf(key) - whites[j]);
+		}
+		return f;
+	}
+
+	// a random code, with no duplicates if the space has none
+	private long randomCode(int chunk) {
+		Random rand = rands[chunk];
+		int[] code = children[chunk];
+		for(int p=0; p<n; p++) {
+			code[p] = rand.nextInt(k);
+		}
+		if(space.isNoDuplicates()) {
+			repair(code, rand);
+		}
+		return space.pack(code);
+	}
+
+	// a child of two parents picked by tournament
+	private long breed(int chunk) {
+		Random rand = rands[chunk];
+		int[] mother = space.unpack(population[pick(rand)], mothers[chunk]);
+		int[] father = space.unpack(population[pick(rand)], fathers[chunk]);
+		int[] child = children[chunk];
+		// one or two point crossover
+		int from = rand.nextInt(n);
+		int to = rand.nextBoolean() ? n : from + rand.nextInt(n - from) + 1;
+		for(int p=0; p<n; p++) {
+			child[p] = p >= from && p < to ? father[p] : mother[p];
+		}
+		if(space.isNoDuplicates()) {
+			repair(child, rand);
+		}
+		if(rand.nextDouble() < MUTATION) {
+			int p = rand.nextInt(n);
+			child[p] = rand.nextInt(k);
+			if(space.isNoDuplicates()) {
+				// keep the new element, and replace whatever it duplicates
+				for(int q=0; q<n; q++) {
+					if(q != p && child[q] == child[p]) {
+						child[q] = -1;
+					}
+				}
+				repair(child, rand);
+			}
+		}
+		if(rand.nextDouble() < SWAP) {
+			int p = rand.nextInt(n);
+			int q = rand.nextInt(n);
+			int t = child[p];
+			child[p] = child[q];
+			child[q] = t;
+		}
+		if(rand.nextDouble() < INVERSION) {
+			int p = rand.nextInt(n);
+			int q = rand.nextInt(n);
+			for(int lo=Math.min(p, q), hi=Math.max(p, q); lo<hi; lo++, hi--) {
+				int t = child[lo];
+				child[lo] = child[hi];
+				child[hi] = t;
+			}
+		}
+		return space.pack(child);
+	}
+
+	// the fittest of TOURNAMENT codes drawn at random
+	private int pick(Random rand) {
+		int best = rand.nextInt(population.length);
+		for(int i=1; i<TOURNAMENT; i++) {
+			int j = rand.nextInt(population.length);
+			if(fitness[j] < fitness[best]) {
+				best = j;
+			}
+		}
+		return best;
+	}
+
+	// replaces repeated elements, and any -1, with random unused ones
+	private void repair(int[] code, Random rand) {
+		long used = 0;
+		for(int p=0; p<n; p++) {
+			if(code[p] >= 0) {
+				if((used & (1L << code[p])) != 0) {
+					code[p] = -1;
+				} else {
+					used |= 1L << code[p];
+				}
+			}
+		}
+		for(int p=0; p<n; p++) {
+			while(code[p] < 0) {
+				int e = rand.nextInt(k);
+				if((used & (1L << e)) == 0) {
+					code[p] = e;
+					used |= 1L << e;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void update(GuessInfo result) {
+		add(space.pack(result.getGuess()), space.feedbackKey(
+				result.getPositionMatches(), result.getNonPositionalMatches()));
+	}
+
+	private void add(long guess, int feedback) {
+		int j = history.size();
+		if(j == signatures.length) {
+			signatures = Arrays.copyOf(signatures, 2 * j);
+			blacks = Arrays.copyOf(blacks, 2 * j);
+			whites = Arrays.copyOf(whites, 2 * j);
+		}
+		signatures[j] = space.signature(guess);
+		blacks[j] = space.blackOf(feedback);
+		whites[j] = space.whiteOf(feedback);
+		history.add(guess, feedback);
+	}
+
+	@Override
+	public Solver copy() {
+		return new GeneticSolver(this);
+	}
+}
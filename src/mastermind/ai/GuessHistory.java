@@ -0,0 +1,125 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+/**
+ * The guesses made so far and their results, packed for a CodeSpace, so 
+ * any code can be checked for consistency with them without holding the
+ * set of candidates.
+ * 
+ * @author drogers
+ */
+public class GuessHistory {
+	
+	private CodeSpace space;
+	
+	// packed guesses and their feedback keys, 0 to size-1
+	private long[] guesses = new long[8];
+	private int[] feedbacks = new int[8];
+	// element masks of the guesses--for spaces with no duplicates
+	private long[] masks = new long[8];
+	private int size = 0;
+	
+	public GuessHistory(CodeSpace space) {
+		this.space = space;
+	}
+	
+	/**
+	 * Creates a history from the results of guesses.
+	 * 
+	 * @param space
+	 * @param results
+	 */
+	public GuessHistory(CodeSpace space, GuessInfo[] results) {
+		this(space);
+		for(GuessInfo r : results) {
+			if(r != null) {
+				add(r);
+			}
+		}
+	}
+	
+	/**
+	 * Returns a copy that can be added to without changing this one.
+	 * 
+	 * @return
+	 */
+	public GuessHistory copy() {
+		GuessHistory h = new GuessHistory(space);
+		h.guesses = guesses.clone();
+		h.feedbacks = feedbacks.clone();
+		h.masks = masks.clone();
+		h.size = size;
+		return h;
+	}
+	
+	public CodeSpace getCodeSpace() {
+		return space;
+	}
+	
+	public void add(GuessInfo result) {
+		add(space.pack(result.getGuess()), space.feedbackKey(
+				result.getPositionMatches(), result.getNonPositionalMatches()));
+	}
+	
+	/**
+	 * Adds a guess and the feedback key it got.
+	 * 
+	 * @param guess packed guess
+	 * @param feedback feedback key
+	 */
+	public void add(long guess, int feedback) {
+		if(size == guesses.length) {
+			guesses = java.util.Arrays.copyOf(guesses, 2 * size);
+			feedbacks = java.util.Arrays.copyOf(feedbacks, 2 * size);
+			masks = java.util.Arrays.copyOf(masks, 2 * size);
+		}
+		guesses[size] = guess;
+		feedbacks[size] = feedback;
+		masks[size] = space.colorMask(guess);
+		size++;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public long getGuess(int i) {
+		return guesses[i];
+	}
+	
+	public int getFeedback(int i) {
+		return feedbacks[i];
+	}
+	
+	/**
+	 * Returns true if code would have given every result in the history.
+	 * 
+	 * @param code packed code
+	 * @return
+	 */
+	public boolean isConsistent(long code) {
+		if(space.isNoDuplicates()) {
+			long mask = space.colorMask(code);
+			for(int i=0; i<size; i++) {
+				if(space.scoreNoDuplicates(masks[i], mask, 
+						space.blacks(guesses[i], code)) != feedbacks[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		for(int i=0; i<size; i++) {
+			if(space.score(guesses[i], code) != feedbacks[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -39,6 +39,13 @@ class Inference implements Comparable {
 			this.positions.add(new Integer(i));
 		}
 	}
+	// copy constructor
+	Inference(Inference other) {
+		this.element = other.element;
+		this.positions.addAll(other.positions);
+		this.fixed = other.fixed;
+	}
+	
 	/**
 	 * Creates an Inference with positions (0, 1, .., (guessLength-1))
 	 * 
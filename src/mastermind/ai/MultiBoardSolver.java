@@ -0,0 +1,317 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.util.*;
+
+/**
+ * Supplies guesses for multi-board games--see Engine.setBoards()--where
+ * each guess is scored against several secrets at once.
+ *
+ * The boards start with the same candidates, and a code stays a candidate
+ * of several boards until results tell them apart, so the candidates are
+ * held once: the union of the boards' sets, each code with a mask of the
+ * boards it is still a candidate of.  A guess's results are taken in with
+ * one pass, scoring each code once and clearing the boards whose result
+ * it doesn't give; a code on no board is dropped.
+ *
+ * Guesses are weighed the same way.  A code's feedback to a guess is
+ * worked out once and counted in the partition of every board it is on,
+ * so splitting all the boards costs no more than splitting one.  A board
+ * with one candidate left is played out at once.  Otherwise up to
+ * MAX_SCORED codes of the union are tried against a spread of up to
+ * MAX_SPLIT of its codes, and the one whose partitions have the most
+ * entropy summed over the boards is played, plus the chance of solving
+ * each board it is a candidate of.
+ *
+ * There can be up to 64 boards.  The whole space is held at first, at 16
+ * bytes a code, so it can have no more than Integer.MAX_VALUE - 8 codes,
+ * and no more than fit in a quarter of the heap--see canHold().
+ *
+ * This is not a Solver, as a guess has a result for each board--see
+ * update().
+ *
+ * @author drogers
+ */
+public class MultiBoardSolver {
+
+	// the most guesses tried, and codes they are split against
+	private static final int MAX_SCORED = 1000;
+	private static final int MAX_SPLIT = 4000;
+
+	private CodeSpace space;
+	private int numBoards;
+
+	// the codes on some board, and the boards each is on
+	private long[] codes;
+	private long[] boards;
+	private int size;
+
+	// the boards not solved, and the candidates of each
+	private long unsolved;
+	private int[] counts;
+
+	// the results so far
+	private int turn = 0;
+
+	// codes scored for the last guess
+	private long scored = 0;
+
+	/**
+	 * Returns true if a solver for space can hold its codes--no more than
+	 * Integer.MAX_VALUE - 8 of them, in a quarter of the heap.
+	 *
+	 * @param space
+	 * @return
+	 */
+	public static boolean canHold(CodeSpace space) {
+		return space.size() <= Integer.MAX_VALUE - 8 &&
+			space.size() <= Runtime.getRuntime().maxMemory() / 4 / 16;
+	}
+
+	/**
+	 * Creates a solver for numBoards secrets in space.
+	 *
+	 * @param space
+	 * @param numBoards 1 to 64
+	 * @throws IllegalArgumentException if space has too many codes to hold
+	 * --see canHold()
+	 */
+	public MultiBoardSolver(CodeSpace space, int numBoards) {
+		if(!canHold(space)) {
+			throw new IllegalArgumentException("Code space " + space +
+					" has too many codes to hold: " + space.size());
+		}
+		if(numBoards < 1 || numBoards > 64) {
+			throw new IllegalArgumentException("Can't play " + numBoards + " boards");
+		}
+		this.space = space;
+		this.numBoards = numBoards;
+		unsolved = numBoards == 64 ? -1L : (1L << numBoards) - 1;
+		size = (int)space.size();
+		codes = new long[size];
+		boards = new long[size];
+		long code = space.codeAt(0);
+		for(int i=0; i<size; i++) {
+			codes[i] = code;
+			boards[i] = unsolved;
+			if(i < size - 1) {
+				code = space.next(code);
+			}
+		}
+		counts = new int[numBoards];
+		Arrays.fill(counts, size);
+	}
+
+	private MultiBoardSolver(MultiBoardSolver other) {
+		this.space = other.space;
+		this.numBoards = other.numBoards;
+		this.size = other.size;
+		this.codes = Arrays.copyOf(other.codes, size);
+		this.boards = Arrays.copyOf(other.boards, size);
+		this.unsolved = other.unsolved;
+		this.counts = other.counts.clone();
+		this.turn = other.turn;
+	}
+
+	/**
+	 * Returns the number of boards.
+	 *
+	 * @return
+	 */
+	public int getNumBoards() {
+		return numBoards;
+	}
+
+	/**
+	 * Returns true if board has been solved.
+	 *
+	 * @param board
+	 * @return
+	 */
+	public boolean isSolved(int board) {
+		return (unsolved & (1L << board)) == 0;
+	}
+
+	/**
+	 * Returns the number of codes that could still be board's secret--0
+	 * once it is solved.
+	 *
+	 * @param board
+	 * @return
+	 */
+	public int getNumCandidates(int board) {
+		return counts[board];
+	}
+
+	/**
+	 * Returns the number of codes held--those still a candidate of some
+	 * board, each counted once.
+	 *
+	 * @return
+	 */
+	public int getNumHeld() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of codes scored against guesses for the last
+	 * guess.
+	 *
+	 * @return
+	 */
+	public long getScored() {
+		return scored;
+	}
+
+	/**
+	 * Returns the next guess.
+	 *
+	 * @return
+	 * @throws IllegalStateException if a board has no candidate left
+	 */
+	public int[] nextGuess() {
+		scored = 0;
+		if(turn == 0) {
+			return ConsistentSolver.openingGuess(space);
+		}
+		for(int b=0; b<numBoards; b++) {
+			if(!isSolved(b) && counts[b] == 0) {
+				throw new IllegalStateException("No code is consistent with board " + b);
+			}
+		}
+		// a board with one candidate left is played out
+		for(int i=0; i<size; i++) {
+			long on = boards[i];
+			while(on != 0) {
+				int b = Long.numberOfTrailingZeros(on);
+				on &= on - 1;
+				if(counts[b] == 1) {
+					return space.unpack(codes[i]);
+				}
+			}
+		}
+		// spreads of the union to try, and to split
+		int numGuesses = Math.min(MAX_SCORED, size);
+		int numSplit = Math.min(MAX_SPLIT, size);
+		long[] split = new long[numSplit];
+		long[] splitBoards = new long[numSplit];
+		int[] splitCounts = new int[numBoards];
+		for(int j=0; j<numSplit; j++) {
+			int i = (int)((long)j * size / numSplit);
+			split[j] = codes[i];
+			splitBoards[j] = boards[i];
+			for(long on=boards[i]; on!=0; on&=on-1) {
+				splitCounts[Long.numberOfTrailingZeros(on)]++;
+			}
+		}
+		int numKeys = space.numFeedbackKeys();
+		int[] histograms = new int[numBoards * numKeys];
+		long best = -1;
+		double bestScore = -1;
+		for(int g=0; g<numGuesses; g++) {
+			int i = (int)((long)g * size / numGuesses);
+			CodeSpace.Signature signature = space.signature(codes[i]);
+			Arrays.fill(histograms, 0);
+			for(int j=0; j<numSplit; j++) {
+				int key = signature.score(split[j]);
+				for(long on=splitBoards[j]; on!=0; on&=on-1) {
+					histograms[Long.numberOfTrailingZeros(on) * numKeys + key]++;
+				}
+			}
+			scored += numSplit;
+			double score = 0;
+			for(int b=0; b<numBoards; b++) {
+				if(splitCounts[b] == 0) {
+					continue;
+				}
+				score += entropy(histograms, b * numKeys, numKeys, splitCounts[b]);
+			}
+			for(long on=boards[i]; on!=0; on&=on-1) {
+				score += 1.0 / counts[Long.numberOfTrailingZeros(on)];
+			}
+			if(score > bestScore) {
+				best = codes[i];
+				bestScore = score;
+			}
+		}
+		return space.unpack(best);
+	}
+
+	// the entropy in bits of the numKeys counts from histogram[from], which
+	// add up to total
+	private static double entropy(int[] histogram, int from, int numKeys, int total) {
+		double sum = 0;
+		for(int key=from; key<from+numKeys; key++) {
+			int h = histogram[key];
+			if(h > 0) {
+				sum += h * Math.log(h);
+			}
+		}
+		return (Math.log(total) - sum / total) / Math.log(2);
+	}
+
+	/**
+	 * Takes in the results of a guess, one per board.
+	 *
+	 * @param results a result per board, null for a board solved by an
+	 * earlier guess
+	 */
+	public void update(GuessInfo[] results) {
+		turn++;
+		int[] guess = null;
+		int[] keys = new int[numBoards];
+		for(int b=0; b<numBoards; b++) {
+			if(results[b] == null) {
+				keys[b] = -1;
+				continue;
+			}
+			guess = results[b].getGuess();
+			keys[b] = space.feedbackKey(results[b].getPositionMatches(),
+					results[b].getNonPositionalMatches());
+			if(keys[b] == space.winningKey()) {
+				unsolved &= ~(1L << b);
+			}
+		}
+		if(guess == null) {
+			return;
+		}
+		CodeSpace.Signature signature = space.signature(space.pack(guess));
+		Arrays.fill(counts, 0);
+		int kept = 0;
+		for(int i=0; i<size; i++) {
+			int key = signature.score(codes[i]);
+			long on = boards[i] & unsolved;
+			for(long left=on; left!=0; left&=left-1) {
+				int b = Long.numberOfTrailingZeros(left);
+				if(keys[b] != key) {
+					on &= ~(1L << b);
+				}
+			}
+			if(on != 0) {
+				codes[kept] = codes[i];
+				boards[kept] = on;
+				kept++;
+				for(long left=on; left!=0; left&=left-1) {
+					counts[Long.numberOfTrailingZeros(left)]++;
+				}
+			}
+		}
+		size = kept;
+	}
+
+	/**
+	 * Returns a copy that can be updated on its own.
+	 *
+	 * @return
+	 */
+	public MultiBoardSolver copy() {
+		return new MultiBoardSolver(this);
+	}
+}
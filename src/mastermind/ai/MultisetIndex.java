@@ -0,0 +1,177 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.util.*;
+
+/**
+ * Groups the candidates of a CandidateSet by their multiset of elements--
+ * which elements they hold and how many of each, ignoring positions.
+ *
+ * The blacks plus whites a guess scores against a code depend only on the
+ * two multisets, so a filter can work that total out once per group and
+ * skip every code in a group whose total doesn't match the feedback.  Only
+ * the codes left need their blacks counted.
+ *
+ * The index keeps a group number for each candidate, in the same order as
+ * the set, and the set moves them along with its codes as it filters.  A
+ * code's multiset is keyed by its element counts packed into a long, so
+ * spaces with too many elements for that can't be indexed--see canIndex().
+ *
+ * @author drogers
+ */
+class MultisetIndex {
+
+	private CodeSpace space;
+
+	// bits for each element's count in a key
+	private int countBits;
+
+	// the group of each candidate, 0 to numGroups-1
+	private int[] groups;
+	private int numGroups;
+
+	private MultisetIndex(CodeSpace space, int[] groups, int numGroups) {
+		this.space = space;
+		this.countBits = countBits(space);
+		this.groups = groups;
+		this.numGroups = numGroups;
+	}
+
+	private static int countBits(CodeSpace space) {
+		return 32 - Integer.numberOfLeadingZeros(space.getGuessLength());
+	}
+
+	/**
+	 * Returns true if the codes of space can be indexed--if the count of
+	 * every element fits in a long.
+	 *
+	 * @param space
+	 * @return
+	 */
+	static boolean canIndex(CodeSpace space) {
+		return countBits(space) * space.getNumElements() <= 64;
+	}
+
+	/**
+	 * Groups codes.get(0) to codes.get(size-1).
+	 *
+	 * @param space
+	 * @param codes
+	 * @param size
+	 * @return
+	 */
+	static MultisetIndex build(CodeSpace space, CodeStore codes, int size) {
+		MultisetIndex index = new MultisetIndex(space, new int[size], 0);
+		// open addressing from key to group number--keys are never 0
+		long[] keys = new long[1024];
+		int[] numbers = new int[keys.length];
+		for(int i=0; i<size; i++) {
+			long key = index.key(codes.get(i));
+			int slot = slot(key, keys.length);
+			while(keys[slot] != 0 && keys[slot] != key) {
+				slot = (slot + 1) & (keys.length - 1);
+			}
+			if(keys[slot] == 0) {
+				keys[slot] = key;
+				numbers[slot] = index.numGroups++;
+				if(2 * index.numGroups > keys.length) {
+					long[] oldKeys = keys;
+					int[] oldNumbers = numbers;
+					keys = new long[2 * oldKeys.length];
+					numbers = new int[keys.length];
+					for(int j=0; j<oldKeys.length; j++) {
+						if(oldKeys[j] != 0) {
+							int s = slot(oldKeys[j], keys.length);
+							while(keys[s] != 0) {
+								s = (s + 1) & (keys.length - 1);
+							}
+							keys[s] = oldKeys[j];
+							numbers[s] = oldNumbers[j];
+						}
+					}
+					slot = slot(key, keys.length);
+					while(keys[slot] != key) {
+						slot = (slot + 1) & (keys.length - 1);
+					}
+				}
+			}
+			index.groups[i] = numbers[slot];
+		}
+		return index;
+	}
+
+	private static int slot(long key, int tableSize) {
+		return (int)((key * 0x9E3779B97F4A7C15L) >>> 32) & (tableSize - 1);
+	}
+
+	// the count of each element of code, countBits apiece
+	private long key(long code) {
+		long key = 0;
+		for(int i=0; i<space.getGuessLength(); i++) {
+			key += 1L << (countBits * space.element(code, i));
+		}
+		return key;
+	}
+
+	/**
+	 * Returns a copy of the groups of the first size candidates.
+	 *
+	 * @param size
+	 * @return
+	 */
+	MultisetIndex copy(int size) {
+		return new MultisetIndex(space, Arrays.copyOf(groups, size), numGroups);
+	}
+
+	/**
+	 * Returns an index of the same groups for size candidates, each in
+	 * group 0 until set.
+	 *
+	 * @param size
+	 * @return
+	 */
+	MultisetIndex empty(int size) {
+		return new MultisetIndex(space, new int[size], numGroups);
+	}
+
+	/**
+	 * Returns the group of candidate i.
+	 *
+	 * @param i
+	 * @return
+	 */
+	int group(int i) {
+		return groups[i];
+	}
+
+	/**
+	 * Sets the group of candidate i--for moving candidates.
+	 *
+	 * @param i
+	 * @param group
+	 */
+	void set(int i, int group) {
+		groups[i] = group;
+	}
+
+	/**
+	 * Returns the number of groups there were when the index was built--
+	 * some may be empty now.
+	 *
+	 * @return
+	 */
+	int numGroups() {
+		return numGroups;
+	}
+
+	long memoryUsed() {
+		return 4L * groups.length;
+	}
+}
@@ -0,0 +1,285 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+import mastermind.gui.GameDialog;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Generates the strategy files--see StrategyFile--for every game the
+ * GameDialog offers, in one run, into a directory that becomes the ai's
+ * strategy cache.  The number of guesses allowed doesn't change a
+ * strategy, so a configuration is a guess length, a number of elements,
+ * and whether elements can repeat.
+ *
+ * Each configuration is a task in one fork/join pool, largest first, and
+ * each evaluates a ConsistentSolver there--StrategyEvaluator walks big
+ * subtrees as tasks of its caller's pool.  So a big configuration's walk
+ * is split up and stolen by threads done with the small ones, and every
+ * thread has work until the last walk is done.
+ *
+ * A configuration is skipped if its file is up to date--it maps as a
+ * strategy of the current version, for the same space--unless forced, or
+ * if its space has more than maxCodes codes.  Files are written to a
+ * temporary file in the directory and then moved into place, so a run
+ * that is stopped leaves no file half written.
+ *
+ * @author drogers
+ */
+public class OpeningBooks {
+
+	private File directory;
+	private long maxCodes = 1 << 20;
+	private boolean force = false;
+	private PrintStream progress = null;
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+
+	// what the last run did
+	private AtomicInteger written = new AtomicInteger();
+	private AtomicInteger upToDate = new AtomicInteger();
+	private AtomicInteger tooBig = new AtomicInteger();
+	private AtomicInteger failed = new AtomicInteger();
+
+	/**
+	 * Creates a generator writing to directory.
+	 *
+	 * @param directory
+	 */
+	public OpeningBooks(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Sets the most codes a space can have to be generated.
+	 *
+	 * @param maxCodes
+	 */
+	public void setMaxCodes(long maxCodes) {
+		this.maxCodes = maxCodes;
+	}
+
+	/**
+	 * Sets whether files that are up to date are generated again.
+	 *
+	 * @param force
+	 */
+	public void setForce(boolean force) {
+		this.force = force;
+	}
+
+	/**
+	 * Sets where each configuration is reported, null for nowhere.
+	 *
+	 * @param progress
+	 */
+	public void setProgress(PrintStream progress) {
+		this.progress = progress;
+	}
+
+	/**
+	 * Sets the number of threads in the pool.
+	 *
+	 * @param numThreads
+	 */
+	public void setThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Returns every configuration the GameDialog offers, ignoring the
+	 * number of guesses: each guess length with each number of elements,
+	 * with repeats, and without if there are enough elements.
+	 *
+	 * @return
+	 */
+	public static List<CodeSpace> configurations() {
+		List<CodeSpace> spaces = new ArrayList<CodeSpace>();
+		for(int n : GameDialog.GUESS_LENGTHS) {
+			for(int k : GameDialog.ELEMENT_COUNTS) {
+				spaces.add(new CodeSpace(n, k, false));
+				if(k >= n) {
+					spaces.add(new CodeSpace(n, k, true));
+				}
+			}
+		}
+		return spaces;
+	}
+
+	/**
+	 * Returns true if the file for space in the directory maps as a
+	 * strategy of the current version for space.
+	 *
+	 * @param space
+	 * @return
+	 */
+	public boolean isUpToDate(CodeSpace space) {
+		File file = new File(directory, StrategyFile.fileName(space));
+		if(!file.isFile()) {
+			return false;
+		}
+		try {
+			return StrategyFile.map(file).getSpace().toString().equals(space.toString());
+		} catch(IOException e) {
+			return false;
+		} catch(IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Generates the files for every configuration that needs one.
+	 *
+	 * @throws IOException if the directory can't be made
+	 */
+	public void generate() throws IOException {
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Can't make directory " + directory);
+		}
+		written.set(0);
+		upToDate.set(0);
+		tooBig.set(0);
+		failed.set(0);
+		List<CodeSpace> spaces = configurations();
+		Collections.sort(spaces, new Comparator<CodeSpace>() {
+			public int compare(CodeSpace a, CodeSpace b) {
+				return Long.compare(b.size(), a.size());
+			}
+		});
+		final List<Book> books = new ArrayList<Book>();
+		for(CodeSpace space : spaces) {
+			books.add(new Book(space));
+		}
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+		try {
+			pool.invoke(new RecursiveAction() {
+				protected void compute() {
+					invokeAll(books);
+				}
+			});
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the number of files written by the last run.
+	 *
+	 * @return
+	 */
+	public int getWritten() {
+		return written.get();
+	}
+
+	/**
+	 * Returns the number of configurations the last run found up to date.
+	 *
+	 * @return
+	 */
+	public int getUpToDate() {
+		return upToDate.get();
+	}
+
+	/**
+	 * Returns the number of configurations the last run skipped for having
+	 * more than maxCodes codes.
+	 *
+	 * @return
+	 */
+	public int getTooBig() {
+		return tooBig.get();
+	}
+
+	/**
+	 * Returns the number of files the last run couldn't write.
+	 *
+	 * @return
+	 */
+	public int getFailed() {
+		return failed.get();
+	}
+
+	private void report(CodeSpace space, String what) {
+		if(progress != null) {
+			progress.println(space + ": " + what);
+		}
+	}
+
+	// the task for one configuration
+	@SuppressWarnings("serial")
+	private class Book extends RecursiveAction {
+		private CodeSpace space;
+
+		Book(CodeSpace space) {
+			this.space = space;
+		}
+
+		protected void compute() {
+			if(space.size() > maxCodes) {
+				tooBig.incrementAndGet();
+				report(space, space.size() + " codes, too big");
+				return;
+			}
+			if(!force && isUpToDate(space)) {
+				upToDate.incrementAndGet();
+				report(space, "up to date");
+				return;
+			}
+			long start = System.currentTimeMillis();
+			StrategyEvaluator.Node root = new StrategyEvaluator(space).evaluate(
+					new ConsistentSolver(space));
+			File file = new File(directory, StrategyFile.fileName(space));
+			File temp = null;
+			try {
+				temp = File.createTempFile(file.getName(), ".tmp", directory);
+				StrategyFile.write(root, space, temp);
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch(IOException e) {
+				if(temp != null) {
+					temp.delete();
+				}
+				failed.incrementAndGet();
+				report(space, "failed: " + e);
+				return;
+			}
+			written.incrementAndGet();
+			report(space, root.getNumNodes() + " nodes, " +
+					String.format("avg=%.4f", root.getAverage()) + ", written in " +
+					(System.currentTimeMillis() - start) + " ms");
+		}
+	}
+
+	/**
+	 * Generates the files for every configuration.  Arguments, all
+	 * optional, are the directory--StrategyFile.directory() if not given--
+	 * the most codes a space can have, and "force" to generate files that
+	 * are up to date.
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		OpeningBooks books = new OpeningBooks(args.length > 0 ? new File(args[0]) :
+			StrategyFile.directory());
+		if(args.length > 1) {
+			books.setMaxCodes(Long.parseLong(args[1]));
+		}
+		books.setForce(args.length > 2 && args[2].equalsIgnoreCase("force"));
+		books.setProgress(System.out);
+		long start = System.currentTimeMillis();
+		books.generate();
+		System.out.println(books.getWritten() + " written, " + books.getUpToDate() +
+				" up to date, " + books.getTooBig() + " too big, " + books.getFailed() +
+				" failed, in " + (System.currentTimeMillis() - start) + " ms");
+	}
+}
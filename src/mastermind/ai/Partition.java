@@ -0,0 +1,110 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+/**
+ * How a guess splits a set of candidates by feedback--the measures a
+ * solver ranks guesses by, all worked out from one histogram of feedback
+ * keys.  See CandidateSet.partition(), which fills the histogram with one
+ * pass over the candidates.
+ *
+ * @author drogers
+ */
+public class Partition {
+
+	private final int total;
+	private final int numParts;
+	private final int maxPart;
+	private final double expectedSize;
+	private final double entropy;
+
+	/**
+	 * Works out the measures from histogram[0] to histogram[numKeys-1],
+	 * each the number of candidates giving that feedback key.
+	 *
+	 * @param histogram
+	 * @param numKeys
+	 */
+	public Partition(int[] histogram, int numKeys) {
+		int total = 0, numParts = 0, maxPart = 0;
+		double sumSquares = 0, sumCLogC = 0;
+		for(int k=0; k<numKeys; k++) {
+			int c = histogram[k];
+			if(c == 0) {
+				continue;
+			}
+			total += c;
+			numParts++;
+			maxPart = Math.max(maxPart, c);
+			sumSquares += (double)c * c;
+			sumCLogC += c * Math.log(c);
+		}
+		this.total = total;
+		this.numParts = numParts;
+		this.maxPart = maxPart;
+		if(total == 0) {
+			expectedSize = entropy = 0;
+		} else {
+			expectedSize = sumSquares / total;
+			// -sum p log p, with p = c/total, in bits
+			entropy = (Math.log(total) - sumCLogC / total) / Math.log(2);
+		}
+	}
+
+	/**
+	 * Returns the number of candidates partitioned.
+	 *
+	 * @return
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns the number of feedbacks that at least one candidate gives.
+	 *
+	 * @return
+	 */
+	public int getNumParts() {
+		return numParts;
+	}
+
+	/**
+	 * Returns the size of the biggest part--the most candidates that can
+	 * be left after the guess.
+	 *
+	 * @return
+	 */
+	public int getMaxPart() {
+		return maxPart;
+	}
+
+	/**
+	 * Returns the expected number of candidates left after the guess, if
+	 * the secret is any candidate with equal chance.
+	 *
+	 * @return
+	 */
+	public double getExpectedSize() {
+		return expectedSize;
+	}
+
+	/**
+	 * Returns the entropy of the feedback in bits--how much the guess is
+	 * expected to tell.
+	 *
+	 * @return
+	 */
+	public double getEntropy() {
+		return entropy;
+	}
+
+	public String toString() {
+		return String.format("parts=%d max=%d expected=%.2f entropy=%.3f",
+				numParts, maxPart, expectedSize, entropy);
+	}
+}
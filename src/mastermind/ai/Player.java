@@ -11,19 +11,52 @@ import mastermind.gui.*;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import javax.swing.*;
+import javax.swing.Timer;
 
 
 /**
  * The player encapsulates the interaction between the ai and the MasterMind game.
- * See Brain for the implementation of the ai.
+ * See SolverChoice for the solvers the ai can play with--games with blacks
+ * only are played with a BlackPegSolver, and multi-board games with a
+ * MultiBoardSolver.
+ * Solvers play with elements 0 to n-1; the player translates these to the
+ * indices of the n elements selected for the game.
+ * 
+ * The solver is never updated or asked for a guess on the timer thread.
+ * While the timer waits guessDelay between moves the player thinks ahead:
+ * as soon as the next guess is known, it works out in parallel what the
+ * solver would do for every possible result of that guess.  When the real
+ * result comes in, the matching solver and its next guess are picked up.
+ * If that one isn't done, the solver is updated and asked for its guess
+ * in the background instead, and the timer skips its ticks until the
+ * guess is known.  Thinking ahead is left out for solvers whose every
+ * result costs a lot to think about--see speculates()--and multi-board
+ * games, as a guess has a result for each board.  A multi-board solver
+ * is made, updated and asked for its guesses in the background too.
  * 
  * @author drogers
  *
  */
 public class Player implements ActionListener {
-	private Brain brain = null;
+	private Solver solver = null;
+	
+	// the solver for a multi-board game, null otherwise or until made
+	private MultiBoardSolver multiSolver = null;
+	
+	// the space of a multi-board game, null otherwise
+	private CodeSpace multiSpace = null;
+	
+	// the multi-board solver's next guess, being worked out in the
+	// background--the solver is left alone until done
+	private Future<int[]> multiGuess = null;
+	
+	// indices of the elements selected for the game--solver element i is
+	// elementIndices[i]
+	private int[] elementIndices;
 	
 	// game this player plays
 	private MasterMind mm = null;
@@ -39,12 +72,68 @@ public class Player implements ActionListener {
 	
 	private Timer timer = new Timer(guessDelay, this);
 	
+	// threads that think ahead while the timer waits--shared by all players
+	private static final ExecutorService thinkers = Executors.newFixedThreadPool(
+			Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "mastermind-ai-speculation");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+	
+	// the most candidates a ConsistentSolver can hold to be thought
+	// ahead--each result filters them all
+	private static final int MAX_SPECULATED = 1 << 16;
+	
+	// the solver's guess to play at the next tick, null if it is being
+	// worked out
+	private int[] nextGuess = null;
+	
+	// the solver updated with the last result, and its next guess, being
+	// worked out in the background--the solver is left alone until done
+	private Future<Speculation> thought = null;
+	
+	// the solver's last guess
+	private int[] lastGuess = null;
+	
+	// solvers that have been updated with each possible result of nextGuess,
+	// indexed by the result's Feedback id--empty if not speculating
+	private java.util.List<Future<Speculation>> speculations =
+		new ArrayList<Future<Speculation>>();
+	
 	public Player() {}
 	
 	public Player(MasterMind game) {
 		this.mm = game;
 		this.engine = mm.getEngine();
-		this.brain = new Brain(mm);
+		this.elementIndices = engine.getUserControl().getSelectedElementIndexes();
+		if(engine.getBoards() > 1) {
+			// made in the background--see play()
+			this.multiSpace = new CodeSpace(engine.guessLength, elementIndices.length,
+					engine.isNoDuplicates());
+		} else if(engine.isBlackOnly()) {
+			// the other solvers count on the whites
+			this.solver = new BlackPegSolver(engine.guessLength, elementIndices.length,
+					engine.isNoDuplicates());
+		} else {
+			this.solver = mm.getSolverChoice().create(new CodeSpace(engine.guessLength,
+					elementIndices.length, engine.isNoDuplicates()));
+		}
+	}
+	
+	/**
+	 * Creates a player using a particular solver, which must be set up for
+	 * the game's guess length and number of selected elements.
+	 * 
+	 * @param game
+	 * @param solver
+	 */
+	public Player(MasterMind game, Solver solver) {
+		this.mm = game;
+		this.engine = mm.getEngine();
+		this.elementIndices = engine.getUserControl().getSelectedElementIndexes();
+		this.solver = solver;
 	}
 	
 	/**
@@ -53,14 +142,48 @@ public class Player implements ActionListener {
 	 * Pre:  game must be initialized properly.
 	 */
 	public void play() {
+		if(multiSpace != null) {
+			final CodeSpace space = multiSpace;
+			final int numBoards = engine.getBoards();
+			multiGuess = thinkers.submit(new Callable<int[]>() {
+				public int[] call() {
+					multiSolver = new MultiBoardSolver(space, numBoards);
+					return multiSolver.nextGuess();
+				}
+			});
+		} else {
+			think(null);
+		}
 		timer.start();
 	}
 	
 	@Override
 	public void actionPerformed(ActionEvent e) {
-		GuessInfo guessResult = makeGuess();
+		if(multiSpace != null ? !multiGuess.isDone()
+				: nextGuess == null && !thought.isDone()) {
+			// still thinking--try again at the next tick
+			return;
+		}
+		if(multiSpace == null && nextGuess == null) {
+			Speculation s = result(thought);
+			thought = null;
+			solver = s.solver;
+			nextGuess = s.guess;
+			speculations = s.next;
+		}
+		GuessInfo guessResult = null;
+		GuessInfo[] boardResults = null;
+		if(multiSpace != null) {
+			boardResults = makeMultiBoardGuess(result(multiGuess));
+		} else {
+			guessResult = makeGuess();
+		}
 		// end of game stuff
 		if(engine.hasWon() || engine.hasLost() ) {
+			cancelSpeculations();
+			if(thought != null) {
+				thought.cancel(true);
+			}
 			engine.setGameIsInitialized(false);
 			engine.getUserControl().stop();
 
@@ -76,7 +199,22 @@ public class Player implements ActionListener {
 			
 			return;
 		}
-		brain.update(guessResult);
+		if(multiSpace != null) {
+			final GuessInfo[] local = new GuessInfo[boardResults.length];
+			for(int b=0; b<local.length; b++) {
+				if(boardResults[b] != null) {
+					local[b] = new GuessInfo(lastGuess, boardResults[b].getFeedback());
+				}
+			}
+			multiGuess = thinkers.submit(new Callable<int[]>() {
+				public int[] call() {
+					multiSolver.update(local);
+					return multiSolver.nextGuess();
+				}
+			});
+		} else {
+			observeAndThink(guessResult);
+		}
 		gCounter++;
 	}
 	
@@ -84,8 +222,17 @@ public class Player implements ActionListener {
 		Board board = engine.getBoard();
 		GuessInfo result = null;
 		
+		lastGuess = nextGuess;
+		if(lastGuess == null) {
+			// not playing--nothing is being worked out
+			lastGuess = solver.nextGuess();
+		}
+		nextGuess = null;
 		// array of the indices of the elements in the guess
-		int[] guess = brain.nextGuess();
+		int[] guess = new int[lastGuess.length];
+		for(int i=0; i<guess.length; i++) {
+			guess[i] = elementIndices[lastGuess[i]];
+		}
 		// show on the board
 		GuessPanel[] panels =
             board.getPanelsInRow(engine.getCurrentGuessIndex());
@@ -101,8 +248,206 @@ public class Player implements ActionListener {
 		return result;
 	}
 	
+	// the result of a finished task--stops the game if it failed
+	private <T> T result(Future<T> task) {
+		try {
+			return task.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(ex);
+		} catch (ExecutionException ex) {
+			timer.stop();
+			throw new RuntimeException(ex.getCause());
+		}
+	}
+	
+	/**
+	 * Makes the multi-board solver's guess, and shows it and its result
+	 * on each board.
+	 * 
+	 * @param solverGuess the guess, in the solver's elements
+	 * @return a result per board, null for one already solved
+	 */
+	public GuessInfo[] makeMultiBoardGuess(int[] solverGuess) {
+		Board board = engine.getBoard();
+		lastGuess = solverGuess;
+		int[] guess = new int[lastGuess.length];
+		for(int i=0; i<guess.length; i++) {
+			guess[i] = elementIndices[lastGuess[i]];
+		}
+		GuessPanel[] panels =
+			board.getPanelsInRow(engine.getCurrentGuessIndex());
+		for(int i=0; i<guess.length; i++) {
+			panels[i].select(board.getElement(guess[i]));
+			panels[i].setIndex(guess[i]);
+		}
+		GuessInfo[] results = engine.compareAll(guess);
+		board.showGuessResults(engine.getCurrentGuessIndex() - 1, results);
+		return results;
+	}
+	
+	/**
+	 * Updates the solver with the result of the last guess--using the
+	 * speculative solver for that result if it is ready, and otherwise in
+	 * the background--and starts thinking ahead about the next guess.
+	 * 
+	 * @param result
+	 */
 	public void observeAndThink(GuessInfo result) {
-		brain.update(result);
+		result = new GuessInfo(lastGuess, result.getFeedback());
+		Speculation s = takeSpeculation(result);
+		if(s != null) {
+			solver = s.solver;
+			nextGuess = s.guess;
+			speculations = speculate(solver, nextGuess);
+		} else {
+			think(result);
+		}
+	}
+	
+	// updates the solver with result, if not null, and works out its
+	// next guess and the speculations on it, in the background
+	private void think(final GuessInfo result) {
+		final Solver thinker = solver;
+		thought = thinkers.submit(new Callable<Speculation>() {
+			public Speculation call() {
+				if(result != null) {
+					thinker.update(result);
+				}
+				Speculation s = new Speculation();
+				s.solver = thinker;
+				s.guess = thinker.nextGuess();
+				s.next = speculate(thinker, s.guess);
+				return s;
+			}
+		});
+	}
+	
+	/**
+	 * Returns true if thinking ahead about every result of solver's next
+	 * guess costs little enough to do.  It doesn't for a SamplingSolver,
+	 * which spends its whole time budget--as long as guessDelay by
+	 * default--on every guess, so no copy would be done by the next tick
+	 * and each would hold up the others; for a GeneticSolver, which
+	 * breeds generations in parallel for every guess; or for a
+	 * ConsistentSolver with more than MAX_SPECULATED candidates to filter
+	 * for every result.
+	 * 
+	 * @param solver
+	 * @return
+	 */
+	public static boolean speculates(Solver solver) {
+		if(solver instanceof SamplingSolver || solver instanceof GeneticSolver) {
+			return false;
+		}
+		if(solver instanceof ConsistentSolver) {
+			CandidateSet candidates = ((ConsistentSolver)solver).getCandidates();
+			return candidates != null && candidates.size() <= MAX_SPECULATED;
+		}
+		return true;
+	}
+	
+	// submits a task for each possible result of guess, each with its own
+	// copy of solver, indexed by the result's Feedback id--none if solver
+	// isn't thought ahead.  The copies are made here, by the thread
+	// that has solver.
+	private java.util.List<Future<Speculation>> speculate(Solver solver, int[] guess) {
+		java.util.List<Future<Speculation>> futures =
+			new ArrayList<Future<Speculation>>();
+		if(!speculates(solver)) {
+			return futures;
+		}
+		int length = guess.length;
+		// the last id is the win, which needs no thinking about
+		for(int id = 0; id < Feedback.numIds(length) - 1; id++) {
+			Feedback feedback = Feedback.fromId(length, id);
+			if(engine.isBlackOnly() && feedback.getWhite() != 0) {
+				// can't happen--holds the place of the id
+				futures.add(null);
+				continue;
+			}
+			final Solver copy = solver.copy();
+			final GuessInfo result = new GuessInfo(guess, feedback);
+			futures.add(thinkers.submit(new Callable<Speculation>() {
+				public Speculation call() {
+					return Speculation.think(copy, result);
+				}
+			}));
+		}
+		return futures;
+	}
+	
+	// returns the finished speculation matching result, null if there is
+	// none--does not wait for one still being worked on
+	private Speculation takeSpeculation(GuessInfo result) {
+		int id = result.getFeedback().getId();
+		Future<Speculation> f = null;
+		if(id < speculations.size()) {
+			f = speculations.set(id, null);
+		}
+		cancelSpeculations();
+		if(f == null || !f.isDone() || f.isCancelled()) {
+			if(f != null) {
+				f.cancel(true);
+			}
+			return null;
+		}
+		try {
+			return f.get();
+		} catch (Exception e) {
+			return null;
+		}
+	}
+	
+	// stops the speculations, interrupting those being worked on so the
+	// next move's don't queue behind them
+	private void cancelSpeculations() {
+		for(Future<Speculation> f : speculations) {
+			if(f != null) {
+				f.cancel(true);
+			}
+		}
+		speculations.clear();
+	}
+	
+	/**
+	 * A solver updated with one possible result, and the guess it would
+	 * make next.
+	 */
+	private static class Speculation {
+		Solver solver;
+		int[] guess;
+		
+		// speculations on the results of guess
+		java.util.List<Future<Speculation>> next;
+		
+		// returns null if the solver does not expect this result, or the
+		// thinking is cancelled
+		static Speculation think(Solver solver, GuessInfo result) {
+			if(Thread.currentThread().isInterrupted()) {
+				return null;
+			}
+			try {
+				// Brain complains about results it doesn't expect, so
+				// ask it quietly
+				if(solver instanceof Brain) {
+					if(!((Brain)solver).apply(result)) {
+						return null;
+					}
+				} else {
+					solver.update(result);
+				}
+				if(Thread.currentThread().isInterrupted()) {
+					return null;
+				}
+				Speculation s = new Speculation();
+				s.solver = solver;
+				s.guess = solver.nextGuess();
+				return s;
+			} catch (RuntimeException e) {
+				return null;
+			}
+		}
 	}
 	/**
 	 * @param args
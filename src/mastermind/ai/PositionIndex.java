@@ -0,0 +1,290 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.util.*;
+
+/**
+ * An inverted index of the candidates of a CandidateSet: for each position
+ * and element, a bitset of the candidates holding that element in that
+ * position, and for each element and count j, a bitset of the candidates
+ * holding at least j of that element.  Bit i of a bitset is candidate i.
+ *
+ * The blacks a guess scores against a candidate are the number of the
+ * guess's position bitsets--one per position--with the candidate's bit
+ * set.  The blacks plus whites are the sum over elements of the smaller
+ * of the two codes' counts, which is the number of the guess's count 
+ * bitsets with the bit set: for an element the guess holds c of, the 
+ * bitsets for at least 1 to at least c.  That is again one bitset per
+ * position of the guess.
+ *
+ * matching() counts both for 64 candidates at a time by adding the 
+ * bitsets' words into bit-sliced counters: plane q of a counter holds bit
+ * q of each candidate's count.  The candidates with exactly some count
+ * are then a combination of the planes.  So the work is a few logic 
+ * operations per position per 64 candidates, and the index is read
+ * straight through.
+ *
+ * The index takes 2 * guessLength * numElements bits a candidate, and is
+ * only made when that is no more than twice the 64 the code itself takes--
+ * see canIndex().  It describes the candidates it was built from, so a 
+ * set replaces it when it filters, with one a Builder makes from the codes
+ * kept as the filter moves them.
+ *
+ * @author drogers
+ */
+class PositionIndex {
+
+	private CodeSpace space;
+	private int size;
+	private int words;
+
+	// positions[position * numElements + element][word]
+	private long[][] positions;
+	
+	// counts[element * guessLength + j - 1][word], for at least j
+	private long[][] counts;
+
+	private PositionIndex(CodeSpace space, int size) {
+		this.space = space;
+		this.size = size;
+		this.words = (size + 63) >>> 6;
+		int rows = space.getGuessLength() * space.getNumElements();
+		this.positions = new long[rows][words];
+		this.counts = new long[rows][words];
+	}
+
+	/**
+	 * Returns true if the codes of space can be indexed for no more than
+	 * twice the memory the codes themselves take.
+	 *
+	 * @param space
+	 * @return
+	 */
+	static boolean canIndex(CodeSpace space) {
+		return space.getGuessLength() * space.getNumElements() <= 64;
+	}
+
+	/**
+	 * Indexes codes.get(0) to codes.get(size-1).
+	 *
+	 * @param space
+	 * @param codes
+	 * @param size
+	 * @return
+	 */
+	static PositionIndex build(CodeSpace space, CodeStore codes, int size) {
+		Builder builder = new Builder(space, size);
+		for(int i=0; i<size; i++) {
+			builder.add(codes.get(i));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Indexes codes as they are added, 64 at a time--so a set that
+	 * filters can index the codes it keeps as it moves them.  A block of
+	 * 64 codes is transposed as a 64 by 64 bit matrix, giving a word for
+	 * each bit of the codes with a bit for each code.  A position bitset's
+	 * word is then an AND of the words for its field's bits, and the count
+	 * bitsets' words follow from those.  The words of BLOCKS blocks are
+	 * held and stored together, so each bitset is written a cache line at
+	 * a time rather than a word.
+	 */
+	static class Builder {
+		// the swap masks of the transpose, for blocks of 32 bits down to 1
+		private static final long[] TRANSPOSE_MASKS = {
+			0x00000000FFFFFFFFL, 0x0000FFFF0000FFFFL, 0x00FF00FF00FF00FFL,
+			0x0F0F0F0F0F0F0F0FL, 0x3333333333333333L, 0x5555555555555555L
+		};
+
+		// blocks whose words are held before they are stored
+		private static final int BLOCKS = 8;
+
+		private PositionIndex index;
+		private int n;
+		private int k;
+		private int rows;
+		// field bits an element can use
+		private int bits;
+		// the block of codes being added, then its bits
+		private long[] block = new long[64];
+		// the words held, BLOCKS for each position bitset and then each
+		// count bitset
+		private long[] held;
+		private int numHeld = 0;
+		// the at least j words of an element
+		private long[] atLeast;
+		// codes added, and words stored
+		private int added = 0;
+		private int stored = 0;
+
+		/**
+		 * Creates a builder for an index of size codes.
+		 *
+		 * @param space
+		 * @param size
+		 */
+		Builder(CodeSpace space, int size) {
+			index = new PositionIndex(space, size);
+			n = space.getGuessLength();
+			k = space.getNumElements();
+			rows = n * k;
+			bits = 32 - Integer.numberOfLeadingZeros(k - 1);
+			held = new long[2 * rows * BLOCKS];
+			atLeast = new long[n + 1];
+		}
+
+		/**
+		 * Adds the next code.
+		 *
+		 * @param c packed code
+		 */
+		void add(long c) {
+			block[added & 63] = c;
+			if((++added & 63) == 0) {
+				index(-1L);
+			}
+		}
+
+		/**
+		 * Returns the index, once all size codes have been added.
+		 *
+		 * @return
+		 */
+		PositionIndex build() {
+			if((added & 63) != 0) {
+				index((1L << added) - 1);
+			}
+			store();
+			return index;
+		}
+
+		// works out and holds the words of the block of codes added since
+		// the last one--the codes are the bits of valid
+		private void index(long valid) {
+			transpose(block);
+			int width = index.space.getBitsPerPeg();
+			for(int p=0; p<n; p++) {
+				for(int e=0; e<k; e++) {
+					long m = valid;
+					for(int b=0; b<bits; b++) {
+						long plane = block[p * width + b];
+						m &= ((e >>> b) & 1) != 0 ? plane : ~plane;
+					}
+					held[(p * k + e) * BLOCKS + numHeld] = m;
+				}
+			}
+			for(int e=0; e<k; e++) {
+				Arrays.fill(atLeast, 0);
+				atLeast[0] = valid;
+				for(int p=0; p<n; p++) {
+					long m = held[(p * k + e) * BLOCKS + numHeld];
+					for(int j=p+1; j>0; j--) {
+						atLeast[j] |= atLeast[j - 1] & m;
+					}
+				}
+				for(int j=1; j<=n; j++) {
+					held[(rows + e * n + j - 1) * BLOCKS + numHeld] = atLeast[j];
+				}
+			}
+			if(++numHeld == BLOCKS) {
+				store();
+			}
+		}
+
+		// stores the words held
+		private void store() {
+			for(int r=0; r<rows; r++) {
+				System.arraycopy(held, r * BLOCKS, index.positions[r], stored, numHeld);
+				System.arraycopy(held, (rows + r) * BLOCKS, index.counts[r], stored, numHeld);
+			}
+			stored += numHeld;
+			numHeld = 0;
+		}
+
+		// transposes a 64 by 64 bit matrix in place, bit q of a[i] going
+		// to bit i of a[q], by swapping ever smaller off-diagonal blocks
+		private static void transpose(long[] a) {
+			for(int level=0, j=32; j!=0; level++, j>>>=1) {
+				long mask = TRANSPOSE_MASKS[level];
+				for(int i=0; i<64; i=((i | j) + 1) & ~j) {
+					long t = ((a[i] >>> j) ^ a[i | j]) & mask;
+					a[i | j] ^= t;
+					a[i] ^= t << j;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of candidates indexed.
+	 *
+	 * @return
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a bitset of the candidates that score exactly black blacks 
+	 * and total blacks plus whites against guess.
+	 *
+	 * @param guess packed guess
+	 * @param black
+	 * @param total
+	 * @return a word for every 64 candidates
+	 */
+	long[] matching(long guess, int black, int total) {
+		int n = space.getGuessLength();
+		int k = space.getNumElements();
+		long[][] blackRows = new long[n][];
+		long[][] totalRows = new long[n][];
+		int[] seen = new int[k];
+		for(int p=0; p<n; p++) {
+			int e = space.element(guess, p);
+			blackRows[p] = positions[p * k + e];
+			totalRows[p] = counts[e * n + seen[e]++];
+		}
+		long[] out = new long[words];
+		for(int w=0; w<words; w++) {
+			long m = exactly(blackRows, w, black);
+			if(m != 0) {
+				m &= exactly(totalRows, w, total);
+			}
+			out[w] = m;
+		}
+		if((size & 63) != 0) {
+			out[words - 1] &= (1L << size) - 1;
+		}
+		return out;
+	}
+
+	// returns the bits of word w set in exactly count of rows, counting 
+	// up to 31 with five bit planes
+	private static long exactly(long[][] rows, int w, int count) {
+		long p0 = 0, p1 = 0, p2 = 0, p3 = 0, p4 = 0;
+		for(int r=0; r<rows.length; r++) {
+			long carry = rows[r][w];
+			long c0 = p0 & carry; p0 ^= carry;
+			long c1 = p1 & c0; p1 ^= c0;
+			long c2 = p2 & c1; p2 ^= c1;
+			long c3 = p3 & c2; p3 ^= c2;
+			p4 ^= c3;
+		}
+		// all ones where the plane's bit of count is set
+		return ~(p0 ^ -(count & 1)) & ~(p1 ^ -((count >>> 1) & 1))
+			& ~(p2 ^ -((count >>> 2) & 1)) & ~(p3 ^ -((count >>> 3) & 1))
+			& ~(p4 ^ -((count >>> 4) & 1));
+	}
+
+	long memoryUsed() {
+		return 8L * words * (positions.length + counts.length);
+	}
+}
@@ -0,0 +1,516 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.util.*;
+
+/**
+ * Supplies guesses consistent with every result so far by constraint
+ * propagation and backtracking search, without enumerating the space--so
+ * it plays 10 peg, 12 element games as easily as 4 peg ones.
+ *
+ * This is what Brain's inferences are reaching for.  Instead of a list of
+ * positions for each element found, each position has a domain: the
+ * elements it can still hold, as a bitmask.  Each element has bounds on how
+ * many of it the secret holds, worked out from each result as it comes in
+ * (see update()).  And each result is a constraint on the code: its blacks,
+ * and its blacks plus whites.
+ *
+ * propagate() narrows the domains until nothing more follows, treating a
+ * position with one element left as assigned:
+ * - an element at its most is struck from the other positions, and if the
+ *   positions that can hold it only just reach its least, they must;
+ * - a guess whose blacks are already all placed has its elements struck
+ *   from the positions left, and if every position still able to match it
+ *   must, they are fixed;
+ * - the blacks plus whites against a guess depend only on the counts of
+ *   its elements, so they narrow the bounds on the counts (see
+ *   narrowCounts()), and likewise strike or fix the elements the code
+ *   still holds fewer of than the guess does.
+ * The search then picks the open position with the smallest domain--of
+ * those, the one that can still match the most guesses--tries each of its
+ * elements in a random order, and propagates again, backing up when a
+ * domain empties or a bound can't be met.  When every position is assigned
+ * the checks are exact, so the code found is consistent.
+ *
+ * A search that happens on a bad order early can wander for a long time
+ * among codes that all fail late, so each try has a limit on the nodes it
+ * visits, and the search starts over with a new order when it runs out.
+ * The limit doubles each time, so the search still ends.
+ *
+ * Domains are longs, so there can be no more than 64 elements.
+ *
+ * @author drogers
+ */
+public class PropagationSolver implements Solver {
+
+	// nodes for the first try at a guess--each try after has twice as many
+	private static final long FIRST_LIMIT = 256;
+
+	private CodeSpace space;
+	private int n;
+	private int k;
+	private long seed;
+
+	// the guesses, unpacked, their blacks and blacks plus whites, and the
+	// number of each element in them
+	private int[][] guesses = new int[8][];
+	private int[] blacks = new int[8];
+	private int[] totals = new int[8];
+	private int[][] guessCounts = new int[8][];
+	private int size = 0;
+
+	// the least and most of each element the secret can hold
+	private int[] minCount;
+	private int[] maxCount;
+
+	// domains at each depth of the search
+	private long[][] levels;
+
+	// scratch counts of assigned elements, and of open positions that can
+	// hold each element
+	private int[] cnt;
+	private int[] room;
+
+	// scratch bounds on the count of each element
+	private int[] lo;
+	private int[] hi;
+
+	// scratch open positions that can still match a guess, by element
+	private int[] matchable;
+
+	// elements in the order they are tried, and the position the search
+	// for the smallest domain starts from, this try
+	private int[] order;
+	private int first;
+
+	// search nodes visited for the last guess, the most for this try, and
+	// whether this try ran out of them
+	private long nodes = 0;
+	private long limit;
+	private boolean cutOff;
+
+	/**
+	 * Creates a solver with a random seed.
+	 *
+	 * @param space
+	 */
+	public PropagationSolver(CodeSpace space) {
+		this(space, new Random().nextLong());
+	}
+
+	/**
+	 * Creates a solver whose searches try elements in an order drawn from
+	 * seed and the results so far, so it plays the same game every time.
+	 *
+	 * @param space
+	 * @param seed
+	 * @throws IllegalArgumentException if space has more than 64 elements
+	 */
+	public PropagationSolver(CodeSpace space, long seed) {
+		if(space.getNumElements() > 64) {
+			throw new IllegalArgumentException("Too many elements to propagate in " + space);
+		}
+		this.space = space;
+		this.n = space.getGuessLength();
+		this.k = space.getNumElements();
+		this.seed = seed;
+		minCount = new int[k];
+		maxCount = new int[k];
+		Arrays.fill(maxCount, space.isNoDuplicates() ? 1 : n);
+		levels = new long[n + 1][n];
+		cnt = new int[k];
+		room = new int[k];
+		lo = new int[k];
+		hi = new int[k];
+		matchable = new int[k];
+		order = new int[k];
+	}
+
+	/**
+	 * Creates a solver that has seen every result in history.
+	 *
+	 * @param history
+	 * @param seed
+	 */
+	public PropagationSolver(GuessHistory history, long seed) {
+		this(history.getCodeSpace(), seed);
+		for(int i=0; i<history.size(); i++) {
+			add(history.getGuess(i), history.getFeedback(i));
+		}
+	}
+
+	private PropagationSolver(PropagationSolver other) {
+		this(other.space, other.seed);
+		for(int i=0; i<other.size; i++) {
+			add(space.pack(other.guesses[i]), space.feedbackKey(other.blacks[i],
+					other.totals[i] - other.blacks[i]));
+		}
+	}
+
+	/**
+	 * Returns the number of search nodes visited for the last guess.
+	 *
+	 * @return
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	@Override
+	public int[] nextGuess() {
+		nodes = 0;
+		if(size == 0) {
+			return ConsistentSolver.openingGuess(space);
+		}
+		// the orders depend only on the seed and the results so far, so a
+		// copy guesses as the original would
+		Random rand = new Random(seed * 0x9E3779B97F4A7C15L + size);
+		long[] dom = levels[0];
+		for(long limit=FIRST_LIMIT; ; limit*=2) {
+			shuffle(rand);
+			Arrays.fill(dom, (k == 64 ? 0 : 1L << k) - 1);
+			cutOff = false;
+			this.limit = nodes + limit;
+			if(search(0)) {
+				break;
+			}
+			if(!cutOff) {
+				throw new IllegalStateException("No code is consistent with the results");
+			}
+		}
+		int[] guess = new int[n];
+		for(int p=0; p<n; p++) {
+			guess[p] = Long.numberOfTrailingZeros(dom[p]);
+		}
+		return guess;
+	}
+
+	// draws a new order to try elements in, and a new position to start
+	// looking for the smallest domain from
+	private void shuffle(Random rand) {
+		for(int e=0; e<k; e++) {
+			order[e] = e;
+		}
+		for(int i=k-1; i>0; i--) {
+			int j = rand.nextInt(i + 1);
+			int t = order[i];
+			order[i] = order[j];
+			order[j] = t;
+		}
+		first = rand.nextInt(n);
+	}
+
+	// finds a consistent code under the domains at depth, leaving it in
+	// levels[depth]--returns false if there is none, or if the search has
+	// gone past limit nodes, when cutOff is set
+	private boolean search(int depth) {
+		if(++nodes > limit) {
+			cutOff = true;
+			return false;
+		}
+		long[] dom = levels[depth];
+		if(!propagate(dom)) {
+			return false;
+		}
+		// the open position with the smallest domain, and of those the
+		// one that can still match the most guesses
+		int best = -1;
+		int bestSize = 0;
+		int bestMatches = 0;
+		for(int i=0; i<n; i++) {
+			int p = (first + i) % n;
+			int c = Long.bitCount(dom[p]);
+			if(c < 2 || (best >= 0 && c > bestSize)) {
+				continue;
+			}
+			int matches = 0;
+			for(int j=0; j<size; j++) {
+				if((dom[p] & (1L << guesses[j][p])) != 0) {
+					matches++;
+				}
+			}
+			if(best < 0 || c < bestSize || matches > bestMatches) {
+				best = p;
+				bestSize = c;
+				bestMatches = matches;
+			}
+		}
+		if(best < 0) {
+			return true;
+		}
+		long[] child = levels[depth + 1];
+		for(int e : order) {
+			if((dom[best] & (1L << e)) == 0) {
+				continue;
+			}
+			System.arraycopy(dom, 0, child, 0, n);
+			child[best] = 1L << e;
+			if(search(depth + 1)) {
+				System.arraycopy(child, 0, dom, 0, n);
+				return true;
+			}
+			if(cutOff) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	// narrows dom until nothing more follows from the bounds and results--
+	// returns false if some domain empties or a bound can't be met
+	private boolean propagate(long[] dom) {
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			// the counts of assigned elements, and the open positions--dom
+			// may narrow below, but these stay as they were, which only
+			// loosens the checks
+			Arrays.fill(cnt, 0);
+			Arrays.fill(room, 0);
+			int open = 0;
+			int u = 0;
+			for(int p=0; p<n; p++) {
+				if(dom[p] == 0) {
+					return false;
+				}
+				if(Long.bitCount(dom[p]) == 1) {
+					cnt[Long.numberOfTrailingZeros(dom[p])]++;
+				} else {
+					open |= 1 << p;
+					u++;
+					for(long d=dom[p]; d!=0; d&=d-1) {
+						room[Long.numberOfTrailingZeros(d)]++;
+					}
+				}
+			}
+			// element bounds, narrowed by the results--blacks plus whites
+			// against a guess depend only on the counts of its elements
+			for(int e=0; e<k; e++) {
+				lo[e] = Math.max(minCount[e], cnt[e]);
+				hi[e] = Math.min(maxCount[e], cnt[e] + room[e]);
+			}
+			if(!narrowCounts()) {
+				return false;
+			}
+			long full = 0;
+			long lacking = 0;
+			int need = 0;
+			for(int e=0; e<k; e++) {
+				if(cnt[e] == hi[e]) {
+					full |= 1L << e;
+				}
+				if(cnt[e] < lo[e]) {
+					if(cnt[e] + room[e] == lo[e]) {
+						changed |= restrict(dom, open, 1L << e, 1L << e);
+					}
+					lacking |= 1L << e;
+					need += lo[e] - cnt[e];
+				}
+			}
+			changed |= restrict(dom, open, -1L, ~full);
+			if(need == u && u > 0) {
+				changed |= restrict(dom, open, -1L, lacking);
+			}
+			// results
+			for(int j=0; j<size; j++) {
+				int[] g = guesses[j];
+				// the blacks placed, and the open positions that can still
+				// match, by element--an element can match no more of them
+				// than the code has room for
+				int blk = 0;
+				Arrays.fill(matchable, 0);
+				for(int p=0; p<n; p++) {
+					if((dom[p] & (1L << g[p])) == 0) {
+						continue;
+					}
+					if((open & (1 << p)) == 0) {
+						blk++;
+					} else {
+						matchable[g[p]]++;
+					}
+				}
+				int reach = 0;
+				for(int e=0; e<k; e++) {
+					reach += Math.min(matchable[e], hi[e] - cnt[e]);
+				}
+				if(blk > blacks[j] || blk + reach < blacks[j]) {
+					return false;
+				}
+				if(reach > 0 && blk == blacks[j]) {
+					for(int p=0; p<n; p++) {
+						if((open & (1 << p)) != 0 && (dom[p] & (1L << g[p])) != 0) {
+							dom[p] &= ~(1L << g[p]);
+							changed = true;
+						}
+					}
+				} else if(reach > 0 && blk + reach == blacks[j]) {
+					// every match that can be made must be--an element with
+					// room for all its positions takes them all, and one
+					// without has no room for any other position
+					for(int p=0; p<n; p++) {
+						int e = g[p];
+						long bit = 1L << e;
+						if((open & (1 << p)) == 0 || (dom[p] & bit) == 0) {
+							continue;
+						}
+						if(matchable[e] <= hi[e] - cnt[e]) {
+							if(dom[p] != bit) {
+								dom[p] = bit;
+								changed = true;
+							}
+						} else {
+							for(int q=0; q<n; q++) {
+								if(g[q] != e && (open & (1 << q)) != 0 && (dom[q] & bit) != 0) {
+									dom[q] &= ~bit;
+									changed = true;
+								}
+							}
+						}
+					}
+				}
+				int[] gc = guessCounts[j];
+				int tot = 0;
+				int deficit = 0;
+				long wanted = 0;
+				for(int e=0; e<k; e++) {
+					if(cnt[e] < gc[e]) {
+						// e can match no more than the guess holds or the
+						// code can
+						tot += cnt[e];
+						deficit += Math.min(gc[e], hi[e]) - cnt[e];
+						wanted |= 1L << e;
+					} else {
+						tot += gc[e];
+					}
+				}
+				int places = 0;
+				for(int p=0; p<n; p++) {
+					if((open & (1 << p)) != 0 && (dom[p] & wanted) != 0) {
+						places++;
+					}
+				}
+				int gain = Math.min(places, deficit);
+				if(tot > totals[j] || tot + gain < totals[j]) {
+					return false;
+				}
+				if(tot == totals[j]) {
+					changed |= restrict(dom, open, -1L, ~wanted);
+				} else if(places == totals[j] - tot) {
+					changed |= restrict(dom, open, wanted, wanted);
+				}
+			}
+		}
+		return true;
+	}
+
+	// narrows lo and hi, the bounds on the count of each element, until
+	// nothing more follows from the results and the counts adding up to
+	// the guess length--returns false if some bounds cross
+	private boolean narrowCounts() {
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			for(int j=0; j<=size; j++) {
+				// result j, or the guess length as a result against a
+				// guess holding every element n times
+				int[] gc = j < size ? guessCounts[j] : null;
+				int t = j < size ? totals[j] : n;
+				int least = 0;
+				int most = 0;
+				for(int e=0; e<k; e++) {
+					int g = gc == null ? n : gc[e];
+					least += Math.min(lo[e], g);
+					most += Math.min(hi[e], g);
+				}
+				if(t < least || t > most) {
+					return false;
+				}
+				for(int e=0; e<k; e++) {
+					int g = gc == null ? n : gc[e];
+					// the matches with e must make up what the others can't,
+					// and can't take more than the others leave
+					int atLeast = t - (most - Math.min(hi[e], g));
+					int atMost = t - (least - Math.min(lo[e], g));
+					if(atLeast > lo[e]) {
+						lo[e] = atLeast;
+						changed = true;
+					}
+					if(atMost < g && atMost < hi[e]) {
+						hi[e] = atMost;
+						changed = true;
+					}
+					if(lo[e] > hi[e]) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	// narrows the open positions whose domains meet among to keep--returns
+	// true if any changed
+	private boolean restrict(long[] dom, int open, long among, long keep) {
+		boolean changed = false;
+		for(int p=0; p<n; p++) {
+			if((open & (1 << p)) != 0 && (dom[p] & among) != 0 && (dom[p] & ~keep) != 0) {
+				dom[p] &= keep;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	@Override
+	public void update(GuessInfo result) {
+		add(space.pack(result.getGuess()), space.feedbackKey(
+				result.getPositionMatches(), result.getNonPositionalMatches()));
+	}
+
+	// adds a result, and tightens the element bounds with it
+	private void add(long packed, int feedback) {
+		if(size == guesses.length) {
+			guesses = Arrays.copyOf(guesses, 2 * size);
+			blacks = Arrays.copyOf(blacks, 2 * size);
+			totals = Arrays.copyOf(totals, 2 * size);
+			guessCounts = Arrays.copyOf(guessCounts, 2 * size);
+		}
+		int[] g = space.unpack(packed);
+		int t = space.blackOf(feedback) + space.whiteOf(feedback);
+		int[] gc = new int[k];
+		for(int e : g) {
+			gc[e]++;
+		}
+		for(int e=0; e<k; e++) {
+			if(gc[e] == 0) {
+				// the code's elements outside the guess fill at most the
+				// positions its matches don't
+				maxCount[e] = Math.min(maxCount[e], n - t);
+			} else {
+				// the matches with e can't be more than t, and the other
+				// elements of the guess can match at most n - gc[e]
+				if(t < gc[e]) {
+					maxCount[e] = Math.min(maxCount[e], t);
+				}
+				minCount[e] = Math.max(minCount[e], t - (n - gc[e]));
+			}
+		}
+		guesses[size] = g;
+		blacks[size] = space.blackOf(feedback);
+		totals[size] = t;
+		guessCounts[size] = gc;
+		size++;
+	}
+
+	@Override
+	public Solver copy() {
+		return new PropagationSolver(this);
+	}
+}
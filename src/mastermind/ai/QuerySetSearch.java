@@ -0,0 +1,428 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Searches for a small set of guesses that can all be made up front, and
+ * whose results, given all at once, tell every secret of a space apart--
+ * a static game, with no guess depending on an earlier result.
+ *
+ * A set works if no two secrets have the same vector of feedback keys, as
+ * scored by CodeSpace.score(), which gives the same results as
+ * Engine.compare().  Each thread climbs on its own, from its own random
+ * codes, toward a set one smaller than the best found by any thread:
+ * - a guess of the set is swapped for a random code, and the swap kept
+ *   if no more pairs of secrets share a vector--so the climb can wander
+ *   along plateaus;
+ * - after STEPS_PER_TRY swaps without getting there it starts again,
+ *   from the best set with one guess dropped if there is one;
+ * - a set with no shared vectors is checked and, if still the smallest,
+ *   becomes the best, and every thread moves on to one smaller.
+ * The pairs are counted by splitting the secrets by each guess's keys in
+ * turn, hashing (class so far, key) to the next class.  A set is checked
+ * separately, by hashing each secret's whole feedback vector.
+ *
+ * The search stops at the time limit, or when the best set is as small as
+ * the count of feedback keys allows--there is no proof otherwise that it
+ * can't be smaller.  Each thread holds each guess's key for every code,
+ * so the space can have no more than MAX_CODES codes.
+ *
+ * @author drogers
+ */
+public class QuerySetSearch {
+
+	/**
+	 * The most codes in a space to search.
+	 */
+	public static final int MAX_CODES = 1 << 20;
+
+	// swaps tried for a set before starting again
+	private static final int STEPS_PER_TRY = 20000;
+
+	private CodeSpace space;
+	private long[] codes;
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	private long timeLimit = 10000;
+	private long seed = new Random().nextLong();
+	private PrintStream progress = null;
+
+	// the smallest set found, and when, in ms from the start of the search
+	private long[] best;
+	private long bestMillis;
+	private long start;
+
+	/**
+	 * Creates a search over space.
+	 *
+	 * @param space
+	 * @throws IllegalArgumentException if space has more than MAX_CODES
+	 * codes
+	 */
+	public QuerySetSearch(CodeSpace space) {
+		if(space.size() > MAX_CODES) {
+			throw new IllegalArgumentException("Code space " + space +
+					" has too many codes to search: " + space.size());
+		}
+		this.space = space;
+		codes = new long[(int)space.size()];
+		long code = space.codeAt(0);
+		for(int i=0; i<codes.length; i++) {
+			codes[i] = code;
+			if(i < codes.length - 1) {
+				code = space.next(code);
+			}
+		}
+	}
+
+	/**
+	 * Sets the number of threads searching.
+	 *
+	 * @param numThreads
+	 */
+	public void setThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Sets how long the search can take, in ms.
+	 *
+	 * @param timeLimit
+	 */
+	public void setTimeLimit(long timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * Sets the seed the threads' random codes are drawn from.  The threads
+	 * still race, so a search isn't repeatable with more than one.
+	 *
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets where each new best set is reported, null for nowhere.
+	 *
+	 * @param progress
+	 */
+	public void setProgress(PrintStream progress) {
+		this.progress = progress;
+	}
+
+	/**
+	 * Returns the fewest guesses any set can have: each guess has at most
+	 * numFeedbackKeys() results, and there must be a vector for each
+	 * secret.
+	 *
+	 * @return
+	 */
+	public int lowerBound() {
+		int m = 0;
+		for(double vectors=1; vectors<codes.length; vectors*=space.numFeedbackKeys()) {
+			m++;
+		}
+		return m;
+	}
+
+	/**
+	 * Searches until the time limit or the lower bound is reached.
+	 *
+	 * @return the smallest set of packed guesses found, which tells every
+	 * secret apart
+	 */
+	public long[] search() {
+		best = null;
+		start = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		List<Callable<Void>> climbs = new ArrayList<Callable<Void>>();
+		for(int t=0; t<numThreads; t++) {
+			climbs.add(new Climb(new Random(seed + t)));
+		}
+		try {
+			for(Future<Void> f : pool.invokeAll(climbs)) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		return best.clone();
+	}
+
+	/**
+	 * Returns the ms from the start of the last search to finding its best
+	 * set.
+	 *
+	 * @return
+	 */
+	public long getBestMillis() {
+		return bestMillis;
+	}
+
+	/**
+	 * Checks whether guesses tell every secret apart, by hashing each
+	 * secret's feedback vector.
+	 *
+	 * @param guesses packed
+	 * @return
+	 */
+	public boolean identifies(long[] guesses) {
+		Set<Vector> seen = new HashSet<Vector>();
+		for(long secret : codes) {
+			int[] keys = new int[guesses.length];
+			for(int j=0; j<guesses.length; j++) {
+				keys[j] = space.score(guesses[j], secret);
+			}
+			if(!seen.add(new Vector(keys))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the secret whose results for guesses are feedbackKeys.
+	 *
+	 * @param guesses packed
+	 * @param feedbackKeys
+	 * @return the packed secret, or -1 if none has those results
+	 */
+	public long identify(long[] guesses, int[] feedbackKeys) {
+		for(long secret : codes) {
+			int j = 0;
+			while(j < guesses.length && space.score(guesses[j], secret) == feedbackKeys[j]) {
+				j++;
+			}
+			if(j == guesses.length) {
+				return secret;
+			}
+		}
+		return -1;
+	}
+
+	// the size the threads are climbing toward, 0 to stop
+	private synchronized int target() {
+		if(best == null) {
+			return -1;
+		}
+		if(best.length <= lowerBound() || elapsed() >= timeLimit) {
+			return 0;
+		}
+		return best.length - 1;
+	}
+
+	private synchronized long[] getBest() {
+		return best;
+	}
+
+	// takes set as the best if it is smaller and checks out
+	private synchronized void offer(long[] set) {
+		if(best != null && set.length >= best.length) {
+			return;
+		}
+		if(!identifies(set)) {
+			throw new IllegalStateException("A set of " + set.length +
+					" guesses passed the climb but has shared vectors");
+		}
+		best = set.clone();
+		bestMillis = elapsed();
+		if(progress != null) {
+			progress.println(space + ": " + set.length + " guesses after " +
+					bestMillis + " ms");
+		}
+	}
+
+	private long elapsed() {
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	// one thread's climb
+	private class Climb implements Callable<Void> {
+		private Random rand;
+		private int numKeys = space.numFeedbackKeys();
+
+		// each guess's key for each code, and a spare for a swap
+		private short[][] keys;
+		private short[] spare = new short[codes.length];
+
+		// the class of each code so far, and the table from (class, key)
+		// to the next class
+		private int[] classes = new int[codes.length];
+		private int[] sizes = new int[codes.length];
+		private long[] tableKeys;
+		private int[] tableClasses;
+		private int shift;
+
+		Climb(Random rand) {
+			this.rand = rand;
+			int bits = 64 - Long.numberOfLeadingZeros(2L * codes.length - 1);
+			tableKeys = new long[1 << bits];
+			tableClasses = new int[1 << bits];
+			shift = 64 - bits;
+		}
+
+		public Void call() {
+			if(getBest() == null) {
+				offer(grow());
+			}
+			for(int m=target(); m>0; m=target()) {
+				long[] set = climb(m);
+				if(set != null) {
+					offer(set);
+				}
+			}
+			return null;
+		}
+
+		// a set made by adding the best of a few random codes at a time
+		// until it tells every secret apart
+		private long[] grow() {
+			List<Long> set = new ArrayList<Long>();
+			keys = new short[0][];
+			long pairs = Long.MAX_VALUE;
+			while(pairs > 0) {
+				keys = Arrays.copyOf(keys, keys.length + 1);
+				short[] bestKeys = null;
+				long bestCode = 0;
+				for(int i=0; i<8; i++) {
+					long code = randomCode();
+					keys[keys.length - 1] = score(code, new short[codes.length]);
+					long p = pairs();
+					if(bestKeys == null || p < pairs) {
+						bestKeys = keys[keys.length - 1];
+						bestCode = code;
+						pairs = p;
+					}
+				}
+				keys[keys.length - 1] = bestKeys;
+				set.add(bestCode);
+			}
+			long[] grown = new long[set.size()];
+			for(int i=0; i<grown.length; i++) {
+				grown[i] = set.get(i);
+			}
+			return grown;
+		}
+
+		// climbs toward a set of m guesses, returning it or null if the
+		// steps or time ran out, or another thread got there first
+		private long[] climb(int m) {
+			long[] from = getBest();
+			long[] set;
+			if(from != null && from.length == m + 1) {
+				set = new long[m];
+				int dropped = rand.nextInt(m + 1);
+				for(int j=0, i=0; j<=m; j++) {
+					if(j != dropped) {
+						set[i++] = from[j];
+					}
+				}
+			} else {
+				set = new long[m];
+				for(int j=0; j<m; j++) {
+					set[j] = randomCode();
+				}
+			}
+			keys = new short[m][];
+			for(int j=0; j<m; j++) {
+				keys[j] = score(set[j], new short[codes.length]);
+			}
+			long pairs = pairs();
+			for(int step=0; step<STEPS_PER_TRY && pairs > 0; step++) {
+				if((step & 255) == 0 && target() != m) {
+					return null;
+				}
+				int j = rand.nextInt(m);
+				long code = randomCode();
+				short[] old = keys[j];
+				keys[j] = score(code, spare);
+				long p = pairs();
+				if(p <= pairs) {
+					set[j] = code;
+					pairs = p;
+					spare = old;
+				} else {
+					keys[j] = old;
+				}
+			}
+			return pairs == 0 ? set : null;
+		}
+
+		private long randomCode() {
+			return codes[rand.nextInt(codes.length)];
+		}
+
+		// each code's key for guess, into into
+		private short[] score(long guess, short[] into) {
+			CodeSpace.Signature signature = space.signature(guess);
+			for(int i=0; i<codes.length; i++) {
+				into[i] = (short)signature.score(codes[i]);
+			}
+			return into;
+		}
+
+		// the pairs of codes whose keys are the same for every guess
+		private long pairs() {
+			Arrays.fill(classes, 0);
+			int numClasses = 1;
+			for(short[] column : keys) {
+				Arrays.fill(tableKeys, -1);
+				numClasses = 0;
+				for(int i=0; i<codes.length; i++) {
+					long key = (long)classes[i] * numKeys + column[i];
+					int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> shift);
+					while(tableKeys[slot] != key && tableKeys[slot] != -1) {
+						slot = (slot + 1) & (tableKeys.length - 1);
+					}
+					if(tableKeys[slot] == -1) {
+						tableKeys[slot] = key;
+						tableClasses[slot] = numClasses++;
+					}
+					classes[i] = tableClasses[slot];
+				}
+			}
+			Arrays.fill(sizes, 0, numClasses, 0);
+			long pairs = 0;
+			for(int i=0; i<codes.length; i++) {
+				pairs += sizes[classes[i]]++;
+			}
+			return pairs;
+		}
+	}
+
+	// a secret's feedback vector, for hashing
+	private static class Vector {
+		private int[] keys;
+		private int hash;
+
+		Vector(int[] keys) {
+			this.keys = keys;
+			hash = Arrays.hashCode(keys);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Vector && Arrays.equals(keys, ((Vector)o).keys);
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * Supplies guesses for games where up to maxLies results may be wrong--see
+ * Engine.setLies().
+ *
+ * A code can be the secret if it contradicts at most maxLies of the
+ * results so far.  Every such code is held, with the number of results it
+ * contradicts in a byte alongside it.  A result only needs scoring against
+ * the codes still held: each one it contradicts has its count bumped, and
+ * those over maxLies are dropped, so the history is never scanned again.
+ * A win is never hidden or faked, so a guess that didn't win is dropped
+ * however few results it contradicts.
+ * Scoring is done in parallel chunks; dropping is a pass that moves the
+ * codes kept down over those dropped.
+ *
+ * Guesses are made from the codes that contradict the fewest results--
+ * the likeliest secrets.  Up to MAX_SCORED of them are tried, each split
+ * against a spread of up to MAX_SCORED held codes, and the one whose
+ * results split them with the most entropy is played.
+ *
+ * The whole space is held at first, so it can have no more than
+ * Integer.MAX_VALUE - 8 codes.
+ *
+ * @author drogers
+ */
+public class RobustSolver implements Solver {
+
+	// the most guesses tried, and codes they are split against
+	private static final int MAX_SCORED = 1000;
+
+	// codes scored by each parallel task
+	private static final int CHUNK = 1 << 14;
+
+	private CodeSpace space;
+	private int maxLies;
+
+	// the codes held, and the results each contradicts
+	private long[] codes;
+	private byte[] lies;
+	private int size;
+
+	// the results so far
+	private int turn = 0;
+
+	// scratch for update()
+	private CodeSpace.Signature signature;
+	private int feedback;
+
+	private IntConsumer scorer = new IntConsumer() {
+		public void accept(int chunk) {
+			int end = Math.min(size, (chunk + 1) * CHUNK);
+			for(int i=chunk*CHUNK; i<end; i++) {
+				if(signature.score(codes[i]) != feedback) {
+					lies[i]++;
+				}
+			}
+		}
+	};
+
+	/**
+	 * Creates a solver for a game in space where up to maxLies results
+	 * may be wrong.
+	 *
+	 * @param space
+	 * @param maxLies 0 to 126--a code's count goes one past maxLies
+	 * before it is dropped, and has to fit in a byte
+	 * @throws IllegalArgumentException if space has too many codes to hold
+	 */
+	public RobustSolver(CodeSpace space, int maxLies) {
+		if(space.size() > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Code space " + space +
+					" has too many codes to hold: " + space.size());
+		}
+		if(maxLies < 0 || maxLies >= Byte.MAX_VALUE) {
+			throw new IllegalArgumentException("Can't allow " + maxLies + " lies");
+		}
+		this.space = space;
+		this.maxLies = maxLies;
+		size = (int)space.size();
+		codes = new long[size];
+		lies = new byte[size];
+		long code = space.codeAt(0);
+		for(int i=0; i<size; i++) {
+			codes[i] = code;
+			if(i < size - 1) {
+				code = space.next(code);
+			}
+		}
+	}
+
+	private RobustSolver(RobustSolver other) {
+		this.space = other.space;
+		this.maxLies = other.maxLies;
+		this.size = other.size;
+		this.turn = other.turn;
+		this.codes = Arrays.copyOf(other.codes, size);
+		this.lies = Arrays.copyOf(other.lies, size);
+	}
+
+	/**
+	 * Returns the number of codes that could still be the secret.
+	 *
+	 * @return
+	 */
+	public int getNumCandidates() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of codes that contradict no result.
+	 *
+	 * @return
+	 */
+	public int getNumConsistent() {
+		int n = 0;
+		for(int i=0; i<size; i++) {
+			if(lies[i] == 0) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	@Override
+	public int[] nextGuess() {
+		if(turn == 0) {
+			return ConsistentSolver.openingGuess(space);
+		}
+		if(size == 0) {
+			// more lies than allowed were told
+			throw new IllegalStateException("No code fits the results with at most " +
+					maxLies + " lies");
+		}
+		// the codes that contradict the fewest results
+		int fewest = Byte.MAX_VALUE;
+		for(int i=0; i<size; i++) {
+			fewest = Math.min(fewest, lies[i]);
+		}
+		int[] likeliest = new int[size];
+		int numLikeliest = 0;
+		for(int i=0; i<size; i++) {
+			if(lies[i] == fewest) {
+				likeliest[numLikeliest++] = i;
+			}
+		}
+		if(size == 1) {
+			return space.unpack(codes[0]);
+		}
+		// spreads of the likeliest codes and of all those held
+		int numGuesses = Math.min(MAX_SCORED, numLikeliest);
+		long[] others = new long[Math.min(MAX_SCORED, size)];
+		for(int j=0; j<others.length; j++) {
+			others[j] = codes[(int)((long)j * size / others.length)];
+		}
+		CandidateSet split = CandidateSet.of(space, others);
+		int[] histogram = new int[space.numFeedbackKeys()];
+		long best = -1;
+		double bestEntropy = -1;
+		for(int j=0; j<numGuesses; j++) {
+			long guess = codes[likeliest[(int)((long)j * numLikeliest / numGuesses)]];
+			double entropy = split.partition(guess, histogram).getEntropy();
+			if(entropy > bestEntropy) {
+				best = guess;
+				bestEntropy = entropy;
+			}
+		}
+		return space.unpack(best);
+	}
+
+	@Override
+	public void update(GuessInfo result) {
+		turn++;
+		signature = space.signature(space.pack(result.getGuess()));
+		feedback = space.feedbackKey(result.getPositionMatches(),
+				result.getNonPositionalMatches());
+		int chunks = (size + CHUNK - 1) / CHUNK;
+		IntStream.range(0, chunks).parallel().forEach(scorer);
+		long guess = space.pack(result.getGuess());
+		int kept = 0;
+		for(int i=0; i<size; i++) {
+			if(lies[i] <= maxLies && codes[i] != guess) {
+				codes[kept] = codes[i];
+				lies[kept] = lies[i];
+				kept++;
+			}
+		}
+		size = kept;
+	}
+
+	@Override
+	public Solver copy() {
+		return new RobustSolver(this);
+	}
+}
@@ -0,0 +1,254 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * Supplies guesses for spaces too big to hold or walk, like 7 and 8 peg
+ * games, by working on a random sample of the codes consistent with the
+ * results so far.
+ *
+ * Each guess the solver draws consistent codes uniformly with a
+ * ConsistentCounter, in parallel, until it has maxSamples of them or half
+ * its time budget is gone.  The sampled codes are both the guesses tried
+ * and the secrets they are scored against: each guess is partitioned
+ * against the sample (see CandidateSet.partition()), and the one whose
+ * feedback has the most entropy is played.  Guesses are scored in
+ * parallel until maxGuesses are done or the budget runs out.  If the
+ * whole consistent set is no bigger than the sample, and the space can be
+ * walked, the set itself is used instead.  If it can neither be counted
+ * nor walked, a PropagationSolver finds a consistent code to play.
+ *
+ * Sampling is seeded: each chunk of samples has its own Random, seeded
+ * from the solver's seed, the turn and the chunk, so a solver with a
+ * given seed plays the same game every time--as long as the budget
+ * doesn't cut the sampling or scoring short.
+ *
+ * @author drogers
+ */
+public class SamplingSolver implements Solver {
+
+	/** Default time to spend on a guess, in ms. */
+	public static final long DEFAULT_TIME_BUDGET = 500;
+
+	// samples drawn by each parallel task
+	private static final int CHUNK = 256;
+
+	// the most codes walked to list a small consistent set exactly
+	private static final long MAX_WALK = 2000000;
+
+	private CodeSpace space;
+	private GuessHistory history;
+	private long seed;
+	private long timeBudget;
+	private int maxSamples = 10000;
+	private int maxGuesses = 1000;
+
+	// guesses made so far
+	private int turn = 0;
+
+	/**
+	 * Creates a solver with a random seed and the default time budget.
+	 *
+	 * @param space
+	 */
+	public SamplingSolver(CodeSpace space) {
+		this(space, new Random().nextLong(), DEFAULT_TIME_BUDGET);
+	}
+
+	/**
+	 * Creates a solver that samples with seed, and spends about timeBudget
+	 * ms on each guess.
+	 *
+	 * @param space
+	 * @param seed
+	 * @param timeBudget
+	 */
+	public SamplingSolver(CodeSpace space, long seed, long timeBudget) {
+		this.space = space;
+		this.seed = seed;
+		this.timeBudget = timeBudget;
+		this.history = new GuessHistory(space);
+	}
+
+	private SamplingSolver(SamplingSolver other) {
+		this.space = other.space;
+		this.seed = other.seed;
+		this.timeBudget = other.timeBudget;
+		this.maxSamples = other.maxSamples;
+		this.maxGuesses = other.maxGuesses;
+		this.turn = other.turn;
+		this.history = other.history.copy();
+	}
+
+	/**
+	 * Sets the most consistent codes sampled for a guess.
+	 *
+	 * @param maxSamples
+	 */
+	public void setMaxSamples(int maxSamples) {
+		this.maxSamples = maxSamples;
+	}
+
+	/**
+	 * Sets the most sampled codes tried as guesses.
+	 *
+	 * @param maxGuesses
+	 */
+	public void setMaxGuesses(int maxGuesses) {
+		this.maxGuesses = maxGuesses;
+	}
+
+	public GuessHistory getHistory() {
+		return history;
+	}
+
+	@Override
+	public int[] nextGuess() {
+		turn++;
+		if(history.size() == 0) {
+			return ConsistentSolver.openingGuess(space);
+		}
+		long start = System.currentTimeMillis();
+		long[] sample = sample(start + timeBudget / 2);
+		long[] guesses = distinct(sample, maxGuesses);
+		if(guesses.length == 1) {
+			return space.unpack(guesses[0]);
+		}
+		final CandidateSet secrets = CandidateSet.of(space, sample);
+		final long deadline = start + timeBudget;
+		final double[] entropy = new double[guesses.length];
+		IntStream.range(0, guesses.length).parallel().forEach(new IntConsumer() {
+			public void accept(int i) {
+				if(i > 0 && System.currentTimeMillis() > deadline) {
+					entropy[i] = -1;
+					return;
+				}
+				int[] histogram = new int[space.numFeedbackKeys()];
+				entropy[i] = secrets.partition(guesses[i], histogram).getEntropy();
+			}
+		});
+		int best = 0;
+		for(int i=1; i<guesses.length; i++) {
+			if(entropy[i] > entropy[best]) {
+				best = i;
+			}
+		}
+		return space.unpack(guesses[best]);
+	}
+
+	// returns consistent codes--all of them if there are few enough and
+	// the space can be walked, otherwise maxSamples drawn uniformly, or as
+	// many as can be drawn by deadline
+	private long[] sample(long deadline) {
+		ConsistentCounter counter;
+		long count;
+		try {
+			counter = new ConsistentCounter(history);
+			count = counter.count();
+		} catch(IllegalArgumentException e) {
+			// too long a history to count--the consistent set is small by
+			// then, so walk for it if the space allows
+			counter = null;
+			count = Long.MAX_VALUE;
+		}
+		if(count <= maxSamples || counter == null) {
+			if(space.size() <= MAX_WALK) {
+				long[] all = CodeSpliterator.stream(space, history, true).toArray();
+				return all.length <= maxSamples ? all : subsample(all);
+			}
+			if(counter == null) {
+				// search for one consistent code instead
+				return new long[] {space.pack(
+						new PropagationSolver(history, seedFor(-2)).nextGuess())};
+			}
+		}
+		final ConsistentCounter c = counter;
+		int chunks = Math.max(1, Runtime.getRuntime().availableProcessors());
+		List<long[]> drawn = new ArrayList<long[]>();
+		int total = 0;
+		for(int round=0; total < maxSamples; round++) {
+			final int first = round * chunks;
+			final int perChunk = Math.min(CHUNK, (maxSamples - total + chunks - 1) / chunks);
+			List<long[]> parts = IntStream.range(first, first + chunks).parallel()
+				.mapToObj(new IntFunction<long[]>() {
+					public long[] apply(int chunk) {
+						Random rand = new Random(seedFor(chunk));
+						long[] part = new long[perChunk];
+						for(int i=0; i<perChunk; i++) {
+							part[i] = c.sample(rand);
+						}
+						return part;
+					}
+				}).collect(Collectors.toList());
+			for(long[] part : parts) {
+				drawn.add(part);
+				total += part.length;
+			}
+			if(System.currentTimeMillis() > deadline) {
+				break;
+			}
+		}
+		long[] sample = new long[Math.min(total, maxSamples)];
+		int n = 0;
+		for(long[] part : drawn) {
+			int len = Math.min(part.length, sample.length - n);
+			System.arraycopy(part, 0, sample, n, len);
+			n += len;
+		}
+		return sample;
+	}
+
+	// the seed for a chunk of samples this turn
+	private long seedFor(int chunk) {
+		long h = seed;
+		h = h * 0x9E3779B97F4A7C15L + turn;
+		h = h * 0x9E3779B97F4A7C15L + chunk;
+		return h ^ (h >>> 31);
+	}
+
+	// maxSamples of all, drawn without replacement
+	private long[] subsample(long[] all) {
+		Random rand = new Random(seedFor(-1));
+		for(int i=0; i<maxSamples; i++) {
+			int j = i + rand.nextInt(all.length - i);
+			long t = all[i];
+			all[i] = all[j];
+			all[j] = t;
+		}
+		return Arrays.copyOf(all, maxSamples);
+	}
+
+	// the first max distinct codes of sample, in order
+	private static long[] distinct(long[] sample, int max) {
+		LinkedHashSet<Long> seen = new LinkedHashSet<Long>();
+		for(int i=0; i<sample.length && seen.size() < max; i++) {
+			seen.add(sample[i]);
+		}
+		long[] d = new long[seen.size()];
+		int i = 0;
+		for(long code : seen) {
+			d[i++] = code;
+		}
+		return d;
+	}
+
+	@Override
+	public void update(GuessInfo result) {
+		history.add(result);
+	}
+
+	@Override
+	public Solver copy() {
+		return new SamplingSolver(this);
+	}
+}
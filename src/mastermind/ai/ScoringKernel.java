@@ -0,0 +1,39 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+/**
+ * The ways a CandidateSet can score a guess against its candidates.  All
+ * give the same results; they differ only in speed.
+ * 
+ * @author drogers
+ */
+public enum ScoringKernel {
+	/** One candidate at a time with CodeSpace.scoreScalar(). */
+	SCALAR,
+	/** One candidate at a time with the guess's CodeSpace.Signature. */
+	SWAR,
+	/** A block of candidates at a time with BatchScorer. */
+	BATCH,
+	/**
+	 * The candidates grouped by multiset with a MultisetIndex, and the
+	 * blacks plus whites worked out once for each group.  Spaces that 
+	 * can't be indexed, and sets kept off the heap, score with SWAR 
+	 * instead.
+	 */
+	GROUPED,
+	/**
+	 * The candidates indexed by element in each position, and by count of
+	 * each element, with a PositionIndex, and the ones with the right
+	 * feedback found 64 at a time with bitset logic.  Spaces whose index 
+	 * would take more than twice the memory of the codes, and sets kept
+	 * off the heap, score with SWAR instead--and partitioning always does.
+	 * The index costs more to build than a filter, and a filter replaces
+	 * it, so this suits a set that is copied and filtered many times.
+	 */
+	POSITIONAL
+}
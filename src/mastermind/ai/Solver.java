@@ -0,0 +1,41 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+/**
+ * Something that can play Mastermind--supplies a guess, is told the result,
+ * supplies the next guess, and so on.  Guesses are arrays of elements
+ * numbered 0 to numElements-1; Player translates these to the indices of
+ * the elements selected for the game.
+ * 
+ * @author drogers
+ */
+public interface Solver {
+
+	/**
+	 * Creates and returns the next guess.
+	 * 
+	 * @return
+	 */
+	int[] nextGuess();
+	
+	/**
+	 * Updates the solver with the result of its last guess.
+	 * 
+	 * @param result
+	 */
+	void update(GuessInfo result);
+	
+	/**
+	 * Returns a copy that can be updated without disturbing this solver.
+	 * 
+	 * @return
+	 */
+	Solver copy();
+}
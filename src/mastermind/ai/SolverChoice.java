@@ -0,0 +1,103 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+/**
+ * The solvers a game on autopilot can be played with--see GameDialog.
+ *
+ * @author drogers
+ */
+public enum SolverChoice {
+	/**
+	 * SamplingSolver for 7 or more pegs, ConsistentSolver for shorter games
+	 * with no duplicates, and PropagationSolver otherwise.
+	 */
+	AUTOMATIC("Automatic") {
+		public Solver create(CodeSpace space) {
+			if(space.getGuessLength() >= 7) {
+				// choosing among sampled codes takes fewer moves than any
+				// consistent one
+				return new SamplingSolver(space);
+			} else if(space.isNoDuplicates()) {
+				// small enough to hold the candidates
+				return new ConsistentSolver(space);
+			}
+			// consistent guesses, in place of Brain's fixed and tied
+			// inferences
+			return new PropagationSolver(space);
+		}
+	},
+	PROPAGATION("Constraint propagation") {
+		public Solver create(CodeSpace space) {
+			return new PropagationSolver(space);
+		}
+	},
+	GENETIC("Genetic algorithm") {
+		public Solver create(CodeSpace space) {
+			return new GeneticSolver(space);
+		}
+	},
+	SAMPLING("Monte Carlo sampling") {
+		public Solver create(CodeSpace space) {
+			return new SamplingSolver(space);
+		}
+	},
+	CONSISTENT("First consistent") {
+		public Solver create(CodeSpace space) {
+			return new ConsistentSolver(space);
+		}
+	},
+	/**
+	 * A StrategySolver following the cached strategy for the game--see
+	 * StrategyFile.cached()--mapped into memory.  Games with no strategy
+	 * get AUTOMATIC's solver instead.
+	 */
+	STRATEGY("Strategy file") {
+		public Solver create(CodeSpace space) {
+			StrategyFile strategy = StrategyFile.cached(space);
+			if(strategy != null) {
+				return new StrategySolver(strategy);
+			}
+			return AUTOMATIC.create(space);
+		}
+	},
+	/**
+	 * Brain, whose guesses repeat elements--games with no duplicates get
+	 * AUTOMATIC's solver instead.
+	 */
+	BRAIN("Inferences (Brain)") {
+		public Solver create(CodeSpace space) {
+			if(space.isNoDuplicates()) {
+				return AUTOMATIC.create(space);
+			}
+			return new Brain(space.getGuessLength(), space.getNumElements());
+		}
+	};
+
+	private String label;
+
+	private SolverChoice(String label) {
+		this.label = label;
+	}
+
+	/**
+	 * Creates a solver for a game in space.
+	 *
+	 * @param space
+	 * @return
+	 */
+	public abstract Solver create(CodeSpace space);
+
+	/**
+	 * Returns the name shown in the game dialog.
+	 */
+	public String toString() {
+		return label;
+	}
+}
@@ -0,0 +1,1156 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Command line tests for the solvers--plays them against the Engine with
+ * no gui, and reports how they do.  See Brain.main() for the interactive
+ * tests of Brain itself.
+ *
+ * @author drogers
+ */
+public class SolverTester {
+
+	// configurations for the scaling test--{guessLength, numElements}
+	private static final int[][] scalingConfigs = {
+		{4, 6}, {4, 10}, {5, 8}, {6, 10}, {7, 8}, {6, 16}, {8, 8}, {8, 16}, {8, 20}
+	};
+
+	// the ConsistentSolver is skipped for spaces bigger than this
+	private static final long maxConsistentSize = 20000000;
+
+	/**
+	 * Makes a solver for a test.
+	 */
+	interface Factory {
+		Solver create(CodeSpace space);
+	}
+
+	/**
+	 * Plays one game of solver against engine, which must be initialized.
+	 * Returns the number of guesses, or -1 if the engine won.
+	 *
+	 * @param solver
+	 * @param engine
+	 * @return
+	 */
+	public static int playGame(Solver solver, Engine engine) {
+		for(int guessNum=1; ; guessNum++) {
+			int[] guess = solver.nextGuess();
+			GuessInfo gr = engine.compare(guess);
+			if(engine.hasWon()) {
+				return guessNum;
+			} else if(engine.hasLost()) {
+				return -1;
+			}
+			solver.update(gr);
+		}
+	}
+
+	/**
+	 * Plays numGames games for each configuration in scalingConfigs, with
+	 * Brain and with ConsistentSolver, and prints the memory each solver
+	 * takes when created and the average time per move.
+	 */
+	public static void testScaling(int numGames) {
+		System.out.println("TestScaling:");
+		System.out.println("Games per configuration: " + numGames);
+		System.out.println();
+		System.out.printf("%-8s %-18s %14s %12s %12s %10s%n", "config", "solver",
+				"codes", "memory KB", "ms/move", "avg moves");
+		for(int[] config : scalingConfigs) {
+			final CodeSpace space;
+			try {
+				space = new CodeSpace(config[0], config[1]);
+			} catch(IllegalArgumentException e) {
+				System.out.println(e.getMessage());
+				continue;
+			}
+			testScaling(space, "Brain", numGames, new Factory() {
+				public Solver create(CodeSpace s) {
+					return new Brain(s.getGuessLength(), s.getNumElements());
+				}
+			});
+			if(space.size() <= maxConsistentSize) {
+				testScaling(space, "ConsistentSolver", numGames, new Factory() {
+					public Solver create(CodeSpace s) {
+						return new ConsistentSolver(s);
+					}
+				});
+			} else {
+				System.out.printf("%-8s %-18s %14d   skipped--too many codes to hold%n",
+						space, "ConsistentSolver", space.size());
+			}
+		}
+	}
+
+	private static void testScaling(CodeSpace space, String name, int numGames,
+			Factory factory) {
+		Runtime rt = Runtime.getRuntime();
+		long memory = 0;
+		long nanos = 0;
+		int moves = 0, lost = 0;
+		for(int i=0; i<numGames; i++) {
+			Engine engine = new Engine(space.getGuessLength(), space.getNumElements(), 100);
+			engine.setNoDuplicates(space.isNoDuplicates());
+			engine.init();
+			rt.gc();
+			long before = rt.totalMemory() - rt.freeMemory();
+			long start = System.nanoTime();
+			Solver solver = factory.create(space);
+			nanos += System.nanoTime() - start;
+			memory = Math.max(memory, rt.totalMemory() - rt.freeMemory() - before);
+			start = System.nanoTime();
+			int n = playGame(solver, engine);
+			nanos += System.nanoTime() - start;
+			if(n < 0) {
+				lost++;
+				n = 100;
+			}
+			moves += n;
+		}
+		System.out.printf("%-8s %-18s %14d %12d %12.3f %10.2f%s%n", space, name,
+				space.size(), memory / 1024, nanos / 1e6 / moves,
+				moves / (double)numGames, lost > 0 ? "  lost " + lost : "");
+	}
+
+	/**
+	 * Plays numGames games of ConsistentSolver for a few configurations,
+	 * with and without duplicates, and prints the size of the candidate
+	 * space and the time per move for each.
+	 */
+	public static void testNoDuplicates(int numGames) {
+		System.out.println("TestNoDuplicates:");
+		System.out.println("Games per configuration: " + numGames);
+		System.out.println();
+		System.out.printf("%-8s %-18s %14s %12s %12s %10s%n", "config", "solver",
+				"codes", "memory KB", "ms/move", "avg moves");
+		int[][] configs = {{4, 6}, {4, 10}, {5, 8}, {6, 10}, {6, 16}};
+		Factory factory = new Factory() {
+			public Solver create(CodeSpace s) {
+				return new ConsistentSolver(s);
+			}
+		};
+		for(int[] config : configs) {
+			testScaling(new CodeSpace(config[0], config[1]), "ConsistentSolver",
+					numGames, factory);
+			testScaling(new CodeSpace(config[0], config[1], true), "ConsistentSolver",
+					numGames, factory);
+		}
+	}
+
+	/**
+	 * Totals from playing a solver against a series of secrets.
+	 */
+	static class Run {
+		long nanos;
+		int moves;
+		long gcCount;
+		long gcMillis;
+		// hash of every guess made, to check two solvers played alike
+		long guessHash = 17;
+	}
+
+	// total collections and collection time so far
+	private static long[] gcTotals() {
+		long[] t = new long[2];
+		for(java.lang.management.GarbageCollectorMXBean gc :
+				java.lang.management.ManagementFactory.getGarbageCollectorMXBeans()) {
+			t[0] += Math.max(0, gc.getCollectionCount());
+			t[1] += Math.max(0, gc.getCollectionTime());
+		}
+		return t;
+	}
+
+	/**
+	 * Plays numGames games of solvers from factory against secrets drawn
+	 * from a Random seeded with seed, scoring with the CodeSpace rather than
+	 * an Engine, and returns the totals.
+	 *
+	 * @param space
+	 * @param factory
+	 * @param numGames
+	 * @param seed
+	 * @return
+	 */
+	static Run run(CodeSpace space, Factory factory, int numGames, long seed) {
+		Random rand = new Random(seed);
+		Run run = new Run();
+		Runtime.getRuntime().gc();
+		long[] gcBefore = gcTotals();
+		for(int i=0; i<numGames; i++) {
+			long secret = space.codeAt((long)(rand.nextDouble() * space.size()));
+			long start = System.nanoTime();
+			Solver solver = factory.create(space);
+			while(true) {
+				int[] g = solver.nextGuess();
+				run.moves++;
+				long packed = space.pack(g);
+				run.guessHash = 31 * run.guessHash + packed;
+				int key = space.score(packed, secret);
+				if(key == space.winningKey()) {
+					break;
+				}
+				solver.update(new GuessInfo(g, space.feedback(key)));
+			}
+			run.nanos += System.nanoTime() - start;
+		}
+		long[] gcAfter = gcTotals();
+		run.gcCount = gcAfter[0] - gcBefore[0];
+		run.gcMillis = gcAfter[1] - gcBefore[1];
+		return run;
+	}
+
+	/**
+	 * Plays numGames games with a ConsistentSolver holding its candidates
+	 * and one streaming them (a memory budget of 0), against the same
+	 * secrets, and prints the time per move of each and whether they
+	 * always made the same guesses.
+	 */
+	public static void testStreaming(int numGames) {
+		System.out.println("TestStreaming:");
+		System.out.println("Games per configuration: " + numGames);
+		System.out.println();
+		System.out.printf("%-8s %14s %14s %14s %10s%n", "config", "codes",
+				"held ms/move", "stream ms/move", "same");
+		int[][] configs = {{5, 8}, {6, 10}, {7, 8}, {8, 8}};
+		for(int[] config : configs) {
+			CodeSpace space = new CodeSpace(config[0], config[1]);
+			long seed = System.nanoTime();
+			Run held = run(space, new Factory() {
+				public Solver create(CodeSpace s) {
+					return new ConsistentSolver(s);
+				}
+			}, numGames, seed);
+			Run streaming = run(space, new Factory() {
+				public Solver create(CodeSpace s) {
+					return new ConsistentSolver(s, 0);
+				}
+			}, numGames, seed);
+			System.out.printf("%-8s %14d %14.3f %14.3f %10s%n", space, space.size(),
+					held.nanos / 1e6 / held.moves, streaming.nanos / 1e6 / streaming.moves,
+					held.guessHash == streaming.guessHash);
+		}
+	}
+
+	/**
+	 * Plays numGames games with a ConsistentSolver keeping its candidates
+	 * on the heap, one keeping them off it (a threshold of 0), and one
+	 * with a heap budget of 1 MB, which has to keep them off it, against
+	 * the same secrets, and prints the time per move and the garbage
+	 * collections during each.
+	 */
+	public static void testOffHeap(int numGames) {
+		System.out.println("TestOffHeap:");
+		System.out.println("Games per configuration: " + numGames);
+		System.out.println();
+		System.out.printf("%-8s %14s %-9s %10s %8s %8s %6s%n", "config", "codes",
+				"storage", "ms/move", "GCs", "GC ms", "same");
+		int[][] configs = {{6, 10}, {7, 8}, {8, 8}, {6, 16}};
+		for(int[] config : configs) {
+			CodeSpace space = new CodeSpace(config[0], config[1]);
+			long seed = System.nanoTime();
+			Run heap = run(space, new Factory() {
+				public Solver create(CodeSpace s) {
+					return new ConsistentSolver(s, Long.MAX_VALUE, Long.MAX_VALUE);
+				}
+			}, numGames, seed);
+			Run direct = run(space, new Factory() {
+				public Solver create(CodeSpace s) {
+					return new ConsistentSolver(s, Long.MAX_VALUE, 0);
+				}
+			}, numGames, seed);
+			// a heap budget too small for the candidates--they are held
+			// off the heap, within the off-heap budget
+			Run budgeted = run(space, new Factory() {
+				public Solver create(CodeSpace s) {
+					return new ConsistentSolver(s, 1 << 20, 1 << 20, Long.MAX_VALUE);
+				}
+			}, numGames, seed);
+			System.out.printf("%-8s %14d %-9s %10.3f %8d %8d%n", space, space.size(),
+					"heap", heap.nanos / 1e6 / heap.moves, heap.gcCount, heap.gcMillis);
+			System.out.printf("%-8s %14d %-9s %10.3f %8d %8d %6s%n", space, space.size(),
+					"off-heap", direct.nanos / 1e6 / direct.moves, direct.gcCount,
+					direct.gcMillis, heap.guessHash == direct.guessHash);
+			System.out.printf("%-8s %14d %-9s %10.3f %8d %8d %6s%n", space, space.size(),
+					"1 MB heap", budgeted.nanos / 1e6 / budgeted.moves, budgeted.gcCount,
+					budgeted.gcMillis, heap.guessHash == budgeted.guessHash);
+		}
+		System.out.println();
+		System.out.println("Off-heap chunks kept for reuse: " + CodeStore.Direct.pooled());
+	}
+
+	/**
+	 * Times filtering a full candidate set with each ScoringKernel, and
+	 * prints the nanoseconds per candidate scored and whether all kernels
+	 * kept the same candidates.
+	 */
+	public static void testKernels(int numGuesses) {
+		System.out.println("TestKernels:");
+		System.out.println("Guesses per configuration: " + numGuesses);
+		System.out.println();
+		ScoringKernel[] kernels = ScoringKernel.values();
+		System.out.printf("%-8s %10s", "config", "codes");
+		for(ScoringKernel k : kernels) {
+			System.out.printf(" %12s", k + " ns");
+		}
+		System.out.printf(" %6s%n", "same");
+		int[][] configs = {{4, 6}, {5, 8}, {6, 10}, {8, 6}, {6, 16}};
+		Random rand = new Random();
+		for(int[] config : configs) {
+			CodeSpace space = new CodeSpace(config[0], config[1]);
+			CandidateSet all = CandidateSet.all(space);
+			long[] guesses = new long[numGuesses];
+			int[] feedbacks = new int[numGuesses];
+			for(int i=0; i<numGuesses; i++) {
+				guesses[i] = all.get(rand.nextInt(all.size()));
+				feedbacks[i] = space.score(guesses[i], all.get(rand.nextInt(all.size())));
+			}
+			// a set for each kernel to copy--GROUPED groups its codes once
+			CandidateSet[] sets = new CandidateSet[kernels.length];
+			for(int k=0; k<kernels.length; k++) {
+				sets[k] = all.copy();
+				sets[k].setKernel(kernels[k]);
+			}
+			long[] nanos = new long[kernels.length];
+			boolean same = true;
+			// first round warms up the JIT and isn't counted
+			for(int round=0; round<2; round++) {
+				for(int i=0; i<numGuesses; i++) {
+					int kept = -1;
+					for(int k=0; k<kernels.length; k++) {
+						CandidateSet c = sets[k].copy();
+						long start = System.nanoTime();
+						int n = c.filter(guesses[i], feedbacks[i]);
+						if(round > 0) {
+							nanos[k] += System.nanoTime() - start;
+						}
+						same &= (kept == -1 || kept == n);
+						kept = n;
+					}
+				}
+			}
+			System.out.printf("%-8s %10d", space, all.size());
+			for(int k=0; k<kernels.length; k++) {
+				System.out.printf(" %12.2f", nanos[k] / (double)numGuesses / all.size());
+			}
+			System.out.printf(" %6s%n", same);
+		}
+	}
+
+	/**
+	 * Times scoring one guess against one secret, as Engine.compare() 
+	 * did by counting each element into two arrays, against scoring the
+	 * packed codes with CodeSpace.score() and scoreScalar(), and checks
+	 * they all agree.
+	 * 
+	 * @param numPairs pairs scored per configuration
+	 */
+	public static void testCompare(int numPairs) {
+		System.out.println("TestCompare:");
+		System.out.println("Pairs per configuration: " + numPairs);
+		System.out.println();
+		System.out.printf("%-8s %14s %12s %12s %6s%n", "config", 
+				"histogram ns", "scalar ns", "swar ns", "same");
+		int[][] configs = {{4, 6}, {5, 8}, {6, 10}, {8, 8}, {8, 16}, {12, 16}, {16, 16}};
+		Random rand = new Random();
+		for(int[] config : configs) {
+			CodeSpace space = new CodeSpace(config[0], config[1]);
+			int[][] guesses = new int[numPairs][config[0]];
+			int[][] secrets = new int[numPairs][config[0]];
+			long[] packedGuesses = new long[numPairs];
+			long[] packedSecrets = new long[numPairs];
+			for(int i=0; i<numPairs; i++) {
+				for(int j=0; j<config[0]; j++) {
+					guesses[i][j] = rand.nextInt(config[1]);
+					secrets[i][j] = rand.nextInt(config[1]);
+				}
+				packedGuesses[i] = space.pack(guesses[i]);
+				packedSecrets[i] = space.pack(secrets[i]);
+			}
+			long histNanos = 0, scalarNanos = 0, swarNanos = 0;
+			int histSum = 0, scalarSum = 0, swarSum = 0;
+			// first rounds warm up the JIT and aren't counted
+			for(int round=0; round<4; round++) {
+				long start = System.nanoTime();
+				for(int i=0; i<numPairs; i++) {
+					int[] m = Engine.scoreHistogram(guesses[i], secrets[i], config[1]);
+					histSum += space.feedbackKey(m[0], m[1]);
+				}
+				long t1 = System.nanoTime();
+				for(int i=0; i<numPairs; i++) {
+					scalarSum += space.scoreScalar(packedGuesses[i], packedSecrets[i]);
+				}
+				long t2 = System.nanoTime();
+				for(int i=0; i<numPairs; i++) {
+					swarSum += space.score(packedGuesses[i], packedSecrets[i]);
+				}
+				long t3 = System.nanoTime();
+				if(round == 3) {
+					histNanos = t1 - start;
+					scalarNanos = t2 - t1;
+					swarNanos = t3 - t2;
+				}
+			}
+			boolean same = histSum == scalarSum && scalarSum == swarSum;
+			for(int i=0; same && i<numPairs; i++) {
+				int[] m = Engine.scoreHistogram(guesses[i], secrets[i], config[1]);
+				same = space.feedbackKey(m[0], m[1]) 
+					== space.score(packedGuesses[i], packedSecrets[i]);
+			}
+			System.out.printf("%-8s %14.2f %12.2f %12.2f %6s%n", space, 
+					histNanos / (double)numPairs, scalarNanos / (double)numPairs, 
+					swarNanos / (double)numPairs, same);
+		}
+	}
+
+	/**
+	 * Counts the codes consistent with random guesses at a random secret
+	 * with a ConsistentCounter, checking the counts against walking the
+	 * space where that can be done, and checks codes sampled from it are
+	 * consistent.
+	 * 
+	 * @param numGuesses guesses made in each configuration
+	 */
+	public static void testCounting(int numGuesses) {
+		System.out.println("TestCounting:");
+		System.out.println();
+		System.out.printf("%-8s %7s %16s %16s %10s %10s %7s%n", "config", "guesses",
+				"counted", "walked", "states", "ms", "sample");
+		int[][] configs = {{5, 8}, {6, 10}, {10, 10}, {12, 12}};
+		Random rand = new Random();
+		for(int[] config : configs) {
+			CodeSpace space = new CodeSpace(config[0], config[1]);
+			long secret = space.codeAt((long)(rand.nextDouble() * space.size()));
+			GuessHistory history = new GuessHistory(space);
+			for(int g=1; g<=numGuesses; g++) {
+				long guess = space.codeAt((long)(rand.nextDouble() * space.size()));
+				history.add(guess, space.score(guess, secret));
+				long start = System.nanoTime();
+				ConsistentCounter counter = new ConsistentCounter(history);
+				long count = counter.count();
+				long nanos = System.nanoTime() - start;
+				String walked = "-";
+				if(space.size() <= maxConsistentSize) {
+					walked = "" + CodeSpliterator.stream(space, history, true).count();
+				}
+				boolean sampleOk = history.isConsistent(counter.sample(rand));
+				System.out.printf("%-8s %7d %16d %16s %10d %10.1f %7s%n", space, g, count,
+						walked, counter.numStates(), nanos / 1e6, sampleOk);
+			}
+		}
+	}
+
+	/**
+	 * Plays numGames games of Brain and of SamplingSolver for 7 and 8 peg
+	 * configurations, and prints the average moves and time per move, and 
+	 * checks a seeded SamplingSolver plays the same game twice.
+	 * 
+	 * @param numGames
+	 */
+	public static void testSampling(int numGames) {
+		System.out.println("TestSampling:");
+		System.out.println("Games per configuration: " + numGames);
+		System.out.println();
+		System.out.printf("%-8s %-18s %12s %10s%n", "config", "solver", "ms/move", "avg moves");
+		int[][] configs = {{6, 10}, {7, 8}, {8, 8}, {8, 12}};
+		for(int[] config : configs) {
+			CodeSpace space = new CodeSpace(config[0], config[1]);
+			Run brain = run(space, new Factory() {
+				public Solver create(CodeSpace s) {
+					return new Brain(s.getGuessLength(), s.getNumElements());
+				}
+			}, numGames, 1);
+			System.out.printf("%-8s %-18s %12.3f %10.2f%n", space, "Brain",
+					brain.nanos / 1e6 / brain.moves, brain.moves / (double)numGames);
+			Run sampling = run(space, new Factory() {
+				public Solver create(CodeSpace s) {
+					return new SamplingSolver(s, 42, SamplingSolver.DEFAULT_TIME_BUDGET);
+				}
+			}, numGames, 1);
+			System.out.printf("%-8s %-18s %12.3f %10.2f%n", space, "SamplingSolver",
+					sampling.nanos / 1e6 / sampling.moves, sampling.moves / (double)numGames);
+		}
+		CodeSpace space = new CodeSpace(6, 10);
+		Factory seeded = new Factory() {
+			public Solver create(CodeSpace s) {
+				return new SamplingSolver(s, 7, Long.MAX_VALUE / 4);
+			}
+		};
+		System.out.println();
+		System.out.println("Seeded games repeat: " + 
+				(run(space, seeded, 3, 5).guessHash == run(space, seeded, 3, 5).guessHash));
+	}
+
+	/**
+	 * Plays numGames games of Brain and of PropagationSolver for each of a
+	 * range of configurations up to 10 pegs by 12 elements, and prints the
+	 * average moves, the average and slowest time per move, and whether
+	 * every PropagationSolver guess was consistent with the results before
+	 * it.
+	 * 
+	 * @param numGames
+	 */
+	public static void testPropagation(int numGames) {
+		System.out.println("TestPropagation:");
+		System.out.println("Games per configuration: " + numGames);
+		System.out.println();
+		System.out.printf("%-8s %-18s %12s %12s %10s %11s%n", "config", "solver", 
+				"ms/move", "max ms", "avg moves", "consistent");
+		int[][] configs = {{4, 6}, {5, 8}, {6, 10}, {8, 10}, {10, 12}};
+		for(int[] config : configs) {
+			CodeSpace space = new CodeSpace(config[0], config[1]);
+			Run brain = run(space, new Factory() {
+				public Solver create(CodeSpace s) {
+					return new Brain(s.getGuessLength(), s.getNumElements());
+				}
+			}, numGames, 1);
+			System.out.printf("%-8s %-18s %12.3f %12s %10.2f %11s%n", space, "Brain",
+					brain.nanos / 1e6 / brain.moves, "-", brain.moves / (double)numGames, "-");
+			Random rand = new Random(1);
+			long nanos = 0;
+			long maxNanos = 0;
+			int moves = 0;
+			boolean consistent = true;
+			for(int i=0; i<numGames; i++) {
+				long secret = space.codeAt((long)(rand.nextDouble() * space.size()));
+				PropagationSolver solver = new PropagationSolver(space, i);
+				GuessHistory history = new GuessHistory(space);
+				while(true) {
+					long start = System.nanoTime();
+					int[] g = solver.nextGuess();
+					long t = System.nanoTime() - start;
+					nanos += t;
+					maxNanos = Math.max(maxNanos, t);
+					moves++;
+					long packed = space.pack(g);
+					consistent &= history.isConsistent(packed);
+					int key = space.score(packed, secret);
+					if(key == space.winningKey()) {
+						break;
+					}
+					history.add(packed, key);
+					solver.update(new GuessInfo(g, space.feedback(key)));
+				}
+			}
+			System.out.printf("%-8s %-18s %12.3f %12.3f %10.2f %11s%n", space, 
+					"PropagationSolver", nanos / 1e6 / moves, maxNanos / 1e6, 
+					moves / (double)numGames, consistent);
+		}
+	}
+
+	/**
+	 * Plays numGames games of PropagationSolver and of GeneticSolver for 
+	 * each of a range of configurations, and prints the average moves and 
+	 * time per move, and checks a seeded GeneticSolver plays the same game
+	 * twice.
+	 * 
+	 * @param numGames
+	 */
+	public static void testGenetic(int numGames) {
+		System.out.println("TestGenetic:");
+		System.out.println("Games per configuration: " + numGames);
+		System.out.println();
+		System.out.printf("%-8s %-18s %12s %10s%n", "config", "solver", "ms/move", "avg moves");
+		int[][] configs = {{4, 6}, {6, 10}, {8, 10}, {10, 12}};
+		for(int[] config : configs) {
+			CodeSpace space = new CodeSpace(config[0], config[1]);
+			Run propagation = run(space, new Factory() {
+				public Solver create(CodeSpace s) {
+					return new PropagationSolver(s, 42);
+				}
+			}, numGames, 1);
+			System.out.printf("%-8s %-18s %12.3f %10.2f%n", space, "PropagationSolver",
+					propagation.nanos / 1e6 / propagation.moves, 
+					propagation.moves / (double)numGames);
+			Run genetic = run(space, new Factory() {
+				public Solver create(CodeSpace s) {
+					return new GeneticSolver(s, 42, GeneticSolver.DEFAULT_POPULATION);
+				}
+			}, numGames, 1);
+			System.out.printf("%-8s %-18s %12.3f %10.2f%n", space, "GeneticSolver",
+					genetic.nanos / 1e6 / genetic.moves, genetic.moves / (double)numGames);
+		}
+		CodeSpace space = new CodeSpace(6, 10, true);
+		Factory seeded = new Factory() {
+			public Solver create(CodeSpace s) {
+				return new GeneticSolver(s, 7, GeneticSolver.DEFAULT_POPULATION);
+			}
+		};
+		System.out.println();
+		System.out.println("Seeded games repeat, with no duplicates: " + 
+				(run(space, seeded, 3, 5).guessHash == run(space, seeded, 3, 5).guessHash));
+	}
+
+	/**
+	 * Evaluates solvers over every secret of small spaces by walking their
+	 * strategy trees with a StrategyEvaluator, and by replaying a game per
+	 * secret, and prints the time each took, the average and most guesses,
+	 * and whether the two found the same distribution of guesses.  Then
+	 * prints the top of one strategy tree.
+	 */
+	public static void testStrategy() {
+		System.out.println("TestStrategy:");
+		System.out.println();
+		System.out.printf("%-8s %-18s %8s %6s %10s %10s %10s %6s%n", "config", "solver",
+				"avg", "max", "nodes", "walk ms", "replay ms", "same");
+		String[] names = {"Brain", "ConsistentSolver", "PropagationSolver"};
+		Factory[] factories = {
+			new Factory() {
+				public Solver create(CodeSpace s) {
+					return new Brain(s.getGuessLength(), s.getNumElements());
+				}
+			},
+			new Factory() {
+				public Solver create(CodeSpace s) {
+					return new ConsistentSolver(s);
+				}
+			},
+			new Factory() {
+				public Solver create(CodeSpace s) {
+					return new PropagationSolver(s, 42);
+				}
+			}
+		};
+		int[][] configs = {{4, 6}, {5, 8}};
+		StrategyEvaluator.Node shown = null;
+		for(int[] config : configs) {
+			CodeSpace space = new CodeSpace(config[0], config[1]);
+			StrategyEvaluator evaluator = new StrategyEvaluator(space);
+			for(int f=0; f<factories.length; f++) {
+				// once to warm up
+				evaluator.evaluate(factories[f].create(space));
+				long start = System.nanoTime();
+				StrategyEvaluator.Node root = evaluator.evaluate(factories[f].create(space));
+				long walkNanos = System.nanoTime() - start;
+				if(shown == null) {
+					shown = root;
+				}
+				// one game per secret
+				start = System.nanoTime();
+				int[] replayed = new int[root.getMaxGuesses()];
+				boolean same = root.getFailures() == 0;
+				for(long i=0; i<space.size(); i++) {
+					long secret = space.codeAt(i);
+					Solver solver = factories[f].create(space);
+					for(int moves=1; ; moves++) {
+						int[] g = solver.nextGuess();
+						int key = space.score(space.pack(g), secret);
+						if(key == space.winningKey()) {
+							if(moves <= replayed.length) {
+								replayed[moves - 1]++;
+							} else {
+								same = false;
+							}
+							break;
+						}
+						solver.update(new GuessInfo(g, space.feedback(key)));
+					}
+				}
+				long replayNanos = System.nanoTime() - start;
+				same &= Arrays.equals(replayed, root.getDistribution());
+				System.out.printf("%-8s %-18s %8.4f %6d %10d %10.1f %10.1f %6s%n", space,
+						names[f], root.getAverage(), root.getMaxGuesses(), root.getNumNodes(),
+						walkNanos / 1e6, replayNanos / 1e6, same);
+			}
+		}
+		System.out.println();
+		System.out.println("Brain's strategy for 4x6, to 2 levels:");
+		shown.print(System.out, new CodeSpace(4, 6), 2);
+	}
+
+	/**
+	 * Plays solvers against an Engine whose secret is kept by an Adversary,
+	 * and prints the guesses each took and the time per move, the
+	 * adversary's answers included.  For spaces small enough, also prints
+	 * the most guesses the solver takes over every secret, from a
+	 * StrategyEvaluator--the adversary only looks one guess ahead, so can
+	 * force no more than that.
+	 */
+	public static void testAdversary() {
+		System.out.println("TestAdversary:");
+		System.out.println();
+		System.out.printf("%-8s %-18s %10s %8s %12s%n", "config", "solver", "moves",
+				"worst", "ms/move");
+		String[] names = {"Brain", "ConsistentSolver", "PropagationSolver", "GeneticSolver"};
+		Factory[] factories = {
+			new Factory() {
+				public Solver create(CodeSpace s) {
+					return new Brain(s.getGuessLength(), s.getNumElements());
+				}
+			},
+			new Factory() {
+				public Solver create(CodeSpace s) {
+					return new ConsistentSolver(s);
+				}
+			},
+			new Factory() {
+				public Solver create(CodeSpace s) {
+					return new PropagationSolver(s, 42);
+				}
+			},
+			new Factory() {
+				public Solver create(CodeSpace s) {
+					return new GeneticSolver(s, 42, GeneticSolver.DEFAULT_POPULATION);
+				}
+			}
+		};
+		int[][] configs = {{4, 6}, {5, 8}, {6, 10}, {8, 10}};
+		for(int[] config : configs) {
+			CodeSpace space = new CodeSpace(config[0], config[1]);
+			for(int f=0; f<factories.length; f++) {
+				if(f == 1 && space.size() > 1000000) {
+					// holds every candidate
+					continue;
+				}
+				String worst = "-";
+				// GeneticSolver breeds for each guess of each game state
+				if(space.size() <= (f == 3 ? 2000 : 40000)) {
+					worst = "" + new StrategyEvaluator(space).evaluate(
+							factories[f].create(space)).getMaxGuesses();
+				}
+				Engine engine = new Engine(config[0], config[1], 50);
+				engine.setAdversarial(true);
+				engine.init();
+				Solver solver = factories[f].create(space);
+				long start = System.nanoTime();
+				int moves = playGame(solver, engine);
+				long nanos = System.nanoTime() - start;
+				System.out.printf("%-8s %-18s %10d %8s %12.3f%n", space, names[f], moves,
+						worst, nanos / 1e6 / Math.abs(moves));
+			}
+		}
+	}
+
+	/**
+	 * Plays numGames games with lies for each configuration and number of
+	 * lies, with a RobustSolver and with a ConsistentSolver, which trusts
+	 * every result.  Prints the average guesses in the games won, the
+	 * average lies told, the games lost or given up, and the time per move.
+	 *
+	 * @param numGames
+	 */
+	public static void testLies(int numGames) {
+		System.out.println("TestLies:");
+		System.out.println("Games per configuration: " + numGames);
+		System.out.println();
+		System.out.printf("%-8s %5s %-18s %10s %10s %6s %12s%n", "config", "lies", "solver",
+				"avg moves", "avg told", "lost", "ms/move");
+		int[][] configs = {{4, 6}, {5, 8}, {6, 9}};
+		for(int[] config : configs) {
+			final CodeSpace space = new CodeSpace(config[0], config[1]);
+			for(int lies=0; lies<=2; lies++) {
+				for(int robust=1; robust>=0; robust--) {
+					Engine engine = new Engine(config[0], config[1], 50);
+					engine.setLies(lies);
+					int moves = 0;
+					int won = 0;
+					int told = 0;
+					long nanos = 0;
+					for(int game=0; game<numGames; game++) {
+						engine.init();
+						Solver solver = robust == 1 ? new RobustSolver(space, lies)
+							: new ConsistentSolver(space);
+						long start = System.nanoTime();
+						int m;
+						try {
+							m = playGame(solver, engine);
+						} catch(RuntimeException e) {
+							// no candidate left
+							m = -1;
+						}
+						nanos += System.nanoTime() - start;
+						told += engine.getLiesTold();
+						if(m > 0) {
+							moves += m;
+							won++;
+						}
+					}
+					System.out.printf("%-8s %5d %-18s %10.2f %10.2f %6d %12.3f%n", space, lies,
+							robust == 1 ? "RobustSolver" : "ConsistentSolver",
+							won == 0 ? 0 : moves / (double)won, told / (double)numGames,
+							numGames - won, nanos / 1e6 / Math.max(1, moves));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Plays numGames games with blacks only for each configuration, up to
+	 * 24 pegs, with a BlackPegSolver, and prints the average and most
+	 * guesses, the time per move and the most search nodes for a guess.
+	 *
+	 * @param numGames
+	 */
+	public static void testBlackPegs(int numGames) {
+		System.out.println("TestBlackPegs:");
+		System.out.println("Games per configuration: " + numGames);
+		System.out.println();
+		System.out.printf("%-8s %6s %10s %6s %12s %12s%n", "config", "nodup", "avg moves",
+				"max", "ms/move", "max nodes");
+		int[][] configs = {{4, 6, 0}, {6, 10, 0}, {8, 8, 1}, {12, 12, 0}, {16, 16, 1},
+				{20, 20, 0}, {24, 16, 0}};
+		for(int[] config : configs) {
+			boolean noDuplicates = config[2] == 1;
+			Engine engine = new Engine(config[0], config[1], 1000);
+			engine.setBlackOnly(true);
+			engine.setNoDuplicates(noDuplicates);
+			int moves = 0;
+			int most = 0;
+			long maxNodes = 0;
+			long nanos = 0;
+			for(int game=0; game<numGames; game++) {
+				engine.init();
+				BlackPegSolver solver = new BlackPegSolver(config[0], config[1],
+						noDuplicates, game);
+				long start = System.nanoTime();
+				for(int m=1; ; m++) {
+					GuessInfo gr = engine.compare(solver.nextGuess());
+					maxNodes = Math.max(maxNodes, solver.getNodes());
+					if(engine.hasWon() || engine.hasLost()) {
+						moves += m;
+						most = Math.max(most, engine.hasWon() ? m : -1);
+						break;
+					}
+					solver.update(gr);
+				}
+				nanos += System.nanoTime() - start;
+			}
+			System.out.printf("%-8s %6s %10.2f %6d %12.3f %12d%n", config[0] + "x" + config[1],
+					noDuplicates, moves / (double)numGames, most, nanos / 1e6 / moves, maxNodes);
+		}
+	}
+
+	/**
+	 * Searches for a static set of guesses for each configuration, each for
+	 * up to timeLimit ms, reporting each new best set as it is found.  Then
+	 * plays numSecrets random secrets, scoring the whole set against each
+	 * with Engine.scoreHistogram(), and checks that the results name the
+	 * secret.  Prints the lower bound, the best size, when it was found and
+	 * how many secrets were named.
+	 *
+	 * @param timeLimit
+	 * @param numSecrets
+	 */
+	public static void testQuerySets(long timeLimit, int numSecrets) {
+		System.out.println("TestQuerySets:");
+		System.out.println("Time limit per configuration: " + timeLimit + " ms");
+		System.out.println();
+		int[][] configs = {{3, 3}, {4, 4}, {4, 6}, {5, 5}};
+		String[] rows = new String[configs.length];
+		Random rand = new Random(1);
+		for(int c=0; c<configs.length; c++) {
+			int n = configs[c][0];
+			int k = configs[c][1];
+			CodeSpace space = new CodeSpace(n, k);
+			QuerySetSearch search = new QuerySetSearch(space);
+			search.setTimeLimit(timeLimit);
+			search.setSeed(c);
+			search.setProgress(System.out);
+			long[] set = search.search();
+			int named = 0;
+			for(int s=0; s<numSecrets; s++) {
+				int[] secret = new int[n];
+				for(int p=0; p<n; p++) {
+					secret[p] = rand.nextInt(k);
+				}
+				int[] keys = new int[set.length];
+				for(int j=0; j<set.length; j++) {
+					int[] score = Engine.scoreHistogram(space.unpack(set[j]), secret, k);
+					keys[j] = space.feedbackKey(score[0], score[1]);
+				}
+				if(search.identify(set, keys) == space.pack(secret)) {
+					named++;
+				}
+			}
+			rows[c] = String.format("%-8s %8d %8d %8d %10d %8s", space, space.size(),
+					search.lowerBound(), set.length, search.getBestMillis(),
+					named + "/" + numSecrets);
+		}
+		System.out.println();
+		System.out.printf("%-8s %8s %8s %8s %10s %8s%n", "config", "codes", "bound",
+				"guesses", "found ms", "named");
+		for(String row : rows) {
+			System.out.println(row);
+		}
+	}
+
+	/**
+	 * Plays numGames multi-board games for each configuration and number of
+	 * boards, with a MultiBoardSolver and with a ConsistentSolver per board,
+	 * which plays for the first board not solved and is told every
+	 * board's results.  Prints the average and most guesses, the games
+	 * lost and the time per move.
+	 *
+	 * @param numGames
+	 */
+	public static void testMultiBoard(int numGames) {
+		System.out.println("TestMultiBoard:");
+		System.out.println("Games per configuration: " + numGames);
+		System.out.println();
+		System.out.printf("%-8s %6s %-18s %10s %6s %6s %12s%n", "config", "boards", "solver",
+				"avg moves", "max", "lost", "ms/move");
+		int[][] configs = {{4, 6}, {5, 8}};
+		int[] numBoards = {1, 2, 4, 8};
+		for(int[] config : configs) {
+			CodeSpace space = new CodeSpace(config[0], config[1]);
+			for(int boards : numBoards) {
+				for(int shared=1; shared>=0; shared--) {
+					Engine engine = new Engine(config[0], config[1], 50);
+					engine.setBoards(boards);
+					int moves = 0;
+					int most = 0;
+					int lost = 0;
+					long nanos = 0;
+					for(int game=0; game<numGames; game++) {
+						engine.init();
+						MultiBoardSolver multi = null;
+						ConsistentSolver[] solvers = null;
+						if(shared == 1) {
+							multi = new MultiBoardSolver(space, boards);
+						} else {
+							solvers = new ConsistentSolver[boards];
+							for(int b=0; b<boards; b++) {
+								solvers[b] = new ConsistentSolver(space);
+							}
+						}
+						long start = System.nanoTime();
+						int m = 0;
+						while(!engine.hasWon() && !engine.hasLost()) {
+							int[] guess;
+							if(multi != null) {
+								guess = multi.nextGuess();
+							} else {
+								int b = 0;
+								while(engine.isSolved(b)) {
+									b++;
+								}
+								guess = solvers[b].nextGuess();
+							}
+							GuessInfo[] results = engine.compareAll(guess);
+							m++;
+							if(multi != null) {
+								multi.update(results);
+							} else {
+								for(int b=0; b<boards; b++) {
+									if(results[b] != null && !engine.isSolved(b)) {
+										solvers[b].update(results[b]);
+									}
+								}
+							}
+						}
+						nanos += System.nanoTime() - start;
+						moves += m;
+						most = Math.max(most, m);
+						if(engine.hasLost()) {
+							lost++;
+						}
+					}
+					System.out.printf("%-8s %6d %-18s %10.2f %6d %6d %12.3f%n", space, boards,
+							shared == 1 ? "MultiBoardSolver" : "ConsistentSolvers",
+							moves / (double)numGames, most, lost, nanos / 1e6 / moves);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Walks whole strategies as in testStrategy(), writes each to a
+	 * StrategyFile and maps it back, then plays every secret with a
+	 * StrategySolver reading the mapped file.  Prints the nodes, the heap
+	 * the walked tree took against the file's size, the time to map the
+	 * file and to play every secret, and whether the games took as many
+	 * guesses as the walk said.
+	 *
+	 * @throws IOException
+	 */
+	public static void testStrategyFile() throws IOException {
+		System.out.println("TestStrategyFile:");
+		System.out.println();
+		System.out.printf("%-8s %-18s %10s %10s %10s %10s %10s %6s%n", "config", "solver",
+				"nodes", "heap KB", "file KB", "map ms", "play ms", "same");
+		String[] names = {"ConsistentSolver", "PropagationSolver"};
+		Factory[] factories = {
+			new Factory() {
+				public Solver create(CodeSpace s) {
+					return new ConsistentSolver(s);
+				}
+			},
+			new Factory() {
+				public Solver create(CodeSpace s) {
+					return new PropagationSolver(s, 42);
+				}
+			}
+		};
+		int[][] configs = {{4, 6}, {5, 8}};
+		Runtime rt = Runtime.getRuntime();
+		for(int[] config : configs) {
+			CodeSpace space = new CodeSpace(config[0], config[1]);
+			for(int f=0; f<factories.length; f++) {
+				long before = usedHeap(rt);
+				StrategyEvaluator.Node root = new StrategyEvaluator(space).evaluate(
+						factories[f].create(space));
+				long heap = usedHeap(rt) - before;
+				File file = File.createTempFile("mastermind", ".strategy");
+				file.deleteOnExit();
+				StrategyFile.write(root, space, file);
+				long start = System.nanoTime();
+				StrategyFile strategy = StrategyFile.map(file);
+				long mapNanos = System.nanoTime() - start;
+				start = System.nanoTime();
+				int[] played = new int[root.getMaxGuesses()];
+				boolean same = true;
+				for(long i=0; i<space.size(); i++) {
+					long secret = space.codeAt(i);
+					Solver solver = new StrategySolver(strategy);
+					for(int moves=1; ; moves++) {
+						int[] g = solver.nextGuess();
+						int key = space.score(space.pack(g), secret);
+						if(key == space.winningKey()) {
+							if(moves <= played.length) {
+								played[moves - 1]++;
+							} else {
+								same = false;
+							}
+							break;
+						}
+						solver.update(new GuessInfo(g, space.feedback(key)));
+					}
+				}
+				long playNanos = System.nanoTime() - start;
+				same &= Arrays.equals(played, root.getDistribution());
+				System.out.printf("%-8s %-18s %10d %10d %10d %10.3f %10.1f %6s%n", space,
+						names[f], root.getNumNodes(), heap / 1024, strategy.bytes() / 1024,
+						mapNanos / 1e6, playNanos / 1e6, same);
+			}
+		}
+	}
+
+	/**
+	 * Generates the opening books--see OpeningBooks--for every game of up
+	 * to maxCodes codes into a temporary directory, then runs again to
+	 * show every file is found up to date, and maps the directory as the
+	 * strategy cache.  Prints each configuration and the time of each run.
+	 *
+	 * @param maxCodes
+	 * @throws IOException
+	 */
+	public static void testOpeningBooks(long maxCodes) throws IOException {
+		System.out.println("TestOpeningBooks:");
+		System.out.println();
+		File dir = Files.createTempDirectory("mastermind").toFile();
+		OpeningBooks books = new OpeningBooks(dir);
+		books.setMaxCodes(maxCodes);
+		books.setProgress(System.out);
+		for(int run=1; run<=2; run++) {
+			long start = System.currentTimeMillis();
+			books.generate();
+			System.out.println("run " + run + ": " + books.getWritten() + " written, " +
+					books.getUpToDate() + " up to date, " + books.getTooBig() + " too big, " +
+					books.getFailed() + " failed, in " + (System.currentTimeMillis() - start) +
+					" ms");
+			System.out.println();
+		}
+		System.out.println("cached from " + dir + ": " + StrategyFile.loadDirectory(dir));
+		for(File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	// the heap in use, once the garbage is collected
+	private static long usedHeap(Runtime rt) {
+		for(int i=0; i<3; i++) {
+			System.gc();
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	/**
+	 * Choose a test from the command line.
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		Scanner sc = new Scanner(System.in);
+		System.out.println("Test MasterMind solvers:");
+		System.out.println("Choose the type of test:");
+		System.out.println("1  Scaling--memory and time per move for each configuration");
+		System.out.println("2  No duplicates--permutation spaces against full ones");
+		System.out.println("3  Streaming--streamed candidates against held ones");
+		System.out.println("4  Off-heap--candidates off the heap against on it");
+		System.out.println("5  Kernels--time to score candidates with each ScoringKernel");
+		System.out.println("6  Compare--time to score a guess the way Engine did and packed");
+		System.out.println("7  Counting--consistent codes counted without walking the space");
+		System.out.println("8  Sampling--SamplingSolver against Brain on long codes");
+		System.out.println("9  Propagation--PropagationSolver against Brain up to 10 pegs");
+		System.out.println("10 Genetic--GeneticSolver against PropagationSolver");
+		System.out.println("11 Strategy--whole strategies by tree walk against replaying games");
+		System.out.println("12 Adversary--solvers against a secret keeper that never commits");
+		System.out.println("13 Lies--RobustSolver in games where results may be wrong");
+		System.out.println("14 Black pegs--BlackPegSolver with blacks only, up to 24 pegs");
+		System.out.println("15 Query sets--static guess sets that tell every secret apart");
+		System.out.println("16 Multi-board--one guess stream against several secrets");
+		System.out.println("17 Strategy file--strategies mapped from disk and played in place");
+		System.out.println("18 Opening books--strategy files for every game, generated in one run");
+		System.out.println("Enter 1 to 18:");
+		int choice = sc.nextInt();
+
+		if(choice == 1) {
+			testScaling(5);
+		} else if(choice == 2) {
+			testNoDuplicates(20);
+		} else if(choice == 3) {
+			testStreaming(5);
+		} else if(choice == 4) {
+			testOffHeap(5);
+		} else if(choice == 5) {
+			testKernels(20);
+		} else if(choice == 6) {
+			testCompare(1000000);
+		} else if(choice == 7) {
+			testCounting(4);
+		} else if(choice == 8) {
+			testSampling(5);
+		} else if(choice == 9) {
+			testPropagation(20);
+		} else if(choice == 10) {
+			testGenetic(10);
+		} else if(choice == 11) {
+			testStrategy();
+		} else if(choice == 12) {
+			testAdversary();
+		} else if(choice == 13) {
+			testLies(20);
+		} else if(choice == 14) {
+			testBlackPegs(10);
+		} else if(choice == 15) {
+			testQuerySets(10000, 1000);
+		} else if(choice == 16) {
+			testMultiBoard(20);
+		} else if(choice == 17) {
+			try {
+				testStrategyFile();
+			} catch(IOException e) {
+				e.printStackTrace();
+			}
+		} else if(choice == 18) {
+			try {
+				testOpeningBooks(40000);
+			} catch(IOException e) {
+				e.printStackTrace();
+			}
+		}
+		sc.close();
+	}
+}
@@ -0,0 +1,329 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Evaluates a deterministic solver against every secret at once, by
+ * walking the tree of games it plays rather than replaying a game per
+ * secret.
+ *
+ * Every game starts with the same guess, and two secrets give the same
+ * games until some guess scores them differently.  So the walk asks the
+ * solver for a guess, splits the secrets by their feedback to it, and for
+ * each feedback given, updates a copy of the solver and walks on with just
+ * those secrets.  Each game state is worked out once, however many
+ * secrets reach it, and a secret's game ends at the node whose guess it
+ * is.  The result is the tree of the solver's whole strategy, each node
+ * with the distribution of guesses taken by the secrets that reach it.
+ *
+ * The solver has to give the same guess for the same results, and copy()
+ * has to give an independent solver--copies are updated in parallel:
+ * the subtrees of nodes with at least PARALLEL_SECRETS secrets are walked
+ * as separate fork/join tasks, in the common pool, or in the pool of the
+ * task evaluate() is called from.
+ *
+ * @author drogers
+ */
+public class StrategyEvaluator {
+
+	// the fewest secrets at a node for its subtrees to be walked in parallel
+	private static final int PARALLEL_SECRETS = 256;
+
+	private CodeSpace space;
+	private int maxGuesses = 50;
+	private boolean keepTree = true;
+
+	public StrategyEvaluator(CodeSpace space) {
+		this.space = space;
+	}
+
+	/**
+	 * Sets the most guesses a game can take--secrets not found by then are
+	 * counted as failures.
+	 *
+	 * @param maxGuesses
+	 */
+	public void setMaxGuesses(int maxGuesses) {
+		this.maxGuesses = maxGuesses;
+	}
+
+	/**
+	 * Sets whether nodes keep their children.  If not, only the root is
+	 * returned, with the totals, which saves memory for big spaces.
+	 *
+	 * @param keepTree
+	 */
+	public void setKeepTree(boolean keepTree) {
+		this.keepTree = keepTree;
+	}
+
+	/**
+	 * Walks solver's games against every code of the space.  solver must
+	 * not have guessed yet.
+	 *
+	 * @param solver
+	 * @return the root of the strategy tree
+	 */
+	public Node evaluate(Solver solver) {
+		long size = space.size();
+		if(size > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many secrets to evaluate in " + space);
+		}
+		long[] secrets = new long[(int)size];
+		for(int i=0; i<secrets.length; i++) {
+			secrets[i] = space.codeAt(i);
+		}
+		return evaluate(solver, secrets);
+	}
+
+	/**
+	 * Walks solver's games against secrets.  solver must not have guessed
+	 * yet.
+	 *
+	 * @param solver
+	 * @param secrets packed codes, which are reordered
+	 * @return the root of the strategy tree
+	 */
+	public Node evaluate(Solver solver, long[] secrets) {
+		Walk walk = new Walk(solver, secrets, 0, secrets.length, 1);
+		// called from a task, as by OpeningBooks, the walk runs in that
+		// task's pool, where idle workers steal its subtrees
+		if(ForkJoinTask.inForkJoinPool()) {
+			return walk.invoke();
+		}
+		return ForkJoinPool.commonPool().invoke(walk);
+	}
+
+	// walks the subtree for secrets[from] to secrets[to-1], whose games
+	// have reached solver's state, and whose next guess is guess number
+	// depth
+	@SuppressWarnings("serial")
+	private class Walk extends RecursiveTask<Node> {
+		private Solver solver;
+		private long[] secrets;
+		private int from;
+		private int to;
+		private int depth;
+
+		Walk(Solver solver, long[] secrets, int from, int to, int depth) {
+			this.solver = solver;
+			this.secrets = secrets;
+			this.from = from;
+			this.to = to;
+			this.depth = depth;
+		}
+
+		@Override
+		protected Node compute() {
+			int count = to - from;
+			if(depth > maxGuesses) {
+				Node failed = new Node(-1, count);
+				failed.failures = count;
+				return failed;
+			}
+			int[] guess = solver.nextGuess();
+			Node node = new Node(space.pack(guess), count);
+			// sort the secrets by feedback key, counting first
+			int numKeys = space.numFeedbackKeys();
+			int[] starts = new int[numKeys + 1];
+			int[] keys = new int[count];
+			for(int i=0; i<count; i++) {
+				keys[i] = space.score(node.guess, secrets[from + i]);
+				starts[keys[i] + 1]++;
+			}
+			for(int key=0; key<numKeys; key++) {
+				starts[key + 1] += starts[key];
+			}
+			long[] sorted = new long[count];
+			int[] next = Arrays.copyOf(starts, numKeys);
+			for(int i=0; i<count; i++) {
+				sorted[next[keys[i]]++] = secrets[from + i];
+			}
+			int win = space.winningKey();
+			node.addSolved(0, starts[win + 1] - starts[win]);
+			List<Walk> walks = new ArrayList<Walk>();
+			for(int key=0; key<numKeys; key++) {
+				if(key == win || starts[key] == starts[key + 1]) {
+					continue;
+				}
+				Solver child = solver.copy();
+				child.update(new GuessInfo(guess, space.feedback(key)));
+				walks.add(new Walk(child, sorted, starts[key], starts[key + 1], depth + 1));
+			}
+			if(count >= PARALLEL_SECRETS) {
+				invokeAll(walks);
+			}
+			List<Node> children = new ArrayList<Node>();
+			for(Walk w : walks) {
+				Node child = count >= PARALLEL_SECRETS ? w.join() : w.compute();
+				child.feedback = space.feedback(space.score(node.guess, sorted[w.from]));
+				node.add(child);
+				children.add(child);
+			}
+			if(keepTree) {
+				node.children = children.toArray(new Node[children.size()]);
+			}
+			return node;
+		}
+	}
+
+	/**
+	 * A game state in a strategy: the guess the solver makes there, the
+	 * number of secrets whose games reach it, and the distribution of the
+	 * guesses they take from here.
+	 */
+	public static class Node {
+		private long guess;
+		private Feedback feedback;
+		private int numSecrets;
+		// solved[i] secrets take i+1 more guesses
+		private int[] solved = new int[0];
+		private int failures;
+		private long numNodes = 1;
+		private Node[] children = new Node[0];
+
+		Node(long guess, int numSecrets) {
+			this.guess = guess;
+			this.numSecrets = numSecrets;
+		}
+
+		private void addSolved(int moreGuesses, int count) {
+			if(count == 0) {
+				return;
+			}
+			if(moreGuesses >= solved.length) {
+				solved = Arrays.copyOf(solved, moreGuesses + 1);
+			}
+			solved[moreGuesses] += count;
+		}
+
+		// adds a child's totals, a guess deeper
+		private void add(Node child) {
+			for(int i=0; i<child.solved.length; i++) {
+				addSolved(i + 1, child.solved[i]);
+			}
+			failures += child.failures;
+			numNodes += child.numNodes;
+		}
+
+		/**
+		 * Returns the packed guess made here, or -1 for the secrets still
+		 * not found when the evaluator's maxGuesses ran out.
+		 *
+		 * @return
+		 */
+		public long getGuess() {
+			return guess;
+		}
+
+		/**
+		 * Returns the feedback to the parent's guess that leads here, or
+		 * null at the root.
+		 *
+		 * @return
+		 */
+		public Feedback getFeedback() {
+			return feedback;
+		}
+
+		public int getNumSecrets() {
+			return numSecrets;
+		}
+
+		/**
+		 * Returns the number of secrets found in each number of guesses
+		 * counting the one made here--element i is i+1 guesses.
+		 *
+		 * @return
+		 */
+		public int[] getDistribution() {
+			return solved.clone();
+		}
+
+		/**
+		 * Returns the number of secrets not found within maxGuesses.
+		 *
+		 * @return
+		 */
+		public int getFailures() {
+			return failures;
+		}
+
+		/**
+		 * Returns the average guesses taken from here by the secrets found.
+		 *
+		 * @return
+		 */
+		public double getAverage() {
+			long sum = 0;
+			int found = 0;
+			for(int i=0; i<solved.length; i++) {
+				sum += (long)(i + 1) * solved[i];
+				found += solved[i];
+			}
+			return found == 0 ? 0 : sum / (double)found;
+		}
+
+		/**
+		 * Returns the most guesses taken from here by a secret found.
+		 *
+		 * @return
+		 */
+		public int getMaxGuesses() {
+			return solved.length;
+		}
+
+		/**
+		 * Returns the number of game states in the subtree, each of which
+		 * the solver was asked for a guess in once.
+		 *
+		 * @return
+		 */
+		public long getNumNodes() {
+			return numNodes;
+		}
+
+		/**
+		 * Returns the subtrees for each feedback given here other than the
+		 * win--empty if the tree wasn't kept.
+		 *
+		 * @return
+		 */
+		public Node[] getChildren() {
+			return children;
+		}
+
+		/**
+		 * Prints the tree to maxDepth levels, a node a line, indented by
+		 * depth.
+		 *
+		 * @param out
+		 * @param space
+		 * @param maxDepth
+		 */
+		public void print(PrintStream out, CodeSpace space, int maxDepth) {
+			print(out, space, maxDepth, "");
+		}
+
+		private void print(PrintStream out, CodeSpace space, int maxDepth, String indent) {
+			out.println(indent + (feedback == null ? "" : feedback + " -> ") +
+					(guess < 0 ? "not found" : space.toString(guess)) + "  secrets=" +
+					numSecrets + String.format("  avg=%.3f", getAverage()));
+			if(maxDepth > 1) {
+				for(Node child : children) {
+					child.print(out, space, maxDepth - 1, indent + "    ");
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,366 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A whole strategy--see StrategyEvaluator--in a compact form that is
+ * read in place, from a buffer or a memory-mapped file, with nothing
+ * made per node.
+ *
+ * The nodes are numbered in level order, so the children of a node are
+ * next to each other, in the order of their feedback ids, and each
+ * node's children come after the children of the nodes before it.  So a
+ * node only needs its guess, a mask of the feedback ids it has children
+ * for, and the number of its first child: the child for an id is the
+ * first child plus the number of ids below it in the mask.  These are
+ * kept in three arrays, one after the other:
+ * <pre>
+ *   int magic, version, guessLength, numElements, noDuplicates, numNodes
+ *   long guess[numNodes]       packed, -1 where the strategy gave up
+ *   long children[numNodes]    bit id set if there is a child for id
+ *   int firstChild[numNodes]
+ * </pre>
+ * in little-endian order, 20 bytes a node.  Masks are longs, so the
+ * guesses can have no more than 64 feedback ids--up to 9 pegs.
+ *
+ * Reads are absolute, so a StrategyFile can be read by many threads.
+ *
+ * Strategies in the directory named by DIRECTORY_PROPERTY are the ai's
+ * cache: loadDirectory() maps them all, as MasterMind does at startup,
+ * and cached() finds the one for a space--see SolverChoice.STRATEGY, and
+ * OpeningBooks for filling the directory.
+ *
+ * @author drogers
+ */
+public class StrategyFile {
+
+	/**
+	 * The system property naming the directory fileFor() looks in--
+	 * "strategies" if not set.
+	 */
+	public static final String DIRECTORY_PROPERTY = "mastermind.strategies";
+
+	private static final int MAGIC = 0x4D4D5354; // "MMST"
+	private static final int VERSION = 1;
+	private static final int HEADER = 24;
+
+	// the strategies mapped, by space--see cached()
+	private static final Map<String, StrategyFile> cache =
+		new ConcurrentHashMap<String, StrategyFile>();
+
+	private ByteBuffer buffer;
+	private CodeSpace space;
+	private int numNodes;
+
+	// where each array starts
+	private int guesses;
+	private int children;
+	private int firstChildren;
+
+	/**
+	 * Reads a strategy in place from buffer, from its position on.
+	 *
+	 * @param buffer
+	 * @throws IllegalArgumentException if buffer doesn't hold a strategy
+	 */
+	public StrategyFile(ByteBuffer buffer) {
+		this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		if(this.buffer.limit() < HEADER || this.buffer.getInt(0) != MAGIC) {
+			throw new IllegalArgumentException("Not a strategy");
+		}
+		if(this.buffer.getInt(4) != VERSION) {
+			throw new IllegalArgumentException("Unknown strategy version " +
+					this.buffer.getInt(4));
+		}
+		space = new CodeSpace(this.buffer.getInt(8), this.buffer.getInt(12),
+				this.buffer.getInt(16) != 0);
+		numNodes = this.buffer.getInt(20);
+		guesses = HEADER;
+		children = guesses + 8 * numNodes;
+		firstChildren = children + 8 * numNodes;
+		if(this.buffer.limit() < firstChildren + 4 * numNodes) {
+			throw new IllegalArgumentException("Strategy of " + numNodes +
+					" nodes cut short");
+		}
+	}
+
+	/**
+	 * Maps a strategy file into memory, read only.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static StrategyFile map(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			// the mapping stays after the channel is closed
+			return new StrategyFile(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size()));
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Encodes the strategy under root, which must have kept its tree.
+	 *
+	 * @param root
+	 * @param space the space root's guesses are packed in
+	 * @return a buffer holding the strategy, ready to read or write
+	 * @throws IllegalArgumentException if the guesses have more than 64
+	 * feedback ids, or the tree is too big
+	 */
+	public static ByteBuffer encode(StrategyEvaluator.Node root, CodeSpace space) {
+		if(Feedback.numIds(space.getGuessLength()) > 64) {
+			throw new IllegalArgumentException("Too many feedback ids to encode: " +
+					Feedback.numIds(space.getGuessLength()));
+		}
+		if(root.getNumNodes() > (Integer.MAX_VALUE - HEADER) / 20) {
+			throw new IllegalArgumentException("Too many nodes to encode: " +
+					root.getNumNodes());
+		}
+		int n = (int)root.getNumNodes();
+		ByteBuffer out = ByteBuffer.allocate(HEADER + 20 * n).order(ByteOrder.LITTLE_ENDIAN);
+		out.putInt(MAGIC).putInt(VERSION).putInt(space.getGuessLength())
+			.putInt(space.getNumElements()).putInt(space.isNoDuplicates() ? 1 : 0)
+			.putInt(n);
+		// level order--the queue is the nodes in order of their numbers
+		StrategyEvaluator.Node[] queue = new StrategyEvaluator.Node[n];
+		queue[0] = root;
+		int end = 1;
+		for(int i=0; i<n; i++) {
+			StrategyEvaluator.Node node = queue[i];
+			StrategyEvaluator.Node[] kids = node.getChildren().clone();
+			Arrays.sort(kids, new Comparator<StrategyEvaluator.Node>() {
+				public int compare(StrategyEvaluator.Node a, StrategyEvaluator.Node b) {
+					return a.getFeedback().getId() - b.getFeedback().getId();
+				}
+			});
+			long mask = 0;
+			for(StrategyEvaluator.Node kid : kids) {
+				mask |= 1L << kid.getFeedback().getId();
+			}
+			out.putLong(HEADER + 8 * i, node.getGuess());
+			out.putLong(HEADER + 8 * (n + i), mask);
+			out.putInt(HEADER + 16 * n + 4 * i, end);
+			if(end + kids.length > n) {
+				throw new IllegalArgumentException("Tree has more nodes than counted--" +
+						"was it kept?");
+			}
+			System.arraycopy(kids, 0, queue, end, kids.length);
+			end += kids.length;
+		}
+		if(end != n) {
+			throw new IllegalArgumentException("Tree has " + end + " nodes, not " + n +
+					"--was it kept?");
+		}
+		out.position(0);
+		return out;
+	}
+
+	/**
+	 * Encodes the strategy under root to file.
+	 *
+	 * @param root
+	 * @param space the space root's guesses are packed in
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void write(StrategyEvaluator.Node root, CodeSpace space, File file)
+			throws IOException {
+		ByteBuffer out = encode(root, space);
+		FileOutputStream stream = new FileOutputStream(file);
+		try {
+			FileChannel channel = stream.getChannel();
+			while(out.hasRemaining()) {
+				channel.write(out);
+			}
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Returns the directory named by DIRECTORY_PROPERTY.
+	 *
+	 * @return
+	 */
+	public static File directory() {
+		return new File(System.getProperty(DIRECTORY_PROPERTY, "strategies"));
+	}
+
+	/**
+	 * Returns the name of the file for a strategy for space, like
+	 * "4x6.strategy", or "4x6nd.strategy" for no duplicates.
+	 *
+	 * @param space
+	 * @return
+	 */
+	public static String fileName(CodeSpace space) {
+		return space.getGuessLength() + "x" + space.getNumElements() +
+			(space.isNoDuplicates() ? "nd" : "") + ".strategy";
+	}
+
+	/**
+	 * Returns the file a strategy for space is looked for in--fileName()
+	 * in directory().
+	 *
+	 * @param space
+	 * @return
+	 */
+	public static File fileFor(CodeSpace space) {
+		return new File(directory(), fileName(space));
+	}
+
+	/**
+	 * Maps every strategy file in directory into the cache, replacing any
+	 * strategy cached for the same space.  Files that aren't strategies
+	 * are passed over.
+	 *
+	 * @param directory
+	 * @return the number of strategies mapped
+	 */
+	public static int loadDirectory(File directory) {
+		File[] files = directory.listFiles();
+		if(files == null) {
+			return 0;
+		}
+		int loaded = 0;
+		for(File file : files) {
+			if(!file.getName().endsWith(".strategy")) {
+				continue;
+			}
+			try {
+				StrategyFile strategy = map(file);
+				cache.put(strategy.getSpace().toString(), strategy);
+				loaded++;
+			} catch(IOException e) {
+				// pass it over
+			} catch(IllegalArgumentException e) {
+				// not a strategy
+			}
+		}
+		return loaded;
+	}
+
+	/**
+	 * Returns the cached strategy for space, mapping fileFor() space into
+	 * the cache if there is none yet.
+	 *
+	 * @param space
+	 * @return the strategy, or null if there is no good file for it
+	 */
+	public static StrategyFile cached(CodeSpace space) {
+		StrategyFile strategy = cache.get(space.toString());
+		if(strategy != null) {
+			return strategy;
+		}
+		File file = fileFor(space);
+		if(!file.isFile()) {
+			return null;
+		}
+		try {
+			strategy = map(file);
+		} catch(IOException e) {
+			return null;
+		} catch(IllegalArgumentException e) {
+			return null;
+		}
+		if(!strategy.getSpace().toString().equals(space.toString())) {
+			return null;
+		}
+		cache.put(space.toString(), strategy);
+		return strategy;
+	}
+
+	/**
+	 * Writes the strategy of a ConsistentSolver to fileFor() its space.
+	 * Arguments are the guess length and number of elements, eg "5 8",
+	 * followed optionally by "nodup" for no repeated elements.
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		CodeSpace space = new CodeSpace(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+				args.length > 2 && args[2].equalsIgnoreCase("nodup"));
+		StrategyEvaluator.Node root = new StrategyEvaluator(space).evaluate(
+				new ConsistentSolver(space));
+		File file = fileFor(space);
+		if(file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		write(root, space, file);
+		System.out.println(space + ": " + root.getNumNodes() + " nodes, " +
+				String.format("avg=%.4f", root.getAverage()) + ", written to " + file);
+	}
+
+	/**
+	 * Returns the space the guesses are packed in.
+	 *
+	 * @return
+	 */
+	public CodeSpace getSpace() {
+		return space;
+	}
+
+	/**
+	 * Returns the number of nodes.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return numNodes;
+	}
+
+	/**
+	 * Returns the number of bytes the strategy takes.
+	 *
+	 * @return
+	 */
+	public long bytes() {
+		return firstChildren + 4L * numNodes;
+	}
+
+	/**
+	 * Returns the packed guess at node, or -1 if the strategy gave up
+	 * there.  The root is node 0.
+	 *
+	 * @param node
+	 * @return
+	 */
+	public long getGuess(int node) {
+		return buffer.getLong(guesses + 8 * node);
+	}
+
+	/**
+	 * Returns the node reached from node by feedback to its guess.
+	 *
+	 * @param node
+	 * @param feedback
+	 * @return the child, or -1 if there is none--for the win, or for
+	 * feedback no secret gives
+	 */
+	public int getChild(int node, Feedback feedback) {
+		long mask = buffer.getLong(children + 8 * node);
+		long bit = 1L << feedback.getId();
+		if((mask & bit) == 0) {
+			return -1;
+		}
+		return buffer.getInt(firstChildren + 4 * node) + Long.bitCount(mask & (bit - 1));
+	}
+}
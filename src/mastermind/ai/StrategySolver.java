@@ -0,0 +1,65 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.ai;
+
+import mastermind.*;
+
+/**
+ * Plays a strategy worked out ahead of time--see StrategyFile.  The only
+ * state is the node reached, so a guess is one read of the strategy, and
+ * copies share it.  Only results of the strategy's own guesses can be
+ * taken in.
+ *
+ * @author drogers
+ */
+public class StrategySolver implements Solver {
+
+	private StrategyFile strategy;
+	private int node;
+
+	/**
+	 * Creates a solver that plays strategy from its root.
+	 *
+	 * @param strategy
+	 */
+	public StrategySolver(StrategyFile strategy) {
+		this(strategy, 0);
+	}
+
+	private StrategySolver(StrategyFile strategy, int node) {
+		this.strategy = strategy;
+		this.node = node;
+	}
+
+	@Override
+	public int[] nextGuess() {
+		long guess = strategy.getGuess(node);
+		if(guess < 0) {
+			throw new IllegalStateException("The strategy gives up here");
+		}
+		return strategy.getSpace().unpack(guess);
+	}
+
+	@Override
+	public void update(GuessInfo result) {
+		CodeSpace space = strategy.getSpace();
+		if(space.pack(result.getGuess()) != strategy.getGuess(node)) {
+			throw new IllegalStateException("The strategy only knows its own guesses");
+		}
+		int child = strategy.getChild(node, result.getFeedback());
+		if(child < 0) {
+			throw new IllegalStateException("The strategy has no move after " +
+					result.getFeedback());
+		}
+		node = child;
+	}
+
+	@Override
+	public Solver copy() {
+		return new StrategySolver(strategy, node);
+	}
+}
@@ -28,7 +28,8 @@ public class Board extends JPanel {
 
     // The panels that make up the board:
     private GuessPanel[][] guessPanels;// the guesses
-    private GuessResultPanel[] resultPanels;// results of the guesses
+    private GuessResultPanel[][] resultPanels;// results of the guesses,
+                                              // a column per board
 
     // unitWidth is the width of one of the guessPanels[]
     private static int unitWidth = MasterMind.boardUnitHt;
@@ -40,6 +41,9 @@ public class Board extends JPanel {
     // holds the elements to select from -- colors, numbers, etc
     private Object[] elements;
 
+    // told of each result shown, if set
+    private HintPanel hintPanel = null;
+
 	public Board() {}
 
     /**
@@ -53,12 +57,31 @@ public class Board extends JPanel {
      */
     public Board(int numOfPositionsInGuess, int numOfGuesses,
                  MouseListener ml, Object[] elements, Color background) {
+        this(numOfPositionsInGuess, numOfGuesses, ml, elements, background,
+             1);
+    }
+
+    /**
+     * Creates a board with a column of results for each of several
+     * secrets--see Engine.setBoards()
+     * @param numOfPositionsInGuess int - length of the guess
+     * @param numOfGuesses int - number of guesses allowed for this game
+     * @param ml MouseListener - listener for this board
+     * @param elements Object[] - the elements used for playing this
+     * game--in this implementation elements are Colors or Integers
+     * @param background Color - background color for boards panels
+     * @param numBoards int - number of secrets each guess is scored
+     * against
+     */
+    public Board(int numOfPositionsInGuess, int numOfGuesses,
+                 MouseListener ml, Object[] elements, Color background,
+                 int numBoards) {
         this.elements = elements;
         setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
         makeBorder();
         guessPanels = new
                       GuessPanel[numOfGuesses][numOfPositionsInGuess];
-        resultPanels = new GuessResultPanel[numOfGuesses];
+        resultPanels = new GuessResultPanel[numOfGuesses][numBoards];
         Box boxes[] = new Box[numOfGuesses];
         for (int i = numOfGuesses - 1; i >= 0; i--) {
             boxes[i] = Box.createHorizontalBox();
@@ -88,9 +111,11 @@ public class Board extends JPanel {
                     guesses.add(guessPanels[i][j]);
                 }
             }
-            resultPanels[i] = new GuessResultPanel(unitWidth, unitHeight,
-                    background);
-            result.add(resultPanels[i]);
+            for (int j = 0; j < numBoards; j++) {
+                resultPanels[i][j] = new GuessResultPanel(unitWidth,
+                        unitHeight, background, numOfPositionsInGuess);
+                result.add(resultPanels[i][j]);
+            }
             boxes[i].add(guesses);
             boxes[i].add(result);
             boxes[i].setBorder(
@@ -110,10 +135,31 @@ public class Board extends JPanel {
             for (int j = 0; j < guessPanels[0].length; j++) {
                 guessPanels[i][j].clearPanel();
             }
-            resultPanels[i].clearPanel();
+            for (int j = 0; j < resultPanels[i].length; j++) {
+                resultPanels[i][j].clearPanel();
+            }
+        }
+        if (hintPanel != null) {
+            hintPanel.clear();
         }
     }
 
+    /**
+     * Sets a panel to be told of each result shown.
+     * @param hintPanel HintPanel - the panel, or null for none
+     */
+    public void setHintPanel(HintPanel hintPanel) {
+        this.hintPanel = hintPanel;
+    }
+
+    /**
+     * Returns the panel told of each result shown.
+     * @return HintPanel - the panel, or null if none
+     */
+    public HintPanel getHintPanel() {
+        return hintPanel;
+    }
+
     /**
      * Returns the row that a GuessColorPanel is in.
      * @param panel GuessColorPanel - reference to a panel
@@ -155,8 +201,36 @@ public class Board extends JPanel {
      * @param result GuessInfo
      */
     public void showGuessResult(int rowIndex, GuessInfo result) {
-        resultPanels[rowIndex].setResult(result.getPositionMatches(),
+        resultPanels[rowIndex][0].setResult(result.getPositionMatches(),
                                          result.getNonPositionalMatches());
+        if (hintPanel != null) {
+            int[] guess = new int[guessPanels[rowIndex].length];
+            for (int i = 0; i < guess.length; i++) {
+                guess[i] = guessPanels[rowIndex][i].getIndex();
+            }
+            hintPanel.guessMade(guess, result.getFeedback());
+        }
+    }
+
+    /**
+     * Displays the results of a guess on each board.  Boards already
+     * solved are left blank.
+     * @param rowIndex int
+     * @param results GuessInfo[] - a result per board, null for one
+     * already solved
+     */
+    public void showGuessResults(int rowIndex, GuessInfo[] results) {
+        if (results.length == 1) {
+            showGuessResult(rowIndex, results[0]);
+            return;
+        }
+        for (int j = 0; j < results.length; j++) {
+            if (results[j] != null) {
+                resultPanels[rowIndex][j].setResult(
+                        results[j].getPositionMatches(),
+                        results[j].getNonPositionalMatches());
+            }
+        }
     }
 
     /**
@@ -10,13 +10,26 @@ import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
 
+import mastermind.CodeSpace;
 import mastermind.MasterMind;
+import mastermind.ai.MultiBoardSolver;
+import mastermind.ai.SolverChoice;
 
 /**
  * Dialog to handle selecting either a Colors game or a Numbers game,
  * and to set the game's parameters.
  */
 public class GameDialog extends JDialog implements ActionListener {
+    /**
+     * The numbers of elements a game can be played with.
+     */
+    public static final int[] ELEMENT_COUNTS = {6, 8, 10, 12, 16, 20};
+
+    /**
+     * The guess lengths a game can be played with--one radio button each.
+     */
+    public static final int[] GUESS_LENGTHS = {4, 5, 6, 8};
+
     // The game using this dialog
     private MasterMind parent;
     // The type of game -- "Colors" or "Numbers", e.g.
@@ -34,8 +47,8 @@ public class GameDialog extends JDialog implements ActionListener {
     private boolean autopilot;
     
     // The following members are for the dialog's display
-    private String[] numElems = {"6", "8", "10"};
-    private String[] numOfGuesses = {"8", "10", "12", "14"};
+    private String[] numElems = toStrings(ELEMENT_COUNTS);
+    private String[] numOfGuesses = {"8", "10", "12", "14", "16", "20"};
     private JComboBox numElements = new JComboBox(numElems);
     private JComboBox numGuesses = new JComboBox(numOfGuesses);
     JLabel numOfElements;
@@ -44,6 +57,18 @@ public class GameDialog extends JDialog implements ActionListener {
     private JRadioButton len4 = new
                                 JRadioButton("Guess Length 4 (Standard)", true);
     private JRadioButton len5 = new JRadioButton("Guess Length 5");
+    private JRadioButton len6 = new JRadioButton("Guess Length 6");
+    private JRadioButton len8 = new JRadioButton("Guess Length 8");
+    private JCheckBox noRepeats;
+    private JCheckBox hardMode =
+        new JCheckBox("Hard Mode (guesses must fit earlier results)");
+    // secrets each guess is scored against
+    private String[] numOfBoards = {"1", "2", "4", "8"};
+    private JComboBox numBoards = new JComboBox(numOfBoards);
+    JLabel boardsLabel = new JLabel("Boards (secrets played at once)");
+    // the ai's solver--only for games on autopilot
+    private JComboBox solvers = new JComboBox(SolverChoice.values());
+    JLabel solverLabel = new JLabel("Solver");
     private JButton ok = new JButton("OK");
 
 	/**
@@ -62,8 +87,10 @@ public class GameDialog extends JDialog implements ActionListener {
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
         if (typeOfGame.equals("Colors")) {
             numOfElements = new JLabel("Number of Colors");
+            noRepeats = new JCheckBox("No Repeated Colors");
         } else if (typeOfGame.equals("Numbers")) {
             numOfElements = new JLabel("Number of Digits");
+            noRepeats = new JCheckBox("No Repeated Digits");
         } 
         // comboboxes
         numElements.setSelectedIndex(1);
@@ -87,17 +114,45 @@ public class GameDialog extends JDialog implements ActionListener {
         // radios
         len4.addActionListener(this);
         len4.setActionCommand("length=4");
-        //len5.addActionListener(this);
-        //len5.setActionCommand("length=5");
+        len5.addActionListener(this);
+        len5.setActionCommand("length=5");
+        len6.addActionListener(this);
+        len6.setActionCommand("length=6");
+        len8.addActionListener(this);
+        len8.setActionCommand("length=8");
         group.add(len4);
-        //group.add(len5);
+        group.add(len5);
+        group.add(len6);
+        group.add(len8);
         Box radioBox = Box.createVerticalBox();
         radioBox.add(len4);
-        //radioBox.add(len5);
+        radioBox.add(len5);
+        radioBox.add(len6);
+        radioBox.add(len8);
         Box anotherBox = Box.createHorizontalBox();
         anotherBox.add(radioBox);
         anotherBox.add(Box.createHorizontalGlue());
         all.add(anotherBox);
+        Box checkBox = Box.createHorizontalBox();
+        checkBox.add(noRepeats);
+        checkBox.add(Box.createHorizontalGlue());
+        all.add(checkBox);
+        Box hardBox = Box.createHorizontalBox();
+        hardBox.add(hardMode);
+        hardBox.add(Box.createHorizontalGlue());
+        all.add(hardBox);
+        Box boxBoards = Box.createHorizontalBox();
+        boxBoards.add(boardsLabel);
+        boxBoards.add(Box.createHorizontalStrut(25));
+        boxBoards.add(numBoards);
+        all.add(boxBoards);
+        solvers.setEnabled(autopilot);
+        solverLabel.setEnabled(autopilot);
+        Box boxSolver = Box.createHorizontalBox();
+        boxSolver.add(solverLabel);
+        boxSolver.add(Box.createHorizontalStrut(25));
+        boxSolver.add(solvers);
+        all.add(boxSolver);
         all.add(Box.createVerticalStrut(10));
         ok.addActionListener(this);
         ok.setActionCommand("ok");
@@ -107,6 +162,15 @@ public class GameDialog extends JDialog implements ActionListener {
 
     }
 
+    // the numbers as Strings, for a combobox
+    private static String[] toStrings(int[] numbers) {
+        String[] strings = new String[numbers.length];
+        for (int i = 0; i < numbers.length; i++) {
+            strings[i] = Integer.toString(numbers[i]);
+        }
+        return strings;
+    }
+
     /**
      * This dialog handles its own actions.
      * @param e ActionEvent
@@ -123,12 +187,9 @@ public class GameDialog extends JDialog implements ActionListener {
                 intNumGuesses = Integer.parseInt(s);
                 //System.out.println("ComboBox numGuesses: " + item);
             }
-        } else if (e.getActionCommand().equals("length=4")) {
-            guessLength = 4;
-            //System.out.println("Set length to 4");
-        } else if (e.getActionCommand().equals("length=5")) {
-            guessLength = 5;
-            //System.out.println("Set length to 5");
+        } else if (e.getActionCommand().startsWith("length=")) {
+            String s = e.getActionCommand().substring("length=".length());
+            guessLength = Integer.parseInt(s);
         } else if (e.getActionCommand().equals("ok")) {
             // make sure all values are set if not changed during
             // this action
@@ -136,14 +197,40 @@ public class GameDialog extends JDialog implements ActionListener {
             totalElements = Integer.parseInt(s);
             s = (String) numGuesses.getSelectedItem();
             intNumGuesses = Integer.parseInt(s);
+            int boards = Integer.parseInt(
+                    (String) numBoards.getSelectedItem());
+            if (autopilot && boards > 1 && !aiCanPlayBoards()) {
+                JOptionPane.showMessageDialog(this,
+                        "The ai can't hold every code of " + guessLength +
+                        " pegs and " + totalElements + " elements\n" +
+                        "to play several boards--choose fewer pegs, " +
+                        "fewer elements or one board.",
+                        "Game too big", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
             // action to pass parameters to MasterMind
             try {
                 dispose();
                 parent.reInit();
                 parent.init(typeOfGame, totalElements, intNumGuesses,
-                            guessLength, this.autopilot);
+                            guessLength, this.autopilot,
+                            noRepeats.isSelected(),
+                            (SolverChoice) solvers.getSelectedItem(),
+                            hardMode.isSelected(), boards);
             } catch (Exception ex) {}
         }
     }
 
+    // true if the multi-board solver can hold the space of the game
+    // chosen--it holds every code
+    private boolean aiCanPlayBoards() {
+        try {
+            return MultiBoardSolver.canHold(new CodeSpace(guessLength,
+                    totalElements, noRepeats.isSelected()));
+        } catch (IllegalArgumentException e) {
+            // not a game--init() will say why
+            return true;
+        }
+    }
+
 }
@@ -24,7 +24,23 @@ public class GuessResultPanel extends JPanel {
 
     public GuessResultPanel(int prefWidth, int prefHeight,
                             Color background) {
-        setPreferredSize(new Dimension(prefWidth, prefHeight));
+        this(prefWidth, prefHeight, background, 4);
+    }
+
+    /**
+     * Creates a panel with room for the result of a guess of any length.
+     * Longer guesses make the panel wider so the pegs stay a usable size.
+     * @param prefWidth int - preferred width for a guess of length 4
+     * @param prefHeight int - preferred height
+     * @param background Color - background color
+     * @param guessLength int - number of positions in a guess
+     */
+    public GuessResultPanel(int prefWidth, int prefHeight,
+                            Color background, int guessLength) {
+        this.guessLength = guessLength;
+        int top = guessLength - guessLength / 2;
+        setPreferredSize(new Dimension(prefWidth * Math.max(2, top) / 2,
+                                       prefHeight));
         makeBorder();
         setBackground(background);
     }
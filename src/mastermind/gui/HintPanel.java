@@ -0,0 +1,317 @@
+/**
+ * Dave Rogers
+ * dave at drogers dot us
+ * This software is for instructive purposes.  Use at your own risk - not meant to be robust at all.
+ * Feel free to use anything, credit is appreciated if warranted.
+ */
+package mastermind.gui;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.swing.*;
+
+import mastermind.CodeSpace;
+import mastermind.Feedback;
+import mastermind.GuessInfo;
+import mastermind.ai.*;
+
+/**
+ * An optional panel for human players that shows how many secrets are
+ * still consistent with the board and, when the Hint button is pressed,
+ * suggests a next guess.<br>
+ * All the work is done on a background thread, one task at a time and in
+ * the order asked, so the event thread is never held up:
+ * the consistent secrets of games up to MAX_HELD codes are held in a
+ * CandidateSet and filtered by each result as it comes in; bigger games
+ * are counted by a ConsistentCounter until few enough are left to hold,
+ * if the game is small enough to walk for them (MAX_WALKED).
+ * Suggestions come from the automatic solver (see SolverChoice), which is
+ * made at the first request and then kept up to date with each result.
+ * Answers for a game that has since been stopped are thrown away.
+ */
+@SuppressWarnings("serial")
+public class HintPanel extends JPanel implements ActionListener {
+
+    /**
+     * The most consistent secrets held in a CandidateSet--more are
+     * counted without being held.
+     */
+    public static final int MAX_HELD = 4000000;
+
+    /**
+     * The most codes in a game for its consistent secrets to be found by
+     * walking it, once there are few enough to hold.
+     */
+    public static final long MAX_WALKED = 200000000L;
+
+    // one thread for every hint panel, so tasks run in order
+    private static final ExecutorService worker =
+        Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "mastermind-hints");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+    // the elements played with, for showing a suggestion
+    private Object[] elements;
+
+    private JLabel count = new JLabel(" ");
+    private JButton hint = new JButton("Hint");
+    private GuessPanel[] suggestion;
+
+    // bumped on the event thread for each new or stopped game--tasks
+    // and answers carry the game they were made for
+    private int game = 0;
+
+    // results sent to the worker for this game
+    private int numResults = 0;
+
+    // ~~~~~~~ Used only on the worker thread ~~~~~~~~~~
+
+    // the game being worked on, whose elements are indexes--space is
+    // over 0 to indexes.length-1, and null if the game is too big
+    private int workerGame = -1;
+    private int[] indexes;
+    private int[] localIndexes;
+    private CodeSpace space;
+    private GuessHistory history;
+
+    // the consistent secrets, or null while there are too many to hold
+    private CandidateSet candidates;
+
+    // made at the first suggestion asked for, and its guess for the
+    // history so far, or null if not worked out
+    private Solver solver;
+    private int[] nextGuess;
+
+    /**
+     * Creates a hint panel
+     * @param unitWidth int - width of a suggested element
+     * @param unitHeight int - height of a suggested element
+     * @param guessLength int - length of the guess
+     * @param elements Object[] - the elements used for playing this
+     * game--Colors or Integers
+     * @param background Color - background color for element panels
+     */
+    public HintPanel(int unitWidth, int unitHeight, int guessLength,
+                     Object[] elements, Color background) {
+        this.elements = elements;
+        setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+        setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createLoweredBevelBorder(), "Hints"));
+        count.setAlignmentX(CENTER_ALIGNMENT);
+        hint.setAlignmentX(CENTER_ALIGNMENT);
+        hint.setEnabled(false);
+        hint.addActionListener(this);
+        Box row = Box.createHorizontalBox();
+        suggestion = new GuessPanel[guessLength];
+        for (int i = 0; i < suggestion.length; i++) {
+            if (elements[0] instanceof Color) {
+                suggestion[i] = new GuessColorPanel(unitWidth, unitHeight,
+                        null, background);
+            } else {
+                suggestion[i] = new GuessNumberPanel(unitWidth, unitHeight,
+                        null, background);
+            }
+            row.add(suggestion[i]);
+        }
+        add(count);
+        add(row);
+        add(hint);
+    }
+
+    /**
+     * Starts working on a new game.  Call after clear().
+     * @param indexes int[] - the indexes of the elements selected for
+     * play in this game
+     * @param noDuplicates boolean - true if elements can't be repeated
+     */
+    public void newGame(final int[] indexes, final boolean noDuplicates) {
+        final int g = game;
+        count.setText("Counting possible secrets...");
+        worker.submit(new Runnable() {
+            public void run() {
+                start(g, indexes.clone(), noDuplicates);
+            }
+        });
+    }
+
+    /**
+     * Takes in the result of a guess.  Board calls this from
+     * showGuessResult().
+     * @param guess int[] - the indexes of the elements guessed
+     * @param feedback Feedback - the result
+     */
+    public void guessMade(int[] guess, final Feedback feedback) {
+        final int g = game;
+        final int[] copy = guess.clone();
+        numResults++;
+        clearSuggestion();
+        count.setText("Counting possible secrets...");
+        worker.submit(new Runnable() {
+            public void run() {
+                takeResult(g, copy, feedback);
+            }
+        });
+    }
+
+    /**
+     * Clears the panel, and drops any work for the last game.
+     */
+    public void clear() {
+        game++;
+        numResults = 0;
+        count.setText(" ");
+        hint.setEnabled(false);
+        clearSuggestion();
+    }
+
+    /**
+     * Handles the Hint button--works out a suggestion in the background.
+     * @param e ActionEvent
+     */
+    public void actionPerformed(ActionEvent e) {
+        final int g = game;
+        hint.setEnabled(false);
+        worker.submit(new Runnable() {
+            public void run() {
+                suggest(g);
+            }
+        });
+    }
+
+    private void clearSuggestion() {
+        for (int i = 0; i < suggestion.length; i++) {
+            suggestion[i].clearPanel();
+        }
+    }
+
+    // worker: sets up for game g
+    private void start(int g, int[] indexes, boolean noDuplicates) {
+        workerGame = g;
+        this.indexes = indexes;
+        localIndexes = new int[elements.length];
+        Arrays.fill(localIndexes, -1);
+        for (int i = 0; i < indexes.length; i++) {
+            localIndexes[indexes[i]] = i;
+        }
+        candidates = null;
+        solver = null;
+        nextGuess = null;
+        try {
+            space = new CodeSpace(suggestion.length, indexes.length,
+                                  noDuplicates);
+        } catch (IllegalArgumentException e) {
+            space = null;
+            showCount(g, 0, "Too big a game for hints", false);
+            return;
+        }
+        history = new GuessHistory(space);
+        if (space.size() <= MAX_HELD) {
+            candidates = CandidateSet.all(space);
+        }
+        showCount(g);
+    }
+
+    // worker: takes in a result for game g
+    private void takeResult(int g, int[] guess, Feedback feedback) {
+        if (g != workerGame || space == null) {
+            return;
+        }
+        int[] local = new int[guess.length];
+        for (int i = 0; i < guess.length; i++) {
+            local[i] = localIndexes[guess[i]];
+        }
+        long packed = space.pack(local);
+        int key = space.feedbackKey(feedback.getBlack(), feedback.getWhite());
+        history.add(packed, key);
+        if (candidates != null) {
+            candidates.filter(packed, key);
+        }
+        if (solver != null) {
+            solver.update(new GuessInfo(local, feedback));
+        }
+        nextGuess = null;
+        showCount(g);
+    }
+
+    // worker: counts the consistent secrets of game g, holding them once
+    // there are few enough and the space can be walked for them, and
+    // shows the count
+    private void showCount(int g) {
+        int guesses = history.size();
+        if (candidates == null) {
+            long n = -1;
+            try {
+                n = new ConsistentCounter(history).count();
+            } catch (IllegalArgumentException e) {
+                // the history is too long to count by positions
+            }
+            if ((n < 0 || n <= MAX_HELD) && space.size() <= MAX_WALKED) {
+                candidates = CandidateSet.consistent(space, history, MAX_HELD);
+            }
+            if (candidates == null) {
+                showCount(g, guesses, n < 0 ? "Too many guesses to count"
+                          : n + " possible secrets", true);
+                return;
+            }
+        }
+        int n = candidates.size();
+        showCount(g, guesses, n == 1 ? "1 possible secret"
+                  : n + " possible secrets", true);
+    }
+
+    // worker: works out a suggestion for game g
+    private void suggest(final int g) {
+        if (g != workerGame || space == null) {
+            return;
+        }
+        if (solver == null) {
+            // brought up to date with update() alone--the solvers guess
+            // from the results they are given
+            solver = SolverChoice.AUTOMATIC.create(space);
+            for (int i = 0; i < history.size(); i++) {
+                Feedback f = space.feedback(history.getFeedback(i));
+                solver.update(new GuessInfo(space.unpack(history.getGuess(i)),
+                                            f));
+            }
+        }
+        if (nextGuess == null) {
+            nextGuess = solver.nextGuess();
+        }
+        final int[] guess = new int[nextGuess.length];
+        for (int i = 0; i < guess.length; i++) {
+            guess[i] = indexes[nextGuess[i]];
+        }
+        final int guesses = history.size();
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                if (g == game && guesses == numResults) {
+                    for (int i = 0; i < guess.length; i++) {
+                        suggestion[i].select(elements[guess[i]]);
+                        suggestion[i].setIndex(guess[i]);
+                    }
+                    hint.setEnabled(true);
+                }
+            }
+        });
+    }
+
+    // worker: shows text for game g after the given number of guesses on
+    // the event thread, unless more results have come in since
+    private void showCount(final int g, final int guesses,
+                           final String text, final boolean hintable) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                if (g == game && guesses == numResults) {
+                    count.setText(text);
+                    hint.setEnabled(hintable);
+                }
+            }
+        });
+    }
+}